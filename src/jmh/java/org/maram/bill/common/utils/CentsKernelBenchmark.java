@@ -0,0 +1,122 @@
+package org.maram.bill.common.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CentsKernel 与 BigDecimal 流式聚合的对比基准
+ *
+ * 构造 bills 条账单（默认 10 万），分别用 BigDecimal 的 stream reduce / Map 合并（原有写法）
+ * 与 long 分数组上的内核方法计算合计、按分类分组、最小/最大值和 P90。
+ * 运行：./mvnw -P jmh test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CentsKernelBenchmark {
+
+    private static final int CATEGORIES = 20;
+    private static final double PERCENTILE = 90.0;
+
+    @Param("100000")
+    private int bills;
+
+    private List<BigDecimal> amounts;
+    private List<Long> categoryIds;
+    private long[] cents;
+    private int[] groups;
+    private long[] scratch;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        amounts = new ArrayList<>(bills);
+        categoryIds = new ArrayList<>(bills);
+        cents = new long[bills];
+        groups = new int[bills];
+        scratch = new long[bills];
+        for (int i = 0; i < bills; i++) {
+            long value = random.nextLong(1, 500_000);
+            int group = random.nextInt(CATEGORIES);
+            amounts.add(CentsKernel.toAmount(value));
+            categoryIds.add((long) group + 1);
+            cents[i] = value;
+            groups[i] = group;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimal() {
+        return amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal sumKernel() {
+        return CentsKernel.toAmount(CentsKernel.sum(cents, 0, bills));
+    }
+
+    @Benchmark
+    public Map<Long, BigDecimal> groupBigDecimal() {
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        for (int i = 0; i < bills; i++) {
+            totals.merge(categoryIds.get(i), amounts.get(i), BigDecimal::add);
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public void groupKernel(Blackhole blackhole) {
+        long[] groupCents = new long[CATEGORIES];
+        int[] groupCounts = new int[CATEGORIES];
+        CentsKernel.sumByGroup(cents, groups, 0, bills, groupCents, groupCounts);
+        blackhole.consume(groupCents);
+        blackhole.consume(groupCounts);
+    }
+
+    @Benchmark
+    public void minMaxBigDecimal(Blackhole blackhole) {
+        blackhole.consume(amounts.stream().min(Comparator.naturalOrder()).orElse(BigDecimal.ZERO));
+        blackhole.consume(amounts.stream().max(Comparator.naturalOrder()).orElse(BigDecimal.ZERO));
+    }
+
+    @Benchmark
+    public void minMaxKernel(Blackhole blackhole) {
+        blackhole.consume(CentsKernel.min(cents, 0, bills));
+        blackhole.consume(CentsKernel.max(cents, 0, bills));
+    }
+
+    @Benchmark
+    public BigDecimal percentileBigDecimal() {
+        List<BigDecimal> sorted = new ArrayList<>(amounts);
+        sorted.sort(Comparator.naturalOrder());
+        int rank = (int) Math.ceil(PERCENTILE / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(rank, 0));
+    }
+
+    @Benchmark
+    public BigDecimal percentileKernel() {
+        return CentsKernel.toAmount(CentsKernel.percentile(cents, 0, bills, PERCENTILE, scratch));
+    }
+}
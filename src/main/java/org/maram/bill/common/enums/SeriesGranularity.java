@@ -0,0 +1,57 @@
+package org.maram.bill.common.enums;
+
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 时间序列分桶粒度枚举（周从周一开始）
+ */
+@Getter
+public enum SeriesGranularity {
+    DAY("day", ChronoUnit.DAYS),
+    WEEK("week", ChronoUnit.WEEKS),
+    MONTH("month", ChronoUnit.MONTHS);
+
+    private final String value;
+    private final ChronoUnit unit;
+
+    SeriesGranularity(String value, ChronoUnit unit) {
+        this.value = value;
+        this.unit = unit;
+    }
+
+    /**
+     * 日期所在桶的起始日期
+     */
+    public LocalDate bucketStart(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * 日期相对于起始桶的下标
+     * @param origin 第一个桶的起始日期（需为 bucketStart 的结果）
+     */
+    public int indexOf(LocalDate origin, LocalDate date) {
+        return (int) unit.between(origin, bucketStart(date));
+    }
+
+    public static SeriesGranularity fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return DAY;
+        }
+        for (SeriesGranularity granularity : values()) {
+            if (granularity.value.equalsIgnoreCase(value.trim())) {
+                return granularity;
+            }
+        }
+        throw new IllegalArgumentException("不支持的时间粒度: " + value);
+    }
+}
@@ -0,0 +1,34 @@
+package org.maram.bill.common.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 预算越过预警阈值或超出预算时发布的事件
+ * 在账单写入的事务内、计数器更新时检测并发布，只在向上越过时发布一次
+ */
+@Getter
+@AllArgsConstructor
+public class BudgetThresholdCrossedEvent {
+
+    /**
+     * 预算状态等级，数值越大越严重
+     */
+    public enum Level {
+        NORMAL,
+        NEAR_THRESHOLD,
+        OVER_BUDGET
+    }
+
+    private final Long userId;
+    private final Long budgetId;
+    private final String budgetType;
+    private final LocalDate periodStart;
+    private final Level level;
+    private final BigDecimal usedAmount;
+    private final BigDecimal budgetAmount;
+    private final BigDecimal alertThreshold;
+}
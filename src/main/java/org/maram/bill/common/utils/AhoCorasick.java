@@ -0,0 +1,158 @@
+package org.maram.bill.common.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick 多模式串匹配自动机（不可变，线程安全）
+ *
+ * 构建后每个节点的子节点以有序 char 数组 + 二分查找存储，适合中文等大字符集；
+ * 失败指针与输出链接在构建时一次算好，匹配时对文本做一次线性扫描即可找出所有模式串的出现位置。
+ * 匹配区分大小写，调用方需自行统一大小写。
+ */
+public final class AhoCorasick {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final char[][] childChars;
+    private final int[][] childNodes;
+    private final int[] fail;
+    private final int[] outputLink;     // 沿失败链最近的一个有输出的节点
+    private final int[][] outputs;      // 以该节点结尾的模式串下标
+    private final int[] patternLengths;
+
+    /**
+     * 匹配回调
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * @param patternIndex 模式串在构建列表中的下标
+         * @param end 匹配结束位置（不含）
+         */
+        void onMatch(int patternIndex, int end);
+    }
+
+    private AhoCorasick(char[][] childChars, int[][] childNodes, int[] fail, int[] outputLink,
+                        int[][] outputs, int[] patternLengths) {
+        this.childChars = childChars;
+        this.childNodes = childNodes;
+        this.fail = fail;
+        this.outputLink = outputLink;
+        this.outputs = outputs;
+        this.patternLengths = patternLengths;
+    }
+
+    /**
+     * 构建自动机，空模式串被忽略（但保留下标）
+     */
+    public static AhoCorasick build(List<String> patterns) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> terminal = new ArrayList<>();
+        trie.add(new HashMap<>());
+        terminal.add(new ArrayList<>());
+
+        int[] patternLengths = new int[patterns.size()];
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            patternLengths[p] = pattern != null ? pattern.length() : 0;
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            int node = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = trie.get(node).get(pattern.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    terminal.add(new ArrayList<>());
+                    trie.get(node).put(pattern.charAt(i), next);
+                }
+                node = next;
+            }
+            terminal.get(node).add(p);
+        }
+
+        int size = trie.size();
+        char[][] childChars = new char[size][];
+        int[][] childNodes = new int[size][];
+        int[][] outputs = new int[size][];
+        for (int node = 0; node < size; node++) {
+            Map<Character, Integer> children = trie.get(node);
+            char[] chars = new char[children.size()];
+            int index = 0;
+            for (Character c : children.keySet()) {
+                chars[index++] = c;
+            }
+            Arrays.sort(chars);
+            int[] nodes = new int[chars.length];
+            for (int i = 0; i < chars.length; i++) {
+                nodes[i] = children.get(chars[i]);
+            }
+            childChars[node] = chars;
+            childNodes[node] = nodes;
+            outputs[node] = terminal.get(node).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // 广度优先计算失败指针与输出链接
+        int[] fail = new int[size];
+        int[] outputLink = new int[size];
+        Arrays.fill(outputLink, NONE);
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : childNodes[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < childChars[node].length; i++) {
+                char c = childChars[node][i];
+                int child = childNodes[node][i];
+                int state = fail[node];
+                int next;
+                while ((next = step(childChars, childNodes, state, c)) == NONE && state != ROOT) {
+                    state = fail[state];
+                }
+                fail[child] = next != NONE ? next : ROOT;
+                outputLink[child] = outputs[fail[child]].length > 0 ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+        return new AhoCorasick(childChars, childNodes, fail, outputLink, outputs, patternLengths);
+    }
+
+    /**
+     * 对文本做一次线性扫描，按出现顺序回调所有匹配（同一模式串多次出现会多次回调）
+     */
+    public void match(CharSequence text, MatchHandler handler) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = step(childChars, childNodes, state, c)) == NONE && state != ROOT) {
+                state = fail[state];
+            }
+            state = next != NONE ? next : ROOT;
+            for (int node = outputs[state].length > 0 ? state : outputLink[state]; node != NONE; node = outputLink[node]) {
+                for (int pattern : outputs[node]) {
+                    handler.onMatch(pattern, i + 1);
+                }
+            }
+        }
+    }
+
+    public int patternLength(int patternIndex) {
+        return patternLengths[patternIndex];
+    }
+
+    private static int step(char[][] childChars, int[][] childNodes, int node, char c) {
+        int index = Arrays.binarySearch(childChars[node], c);
+        return index >= 0 ? childNodes[node][index] : NONE;
+    }
+}
@@ -0,0 +1,222 @@
+package org.maram.bill.common.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * 基于原始类型数组的金额聚合内核
+ *
+ * 金额统一以 long 表示的"分"存储，日期以 int 表示的纪元日（LocalDate.toEpochDay）存储，
+ * 分组以从 0 开始的 int 下标表示。所有方法只在调用方提供的数组上运算，不创建对象，
+ * 仅在对外输出时通过 {@link #toAmount(long)} 转回 BigDecimal。
+ * 区间参数均为 [from, to) 半开区间。
+ */
+public final class CentsKernel {
+
+    public static final int AMOUNT_SCALE = 2;
+
+    private CentsKernel() {
+    }
+
+    /**
+     * 金额转为分（四舍五入到分）
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * 分转为金额（保留两位小数）
+     */
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, AMOUNT_SCALE);
+    }
+
+    public static int epochDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    public static long sum(long[] cents, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += cents[i];
+        }
+        return total;
+    }
+
+    /**
+     * 最小值，区间为空时返回 0
+     */
+    public static long min(long[] cents, int from, int to) {
+        if (from >= to) {
+            return 0L;
+        }
+        long min = cents[from];
+        for (int i = from + 1; i < to; i++) {
+            if (cents[i] < min) {
+                min = cents[i];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * 最大值，区间为空时返回 0
+     */
+    public static long max(long[] cents, int from, int to) {
+        if (from >= to) {
+            return 0L;
+        }
+        long max = cents[from];
+        for (int i = from + 1; i < to; i++) {
+            if (cents[i] > max) {
+                max = cents[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 日期落在 [fromDay, toDay] 闭区间内的金额合计
+     */
+    public static long sumBetweenDays(long[] cents, int[] days, int from, int to, int fromDay, int toDay) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            int day = days[i];
+            if (day >= fromDay && day <= toDay) {
+                total += cents[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 日期落在 [fromDay, toDay] 闭区间内的条数
+     */
+    public static int countBetweenDays(int[] days, int from, int to, int fromDay, int toDay) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int day = days[i];
+            if (day >= fromDay && day <= toDay) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 按分组下标累加金额与笔数到输出数组（输出数组长度需覆盖所有分组下标，不会被清零）
+     * @param groupCents 各分组金额合计输出，可为 null
+     * @param groupCounts 各分组笔数输出，可为 null
+     */
+    public static void sumByGroup(long[] cents, int[] groups, int from, int to, long[] groupCents, int[] groupCounts) {
+        for (int i = from; i < to; i++) {
+            int group = groups[i];
+            if (groupCents != null) {
+                groupCents[group] += cents[i];
+            }
+            if (groupCounts != null) {
+                groupCounts[group]++;
+            }
+        }
+    }
+
+    /**
+     * 同 {@link #sumByGroup}，只统计日期落在 [fromDay, toDay] 内的记录
+     */
+    public static void sumByGroupBetweenDays(long[] cents, int[] groups, int[] days, int from, int to,
+                                             int fromDay, int toDay, long[] groupCents, int[] groupCounts) {
+        for (int i = from; i < to; i++) {
+            int day = days[i];
+            if (day < fromDay || day > toDay) {
+                continue;
+            }
+            int group = groups[i];
+            if (groupCents != null) {
+                groupCents[group] += cents[i];
+            }
+            if (groupCounts != null) {
+                groupCounts[group]++;
+            }
+        }
+    }
+
+    /**
+     * 按日分桶累加：out[day - originDay] += cents，超出输出数组范围的记录被忽略
+     */
+    public static void bucketByDay(long[] cents, int[] days, int from, int to, int originDay, long[] out) {
+        for (int i = from; i < to; i++) {
+            int index = days[i] - originDay;
+            if (index >= 0 && index < out.length) {
+                out[index] += cents[i];
+            }
+        }
+    }
+
+    /**
+     * 最近秩法百分位数（p 取值 0~100），区间为空时返回 0
+     * 数据先复制到 scratch 再做快速选择，原数组不变；scratch 长度需不小于 to - from
+     */
+    public static long percentile(long[] cents, int from, int to, double p, long[] scratch) {
+        int n = to - from;
+        if (n <= 0) {
+            return 0L;
+        }
+        System.arraycopy(cents, from, scratch, 0, n);
+        int rank = (int) Math.ceil(Math.max(0.0, Math.min(100.0, p)) / 100.0 * n) - 1;
+        return select(scratch, 0, n - 1, Math.max(rank, 0));
+    }
+
+    /**
+     * 快速选择：返回 values[left..right] 排序后位于 k 的元素（会打乱该区间）
+     */
+    private static long select(long[] values, int left, int right, int k) {
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            // 三数取中，避免有序输入退化
+            if (values[mid] < values[left]) {
+                swap(values, mid, left);
+            }
+            if (values[right] < values[left]) {
+                swap(values, right, left);
+            }
+            if (values[right] < values[mid]) {
+                swap(values, right, mid);
+            }
+            long pivot = values[mid];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(values, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return values[k];
+            }
+        }
+        return values[k];
+    }
+
+    private static void swap(long[] values, int i, int j) {
+        long tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+}
@@ -0,0 +1,108 @@
+package org.maram.bill.common.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 轻量级流式 CSV 读取器（RFC 4180）
+ * 每次只读取一条记录，支持引号包裹的字段、转义双引号以及字段内换行，自动跳过 UTF-8 BOM。
+ */
+public class CsvReader implements Closeable {
+
+    private static final int BOM = 0xFEFF;
+
+    private final Reader reader;
+    private int peeked = -2;
+    private boolean started;
+    private long lineNumber;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 读取下一条记录
+     * @return 字段列表，到达文件末尾时返回 null
+     */
+    public List<String> readRecord() throws IOException {
+        int c = next();
+        if (!started) {
+            started = true;
+            if (c == BOM) {
+                c = next();
+            }
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        lineNumber++;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("第 " + lineNumber + " 行存在未闭合的引号");
+                }
+                if (c == '"') {
+                    int following = next();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int following = next();
+                    if (following != '\n') {
+                        peeked = following;
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = next();
+        }
+    }
+
+    /**
+     * 最近一条记录结束时所在的物理行号（从 1 开始）
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    private int next() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,39 @@
+package org.maram.bill.common.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标（keyset）分页结果封装类
+ * 与基于 offset 的 Page 不同，翻页成本只与每页大小相关，不随页码增长。
+ *
+ * @param <T> 记录类型
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /**
+     * 当前页记录
+     */
+    private List<T> records;
+
+    /**
+     * 下一页游标（不透明字符串），没有更多数据时为 null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 总记录数（可选，仅在首页且显式请求时返回，翻页期间不再重新统计）
+     */
+    private Long total;
+}
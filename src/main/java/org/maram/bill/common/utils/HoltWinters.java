@@ -0,0 +1,136 @@
+package org.maram.bill.common.utils;
+
+/**
+ * 加法 Holt-Winters 三次指数平滑（阻尼趋势）
+ *
+ * 水平、趋势、季节三个分量逐点更新，趋势按阻尼系数 phi 衰减，避免长期预测随短期趋势无限外推。
+ * 平滑参数通过小规模网格搜索选取：以一步预测误差平方和最小的组合为准。
+ * 序列长度至少为两个完整季节周期。
+ */
+public final class HoltWinters {
+
+    private static final double[] ALPHAS = {0.05, 0.1, 0.2, 0.3, 0.5};
+    private static final double[] BETAS = {0.0, 0.05, 0.15};
+    private static final double[] GAMMAS = {0.05, 0.1, 0.3};
+    private static final double DAMPING = 0.9;
+
+    private HoltWinters() {
+    }
+
+    /**
+     * 拟合后的模型，预测步长从序列最后一个点之后开始计数（h = 1 为下一个点）
+     */
+    public static final class Model {
+        private final double level;
+        private final double trend;
+        private final double[] seasonal;
+        private final int length;
+        private final double alpha;
+        private final double beta;
+        private final double gamma;
+        private final double sse;
+
+        private Model(double level, double trend, double[] seasonal, int length,
+                      double alpha, double beta, double gamma, double sse) {
+            this.level = level;
+            this.trend = trend;
+            this.seasonal = seasonal;
+            this.length = length;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.gamma = gamma;
+            this.sse = sse;
+        }
+
+        /**
+         * 第 h 步的预测值
+         */
+        public double forecast(int h) {
+            double dampedSteps = 0;
+            double factor = DAMPING;
+            for (int i = 0; i < h; i++) {
+                dampedSteps += factor;
+                factor *= DAMPING;
+            }
+            return level + dampedSteps * trend + seasonal[(length + h - 1) % seasonal.length];
+        }
+
+        public double getAlpha() {
+            return alpha;
+        }
+
+        public double getBeta() {
+            return beta;
+        }
+
+        public double getGamma() {
+            return gamma;
+        }
+
+        public double getSse() {
+            return sse;
+        }
+    }
+
+    /**
+     * 网格搜索平滑参数并拟合
+     * @param series 等间隔观测值
+     * @param period 季节周期长度（按日数据、周季节性为 7）
+     * @return 误差最小的模型
+     */
+    public static Model fit(double[] series, int period) {
+        if (period < 2 || series.length < period * 2) {
+            throw new IllegalArgumentException("序列长度至少为两个季节周期");
+        }
+        Model best = null;
+        for (double alpha : ALPHAS) {
+            for (double beta : BETAS) {
+                for (double gamma : GAMMAS) {
+                    Model model = fit(series, period, alpha, beta, gamma);
+                    if (best == null || model.sse < best.sse) {
+                        best = model;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 使用指定参数拟合
+     */
+    public static Model fit(double[] series, int period, double alpha, double beta, double gamma) {
+        // 初始水平取第一个周期均值，初始趋势取前两个周期均值之差，初始季节分量取第一个周期相对均值的偏差
+        double firstMean = mean(series, 0, period);
+        double secondMean = mean(series, period, period * 2);
+        double level = firstMean;
+        double trend = (secondMean - firstMean) / period;
+        double[] seasonal = new double[period];
+        for (int i = 0; i < period; i++) {
+            seasonal[i] = series[i] - firstMean;
+        }
+
+        double sse = 0;
+        for (int t = period; t < series.length; t++) {
+            double y = series[t];
+            int slot = t % period;
+            double season = seasonal[slot];
+            double predicted = level + DAMPING * trend + season;
+            sse += (y - predicted) * (y - predicted);
+
+            double newLevel = alpha * (y - season) + (1 - alpha) * (level + DAMPING * trend);
+            trend = beta * (newLevel - level) + (1 - beta) * DAMPING * trend;
+            seasonal[slot] = gamma * (y - newLevel) + (1 - gamma) * season;
+            level = newLevel;
+        }
+        return new Model(level, trend, seasonal, series.length, alpha, beta, gamma, sse);
+    }
+
+    private static double mean(double[] values, int from, int to) {
+        double total = 0;
+        for (int i = from; i < to; i++) {
+            total += values[i];
+        }
+        return total / (to - from);
+    }
+}
@@ -0,0 +1,207 @@
+package org.maram.bill.common.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 多项式朴素贝叶斯分类器（特征为整数哈希，类别为 long 标签）
+ *
+ * 支持增量学习与撤销学习（计数减到 0 为止），预测时使用加一平滑并以 softmax 归一化得到后验概率。
+ * 实例非线程安全，并发场景下先 {@link #copy()} 再修改。序列化格式为压缩后的计数表，只保存非零计数。
+ */
+public final class NaiveBayes {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final double ALPHA = 1.0;
+
+    private final Map<Long, ClassStats> classes = new HashMap<>();
+    private final Map<Integer, Integer> vocabulary = new HashMap<>(); // 特征 -> 所有类别中的出现次数
+    private int documents;
+
+    private static final class ClassStats {
+        private int documents;
+        private long tokens;
+        private final Map<Integer, Integer> counts = new HashMap<>();
+
+        private ClassStats copy() {
+            ClassStats copy = new ClassStats();
+            copy.documents = documents;
+            copy.tokens = tokens;
+            copy.counts.putAll(counts);
+            return copy;
+        }
+    }
+
+    /**
+     * 预测结果
+     * @param label 概率最高的类别
+     * @param probability 该类别的后验概率
+     */
+    public record Prediction(long label, double probability) {
+    }
+
+    /**
+     * 学习一个样本
+     */
+    public void learn(long label, int[] features) {
+        ClassStats stats = classes.computeIfAbsent(label, k -> new ClassStats());
+        stats.documents++;
+        documents++;
+        for (int feature : features) {
+            stats.counts.merge(feature, 1, Integer::sum);
+            stats.tokens++;
+            vocabulary.merge(feature, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 撤销一个之前学习过的样本，计数不会减到负数
+     */
+    public void unlearn(long label, int[] features) {
+        ClassStats stats = classes.get(label);
+        if (stats == null) {
+            return;
+        }
+        if (stats.documents > 0) {
+            stats.documents--;
+            documents--;
+        }
+        for (int feature : features) {
+            Integer count = stats.counts.get(feature);
+            if (count == null) {
+                continue;
+            }
+            if (count <= 1) {
+                stats.counts.remove(feature);
+            } else {
+                stats.counts.put(feature, count - 1);
+            }
+            stats.tokens--;
+            vocabulary.computeIfPresent(feature, (k, v) -> v <= 1 ? null : v - 1);
+        }
+        if (stats.documents == 0 && stats.counts.isEmpty()) {
+            classes.remove(label);
+        }
+    }
+
+    /**
+     * 预测样本类别，模型为空或样本没有特征时返回 null
+     */
+    public Prediction predict(int[] features) {
+        if (classes.isEmpty() || documents <= 0 || features.length == 0) {
+            return null;
+        }
+        int vocabularySize = Math.max(vocabulary.size(), 1);
+        long bestLabel = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double[] scores = new double[classes.size()];
+        int index = 0;
+        for (Map.Entry<Long, ClassStats> entry : classes.entrySet()) {
+            ClassStats stats = entry.getValue();
+            if (stats.documents <= 0) {
+                scores[index++] = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            double score = Math.log((double) stats.documents / documents);
+            double denominator = Math.log(stats.tokens + ALPHA * vocabularySize);
+            for (int feature : features) {
+                score += Math.log(stats.counts.getOrDefault(feature, 0) + ALPHA) - denominator;
+            }
+            scores[index++] = score;
+            if (score > bestScore) {
+                bestScore = score;
+                bestLabel = entry.getKey();
+            }
+        }
+        if (bestScore == Double.NEGATIVE_INFINITY) {
+            return null;
+        }
+        double total = 0;
+        for (double score : scores) {
+            total += Math.exp(score - bestScore);
+        }
+        return new Prediction(bestLabel, 1.0 / total);
+    }
+
+    /**
+     * 已学习的样本数
+     */
+    public int documentCount() {
+        return documents;
+    }
+
+    public NaiveBayes copy() {
+        NaiveBayes copy = new NaiveBayes();
+        classes.forEach((label, stats) -> copy.classes.put(label, stats.copy()));
+        copy.vocabulary.putAll(vocabulary);
+        copy.documents = documents;
+        return copy;
+    }
+
+    /**
+     * 序列化为压缩字节数组
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(buffer))) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(classes.size());
+            for (Map.Entry<Long, ClassStats> entry : classes.entrySet()) {
+                ClassStats stats = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeInt(stats.documents);
+                out.writeInt(stats.counts.size());
+                for (Map.Entry<Integer, Integer> count : stats.counts.entrySet()) {
+                    out.writeInt(count.getKey());
+                    out.writeInt(count.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 从 {@link #toBytes()} 的结果恢复模型，数据为空时返回空模型
+     */
+    public static NaiveBayes fromBytes(byte[] bytes) {
+        NaiveBayes model = new NaiveBayes();
+        if (bytes == null || bytes.length == 0) {
+            return model;
+        }
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            int format = in.readByte();
+            if (format != FORMAT_VERSION) {
+                throw new IllegalArgumentException("不支持的模型格式版本: " + format);
+            }
+            int classCount = in.readInt();
+            for (int i = 0; i < classCount; i++) {
+                long label = in.readLong();
+                ClassStats stats = new ClassStats();
+                stats.documents = in.readInt();
+                int featureCount = in.readInt();
+                for (int j = 0; j < featureCount; j++) {
+                    int feature = in.readInt();
+                    int count = in.readInt();
+                    stats.counts.put(feature, count);
+                    stats.tokens += count;
+                    model.vocabulary.merge(feature, count, Integer::sum);
+                }
+                model.classes.put(label, stats);
+                model.documents += stats.documents;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return model;
+    }
+}
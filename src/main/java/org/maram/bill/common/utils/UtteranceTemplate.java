@@ -0,0 +1,153 @@
+package org.maram.bill.common.utils;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 记账短句模板（不可变）
+ *
+ * 把“打车25”“昨天早餐 12 元”这类短句拆成模板与槽位：日期（今天/昨天/前天/大前天、M月D日、YYYY-MM-DD）
+ * 替换为 {@link #DATE_SLOT}，唯一的金额替换为 {@link #AMOUNT_SLOT}，其余文本做全半角、大小写、空白与标点归一化；
+ * 货币符号（$ ¥ € £ 等）与减号保留在模板中，“咖啡$5”“咖啡¥5”“退款-30”“退款30”是不同的模板。
+ * 只有恰好一个金额、至多一个日期且模板中仍有实际内容的短句才能拆分，其它返回 null。
+ */
+public final class UtteranceTemplate {
+
+    public static final String AMOUNT_SLOT = "{a}";
+    public static final String DATE_SLOT = "{d}";
+
+    private static final int MIN_CONTENT_CHARS = 2;
+
+    private static final Map<String, Integer> RELATIVE_DAYS = Map.of(
+            "大前天", -3, "前天", -2, "昨天", -1, "昨日", -1, "今天", 0, "今日", 0);
+    private static final Pattern RELATIVE_DATE = Pattern.compile("大前天|前天|昨天|昨日|今天|今日");
+    private static final Pattern FULL_DATE = Pattern.compile("(\\d{4})[-/.年](\\d{1,2})[-/.月](\\d{1,2})[日号]?");
+    private static final Pattern MONTH_DAY = Pattern.compile("(\\d{1,2})月(\\d{1,2})[日号]");
+    private static final Pattern AMOUNT = Pattern.compile("\\d+(?:\\.\\d{1,2})?");
+    // 货币符号与减号决定币种和收支方向，不能当作噪声去掉
+    private static final Pattern NOISE = Pattern.compile("[\\s\\p{P}\\p{S}&&[^{}\\p{Sc}\\p{Pd}]]+");
+
+    private final String template;
+    private final BigDecimal amount;
+    private final LocalDate date;
+    private final boolean dateGiven;
+
+    private UtteranceTemplate(String template, BigDecimal amount, LocalDate date, boolean dateGiven) {
+        this.template = template;
+        this.amount = amount;
+        this.date = date;
+        this.dateGiven = dateGiven;
+    }
+
+    /**
+     * 拆分短句
+     * @param text 用户原始消息
+     * @param today 当前日期，用于解析相对日期与缺省日期
+     * @param maxLength 归一化后允许的最大长度
+     * @return 模板，不可拆分时返回 null
+     */
+    public static UtteranceTemplate parse(String text, LocalDate today, int maxLength) {
+        if (text == null) {
+            return null;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty() || normalized.length() > maxLength) {
+            return null;
+        }
+
+        LocalDate date = null;
+        int dateSlots = 0;
+        StringBuilder buffer = new StringBuilder();
+        Matcher matcher = FULL_DATE.matcher(normalized);
+        while (matcher.find()) {
+            date = dateOf(Integer.parseInt(matcher.group(1)), matcher.group(2), matcher.group(3));
+            dateSlots++;
+            matcher.appendReplacement(buffer, Matcher.quoteReplacement(DATE_SLOT));
+        }
+        matcher.appendTail(buffer);
+        normalized = buffer.toString();
+
+        buffer.setLength(0);
+        matcher = MONTH_DAY.matcher(normalized);
+        while (matcher.find()) {
+            date = dateOf(today.getYear(), matcher.group(1), matcher.group(2));
+            dateSlots++;
+            matcher.appendReplacement(buffer, Matcher.quoteReplacement(DATE_SLOT));
+        }
+        matcher.appendTail(buffer);
+        normalized = buffer.toString();
+
+        buffer.setLength(0);
+        matcher = RELATIVE_DATE.matcher(normalized);
+        while (matcher.find()) {
+            date = today.plusDays(RELATIVE_DAYS.get(matcher.group()));
+            dateSlots++;
+            matcher.appendReplacement(buffer, Matcher.quoteReplacement(DATE_SLOT));
+        }
+        matcher.appendTail(buffer);
+        normalized = buffer.toString();
+
+        if (dateSlots > 1 || (dateSlots == 1 && date == null)) {
+            return null;
+        }
+
+        matcher = AMOUNT.matcher(normalized);
+        if (!matcher.find()) {
+            return null;
+        }
+        BigDecimal amount = new BigDecimal(matcher.group());
+        String withAmount = normalized.substring(0, matcher.start()) + AMOUNT_SLOT + normalized.substring(matcher.end());
+        if (matcher.find() || amount.signum() <= 0) {
+            return null;
+        }
+
+        String template = NOISE.matcher(withAmount).replaceAll("");
+        String content = template.replace(AMOUNT_SLOT, "").replace(DATE_SLOT, "");
+        if (content.codePointCount(0, content.length()) < MIN_CONTENT_CHARS) {
+            return null;
+        }
+        return new UtteranceTemplate(template, amount, dateSlots == 1 ? date : today, dateSlots == 1);
+    }
+
+    private static LocalDate dateOf(int year, String month, String day) {
+        try {
+            return LocalDate.of(year, Integer.parseInt(month), Integer.parseInt(day));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 归一化后的模板文本，例如“{d}早餐{a}元”
+     */
+    public String template() {
+        return template;
+    }
+
+    /**
+     * 金额槽位
+     */
+    public BigDecimal amount() {
+        return amount;
+    }
+
+    /**
+     * 日期槽位，短句未提及日期时为当前日期
+     */
+    public LocalDate date() {
+        return date;
+    }
+
+    /**
+     * 短句是否显式提及日期
+     */
+    public boolean dateGiven() {
+        return dateGiven;
+    }
+}
@@ -0,0 +1,71 @@
+package org.maram.bill.config.ai;
+
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.service.support.HashingEmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.redis.RedisVectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisPooled;
+
+/**
+ * 分类向量索引配置
+ *
+ * Spring AI 的 Redis 向量库自动配置依赖 JedisConnectionFactory，而应用使用 Lettuce，因此在这里显式创建。
+ * 向量模型可插拔：local 为本地确定性哈希向量，openai 复用 Spring AI 自动配置的向量模型。
+ * 索引维度由向量模型决定，更换模型时需要同时更换索引名。
+ */
+@Configuration
+@Slf4j
+@ConditionalOnProperty(prefix = "app.category-vector", name = "enabled", havingValue = "true")
+public class CategoryVectorConfig {
+
+    private static final String EMBEDDING_OPENAI = "openai";
+
+    @Bean(destroyMethod = "close")
+    public JedisPooled categoryVectorJedis(RedisProperties redisProperties) {
+        DefaultJedisClientConfig.Builder config = DefaultJedisClientConfig.builder()
+                .database(redisProperties.getDatabase());
+        if (StringUtils.hasText(redisProperties.getUsername())) {
+            config.user(redisProperties.getUsername());
+        }
+        if (StringUtils.hasText(redisProperties.getPassword())) {
+            config.password(redisProperties.getPassword());
+        }
+        return new JedisPooled(new HostAndPort(redisProperties.getHost(), redisProperties.getPort()), config.build());
+    }
+
+    @Bean
+    public RedisVectorStore categoryVectorStore(JedisPooled categoryVectorJedis,
+                                                ObjectProvider<EmbeddingModel> embeddingModels,
+                                                AppConfigProperties appConfigProperties) {
+        AppConfigProperties.CategoryVector properties = appConfigProperties.getCategoryVector();
+        EmbeddingModel embeddingModel;
+        if (EMBEDDING_OPENAI.equalsIgnoreCase(properties.getEmbedding())) {
+            embeddingModel = embeddingModels.getIfAvailable();
+            if (embeddingModel == null) {
+                throw new IllegalStateException("app.category-vector.embedding=openai 但未配置向量模型");
+            }
+        } else {
+            embeddingModel = new HashingEmbeddingModel(properties.getDimensions());
+        }
+        log.info("初始化分类向量索引: index={}, embedding={}, 维度={}",
+                properties.getIndexName(), properties.getEmbedding(), embeddingModel.dimensions());
+        return RedisVectorStore.builder(categoryVectorJedis, embeddingModel)
+                .indexName(properties.getIndexName())
+                .prefix(properties.getPrefix())
+                .metadataFields(
+                        RedisVectorStore.MetadataField.tag("owner"),
+                        RedisVectorStore.MetadataField.tag("categoryId"),
+                        RedisVectorStore.MetadataField.tag("kind"))
+                .initializeSchema(true)
+                .build();
+    }
+}
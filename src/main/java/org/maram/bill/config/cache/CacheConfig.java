@@ -1,8 +1,11 @@
 package org.maram.bill.config.cache;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.BillCategory;
+import org.maram.bill.service.support.CategoryCache;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,10 +13,12 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.List;
 
 /**
  * 缓存配置类
@@ -38,8 +43,15 @@ public class CacheConfig {
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jsonRedisSerializer))
                 .disableCachingNullValues();
 
+        // 通用序列化器不写入类型信息，反序列化得到的是 Map；分类缓存按 List<BillCategory> 显式指定类型
+        JavaType categoryListType = objectMapper.getTypeFactory().constructCollectionType(List.class, BillCategory.class);
+        RedisCacheConfiguration categoryCacheConfiguration = redisCacheConfiguration
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                        new Jackson2JsonRedisSerializer<>(objectMapper, categoryListType)));
+
         return RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(redisCacheConfiguration)
+                .withCacheConfiguration(CategoryCache.CACHE_NAME, categoryCacheConfiguration)
                 .build();
     }
 }
@@ -0,0 +1,25 @@
+package org.maram.bill.config.persistence;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MyBatis Plus 插件配置
+ * 注册分页拦截器，使 selectPage 生成真正的 LIMIT / COUNT 语句
+ */
+@Configuration
+public class MybatisPlusConfig {
+
+    @Bean
+    public MybatisPlusInterceptor mybatisPlusInterceptor(AppConfigProperties appConfigProperties) {
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        PaginationInnerInterceptor paginationInterceptor = new PaginationInnerInterceptor(DbType.MYSQL);
+        paginationInterceptor.setMaxLimit((long) appConfigProperties.getPagination().getMaxSize());
+        interceptor.addInnerInterceptor(paginationInterceptor);
+        return interceptor;
+    }
+}
@@ -14,6 +14,14 @@ public class AppConfigProperties {
     private Pagination pagination;
     private File file;
     private Cache cache;
+    private ChatContext chatContext = new ChatContext();
+    private ChatResponseCache chatResponseCache = new ChatResponseCache();
+    private Insight insight = new Insight();
+    private ColumnStore columnStore = new ColumnStore();
+    private Notification notification = new Notification();
+    private Forecast forecast = new Forecast();
+    private Classifier classifier = new Classifier();
+    private CategoryVector categoryVector = new CategoryVector();
 
     @Data
     public static class Pagination {
@@ -31,4 +39,85 @@ public class AppConfigProperties {
     public static class Cache {
         private long expireSeconds;
     }
+
+    @Data
+    public static class ChatContext {
+        private boolean nearCacheEnabled = true;
+        private long nearCacheMaxSize = 10000;
+        private long nearCacheTtlSeconds = 60;
+        private String invalidationChannel = "chat:context:invalidate";
+        private int logBatchSize = 100;
+        private long logFlushIntervalMs = 500;
+        private int logQueueCapacity = 10000;
+    }
+
+    @Data
+    public static class ChatResponseCache {
+        private boolean enabled = true;
+        private long ttlHours = 168;
+        private int maxUtteranceLength = 40;
+    }
+
+    @Data
+    public static class Insight {
+        private boolean cacheEnabled = true;
+        private long cacheTtlHours = 24;
+        private boolean precomputeEnabled = true;
+        private int precomputeActiveDays = 7;
+        private int precomputeConcurrency = 2;
+        private long precomputeMinIntervalMs = 500;
+    }
+
+    @Data
+    public static class ColumnStore {
+        private boolean enabled = false;
+        private long memoryBudgetMb = 64;
+        private int minBills = 2000;
+    }
+
+    @Data
+    public static class Notification {
+        private boolean enabled = true;
+        private String sender = "log";
+        private int batchSize = 100;
+        private int maxAttempts = 5;
+        private long retryBaseSeconds = 30;
+        private long leaseSeconds = 120;
+        private int userThrottleLimit = 5;
+        private long userThrottleWindowMinutes = 60;
+        private String wechatTemplateId;
+        private String wechatPage;
+    }
+
+    @Data
+    public static class Forecast {
+        private boolean enabled = true;
+        private int historyDays = 112;
+        private int minHistoryDays = 28;
+        private long cacheMaxSize = 10000;
+        private int precomputeActiveDays = 7;
+    }
+
+    @Data
+    public static class Classifier {
+        private boolean enabled = true;
+        private int minDocuments = 20;
+        private double minConfidence = 0.6;
+        private int foldBatchUsers = 200;
+        private long cacheMaxSize = 10000;
+    }
+
+    @Data
+    public static class CategoryVector {
+        private boolean enabled = false;
+        private String embedding = "local";
+        private int dimensions = 256;
+        private String indexName = "bill-category-idx";
+        private String prefix = "bill-category:";
+        private int topK = 5;
+        private double similarityThreshold = 0.6;
+        private int samplesPerCategory = 20;
+        private int maxSamples = 2000;
+        private long sampleRefreshHours = 24;
+    }
 }
@@ -9,4 +9,10 @@ import org.springframework.context.annotation.Configuration;
 @Data
 public class SchedulerProperties {
     private String updateExchangeRatesCron;
+    private String syncExchangeRatesCron;
+    private String rebuildBillRollupCron;
+    private String precomputeInsightsCron;
+    private String dispatchNotificationsCron;
+    private String precomputeForecastsCron;
+    private String foldClassifierDeltasCron;
 }
\ No newline at end of file
@@ -2,11 +2,19 @@ package org.maram.bill.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.maram.bill.common.security.UserContext;
+import org.maram.bill.common.utils.Result;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.ChatMessage;
 import org.maram.bill.service.AIOrchestrationService;
+import org.maram.bill.service.ChatContextService;
+import org.maram.bill.service.support.ChatResponseCache;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import reactor.core.publisher.Flux;
 
+import java.util.List;
+
 /**
  * AI总控制器，负责接收聊天请求并委派给AI编排服务处理。
  *
@@ -22,6 +30,9 @@ public class AIOChatController {
     
     private final AIOrchestrationService aiOrchestrationService;
     private final UserContext userContext;
+    private final ChatContextService chatContextService;
+    private final AppConfigProperties appConfigProperties;
+    private final ChatResponseCache chatResponseCache;
 
     /**
      * 处理聊天请求，支持文本和文件上传。
@@ -37,4 +48,37 @@ public class AIOChatController {
         String openid = userContext.currentOpenid().orElse(null);
         return aiOrchestrationService.chatWithAi(userTextMessage, files, openid);
     }
+
+    /**
+     * 分页查询当前用户的聊天历史（游标分页，新消息在前）。
+     *
+     * @param beforeId 游标：上一页最后一条消息的ID，首次查询不传
+     * @param size     每页条数
+     * @return 聊天消息列表
+     */
+    @GetMapping("/messages/history")
+    public Result<List<ChatMessage>> history(
+            @RequestParam(value = "beforeId", required = false) Long beforeId,
+            @RequestParam(value = "size", required = false) Integer size) {
+        String openid = userContext.currentOpenid().orElse(null);
+        if (openid == null) {
+            return Result.unauthorized("无法获取用户信息，请重新登录");
+        }
+        int pageSize = (size == null || size <= 0)
+                ? appConfigProperties.getPagination().getDefaultSize()
+                : Math.min(size, appConfigProperties.getPagination().getMaxSize());
+        log.info("用户 [{}] 查询聊天历史: beforeId={}, size={}", openid, beforeId, pageSize);
+        return Result.success(chatContextService.getHistory(openid, beforeId, pageSize));
+    }
+
+    /**
+     * 查询记账短句缓存的命中率与节省的大模型调用次数（全局统计，仅限管理员）。
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/messages/cache-stats")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ADMIN')")
+    public Result<ChatResponseCache.Stats> cacheStats() {
+        return Result.success(chatResponseCache.stats());
+    }
 }
@@ -2,9 +2,13 @@ package org.maram.bill.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.constants.PromptTemplates;
 import org.maram.bill.common.security.UserContext;
+import org.maram.bill.common.utils.Result;
 import org.maram.bill.config.ai.ChatConfig;
 import org.maram.bill.service.AiInsightService;
+import org.maram.bill.service.AiInsightSnapshotService;
+import org.maram.bill.service.support.InsightResultCache;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
@@ -30,22 +34,8 @@ public class AiInsightController {
     private final ChatConfig chatConfig;
     private final AiInsightService aiInsightService;
     private final UserContext userContext;
-
-    // AI洞察系统提示词
-    private static final String INSIGHT_SYSTEM_PROMPT = """
-            你是一位专业的财务顾问AI助手，名字叫'小咩'。你的任务是基于用户提供的财务数据，提供专业、实用、个性化的财务建议和洞察分析。
-
-            请遵循以下原则：
-            1. 语言风格要友好、专业，适当使用emoji让内容更生动
-            2. 重点关注预算管理、支出优化、财务健康度
-            3. 如果发现超预算风险，要及时提醒并给出具体建议
-            4. 分析支出结构，指出可能的优化空间
-            5. 根据历史数据给出未来的财务规划建议
-            6. 保持积极正面的态度，即使财务状况不佳也要给出建设性建议
-            7. 回答要结构清晰，分点说明，便于阅读
-
-            请基于用户提供的财务数据，给出详细的分析和建议。
-            """;
+    private final InsightResultCache insightResultCache;
+    private final AiInsightSnapshotService aiInsightSnapshotService;
 
     /**
      * 获取月度财务洞察
@@ -100,44 +90,71 @@ public class AiInsightController {
             // 创建ChatClient
             ChatClient chatClient = buildChatClient(userAiConfig);
 
-            // 生成财务数据摘要
-            String financialSummary;
-            switch (period.toLowerCase()) {
-                case "monthly":
-                    financialSummary = aiInsightService.generateMonthlyInsight(identity.userId(), targetDate);
-                    break;
-                case "quarterly":
-                    financialSummary = aiInsightService.generateQuarterlyInsight(identity.userId(), targetDate);
-                    break;
-                case "yearly":
-                    financialSummary = aiInsightService.generateYearlyInsight(identity.userId(), targetDate);
-                    break;
-                default:
-                    return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "不支持的分析周期"));
+            // 计算财务指标（先读取数据版本号，再读取数据）
+            InsightResultCache.Version dataVersion = insightResultCache.version(identity.userId());
+            AiInsightService.InsightMetrics metrics = aiInsightService.computeMetrics(identity.userId(), period, targetDate);
+
+            // 数据与模型均未变化时直接回放缓存结果
+            String cacheKey = insightResultCache.buildKey(identity.userId(), dataVersion, metrics, userAiConfig.getModel());
+            String cached = insightResultCache.get(cacheKey);
+            if (cached != null) {
+                log.info("用户 [{}]: 命中{}洞察缓存", identity.openid(), period);
+                return Flux.just(cached);
+            }
+            String snapshot = aiInsightSnapshotService.findFresh(identity.userId(), dataVersion, metrics, userAiConfig.getModel());
+            if (snapshot != null) {
+                log.info("用户 [{}]: 命中{}洞察预计算快照", identity.openid(), period);
+                insightResultCache.put(cacheKey, snapshot);
+                return Flux.just(snapshot);
             }
 
+            String financialSummary = aiInsightService.renderPrompt(metrics);
             log.debug("用户 [{}] 财务数据摘要生成完成，开始AI分析", identity.openid());
 
-            // 调用AI进行分析
+            // 调用AI进行分析，完整生成后写入缓存
+            StringBuilder generated = new StringBuilder();
             return chatClient.prompt()
-                    .system(INSIGHT_SYSTEM_PROMPT)
+                    .system(PromptTemplates.System.INSIGHT_TEMPLATE)
                     .user(financialSummary)
                     .stream()
                     .content()
                     .doOnSubscribe(subscription -> log.info("用户 [{}]: AI洞察分析开始", identity.openid()))
+                    .doOnNext(generated::append)
                     .doOnError(error -> log.error("用户 [{}]: AI洞察分析发生错误", identity.openid(), error))
-                    .doOnComplete(() -> log.info("用户 [{}]: AI洞察分析完成", identity.openid()))
+                    .doOnComplete(() -> {
+                        insightResultCache.put(cacheKey, generated.toString());
+                        log.info("用户 [{}]: AI洞察分析完成", identity.openid());
+                    })
                     .onErrorResume(e -> {
                         log.error("用户 [{}]: AI洞察分析失败", identity.openid(), e);
                         return Flux.just("{\"error\":\"咩～小咩的大脑暂时转不动了，请稍后再试试吧！😅\"}");
                     });
 
+        } catch (IllegalArgumentException e) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "不支持的分析周期"));
         } catch (Exception e) {
             log.error("用户 [{}]: 生成AI洞察时发生未知错误", identity.openid(), e);
             return Flux.just("{\"error\":\"哎呀，系统出了点小问题，小咩正在努力修复中！🔧\"}");
         }
     }
 
+    /**
+     * 获取结构化财务指标（无需调用 AI，供账单汇总页直接展示）
+     *
+     * @param period 周期: monthly / quarterly / yearly
+     * @param targetDate 周期内的任意日期（可选，默认当前日期）
+     */
+    @GetMapping("/metrics/{period}")
+    public Result<AiInsightService.InsightMetrics> getInsightMetrics(
+            @PathVariable String period,
+            @RequestParam(value = "date", required = false)
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate targetDate) {
+
+        return userContext.currentUserId()
+                .map(userId -> Result.success(aiInsightService.computeMetrics(userId, period, targetDate)))
+                .orElseGet(() -> Result.unauthorized("无法获取用户信息，请重新登录"));
+    }
+
     /**
      * 获取财务数据摘要（用于调试）
      */
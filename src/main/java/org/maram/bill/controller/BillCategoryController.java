@@ -7,10 +7,13 @@ import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.maram.bill.entity.BillCategory;
+import org.maram.bill.entity.CategoryKeyword;
 import org.maram.bill.service.BillCategoryMatchingService;
 import org.maram.bill.service.BillCategoryService;
+import org.maram.bill.service.CategoryKeywordService;
 import org.maram.bill.common.security.UserContext;
 import org.maram.bill.common.utils.Result;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -24,8 +27,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class BillCategoryController {
 
+    private static final int MAX_EVALUATION_SAMPLES = 2000;
+
     private final BillCategoryService billCategoryService;
     private final BillCategoryMatchingService categoryMatchingService;
+    private final CategoryKeywordService categoryKeywordService;
     private final UserContext userContext;
 
     /**
@@ -167,6 +173,54 @@ public class BillCategoryController {
         return withUser(userId -> Result.success(categoryMatchingService.getAvailableCategoryNames(userId)));
     }
 
+    /**
+     * 查询分类的匹配关键词
+     */
+    @GetMapping("/{id}/keywords")
+    public Result<List<CategoryKeyword>> listKeywords(@PathVariable Long id) {
+        return withCategory(id, (userId, category) -> Result.success(categoryKeywordService.listByCategory(id, userId)));
+    }
+
+    /**
+     * 为分类添加匹配关键词
+     */
+    @PostMapping("/{id}/keywords")
+    public Result<CategoryKeyword> addKeyword(@PathVariable Long id, @Valid @RequestBody CategoryKeyword keyword) {
+        return withCategory(id, (userId, category) -> {
+            log.info("用户ID: {} 为账单分类ID: {} 添加关键词: {}", userId, id, keyword.getKeyword());
+            CategoryKeyword saved = categoryKeywordService.add(id, userId, keyword);
+            if (saved == null) {
+                return Result.error("关键词已存在");
+            }
+            return Result.success("新增成功", saved);
+        });
+    }
+
+    /**
+     * 删除分类的匹配关键词
+     */
+    @DeleteMapping("/{id}/keywords/{keywordId}")
+    public Result<Boolean> removeKeyword(@PathVariable Long id, @PathVariable Long keywordId) {
+        return withCategory(id, (userId, category) -> {
+            log.info("用户ID: {} 删除账单分类ID: {} 的关键词ID: {}", userId, id, keywordId);
+            if (categoryKeywordService.remove(id, keywordId, userId)) {
+                return Result.success("删除成功");
+            }
+            return Result.error("关键词不存在或无权删除");
+        });
+    }
+
+    /**
+     * 用最近已分类的账单评估关键词匹配与向量匹配的召回率和耗时（逐条检索开销大，仅限管理员）
+     */
+    @GetMapping("/match-evaluation")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN', 'ADMIN')")
+    public Result<BillCategoryMatchingService.MatchEvaluation> evaluateMatching(
+            @RequestParam(value = "sampleSize", defaultValue = "200") Integer sampleSize) {
+        int size = Math.max(1, Math.min(sampleSize, MAX_EVALUATION_SAMPLES));
+        return withUser(userId -> Result.success(categoryMatchingService.evaluate(userId, size)));
+    }
+
     private <T> Result<T> withUser(Function<Long, Result<T>> action) {
         return userContext.currentUserId()
                 .map(action)
@@ -1,6 +1,7 @@
 package org.maram.bill.controller;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
@@ -8,15 +9,35 @@ import java.util.function.BiFunction;
 import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.enums.ExportFormat;
+import org.maram.bill.common.enums.SeriesGranularity;
 import org.maram.bill.common.security.UserContext;
 import org.maram.bill.config.properties.AppConfigProperties;
 import org.maram.bill.entity.Bill;
+import org.maram.bill.service.BillExportService;
+import org.maram.bill.service.BillImportService;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.BillSeriesService;
 import org.maram.bill.service.BillService;
+import org.maram.bill.service.ExchangeRateService;
+import org.maram.bill.service.support.ExchangeRateIndex;
+import org.maram.bill.service.support.CategoryVersion;
+import org.maram.bill.service.support.UserDataVersion;
+import org.maram.bill.common.utils.CursorPage;
 import org.maram.bill.common.utils.Result;
 import org.maram.bill.common.utils.ResultCode;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +48,17 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class BillController {
 
+    private static final long EXPORT_TIMEOUT_MS = 300_000L;
+
     private final BillService billService;
+    private final BillExportService billExportService;
+    private final BillImportService billImportService;
+    private final BillSeriesService billSeriesService;
+    private final BillRollupService billRollupService;
+    private final ExchangeRateService exchangeRateService;
+    private final UserDataVersion userDataVersion;
+    private final CategoryVersion categoryVersion;
+    private final ExchangeRateIndex exchangeRateIndex;
     private final AppConfigProperties appConfigProperties;
     private final UserContext userContext;
 
@@ -38,15 +69,19 @@ public class BillController {
      * @return 账单信息
      */
     @GetMapping("/{id}")
-    public Result<Bill> getById(@PathVariable Long id) {
+    public Result<Bill> getById(@PathVariable Long id,
+                                @RequestParam(required = false) String displayCurrency) {
         return withBill(id, (userId, bill) -> {
             log.info("用户 {} 查询账单 {}", userId, id);
+            exchangeRateService.applyDisplayCurrency(List.of(bill), displayCurrency);
             return Result.success(bill);
         });
     }
 
     /**
      * 查询当前用户的账单
+     *
+     * @param displayCurrency 展示货币（可选），指定时每条账单附带折算后的 displayAmount
      */
     @GetMapping
     public Result<?> query(
@@ -56,7 +91,8 @@ public class BillController {
             @RequestParam(required = false) String billType,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String displayCurrency) {
 
         return withUser(userId -> {
             if (current == null && size == null) {
@@ -79,6 +115,7 @@ public class BillController {
                     bills = billService.listByUserId(userId);
                 }
 
+                exchangeRateService.applyDisplayCurrency(bills, displayCurrency);
                 return Result.success(bills);
             }
 
@@ -95,10 +132,172 @@ public class BillController {
 
             Page<Bill> pageRequest = new Page<>(pageNum, pageSize);
             Page<Bill> billPage = billService.pageUserBills(pageRequest, userId, transactionType, billType, categoryId, startDate, endDate);
+            exchangeRateService.applyDisplayCurrency(billPage.getRecords(), displayCurrency);
             return Result.success(billPage);
         });
     }
 
+    /**
+     * 游标分页查询当前用户的账单（适用于小程序无限滚动）
+     *
+     * @param cursor    上一页返回的 nextCursor，首页不传
+     * @param size      每页条数
+     * @param withTotal 是否在首页返回总数
+     * @param displayCurrency 展示货币（可选），指定时每条账单附带折算后的 displayAmount
+     */
+    @GetMapping("/cursor")
+    public Result<CursorPage<Bill>> scroll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String transactionType,
+            @RequestParam(required = false) String billType,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            @RequestParam(required = false) String displayCurrency) {
+
+        return withUser(userId -> {
+            int pageSize = (size == null || size <= 0)
+                    ? appConfigProperties.getPagination().getDefaultSize()
+                    : Math.min(size, appConfigProperties.getPagination().getMaxSize());
+
+            log.info("游标查询用户 {} 的账单: cursor={}, size={}, withTotal={}", userId, cursor, pageSize, withTotal);
+            CursorPage<Bill> page = billService.scrollUserBills(userId, cursor, pageSize, transactionType, billType,
+                    categoryId, startDate, endDate, withTotal);
+            exchangeRateService.applyDisplayCurrency(page.getRecords(), displayCurrency);
+            return Result.success(page);
+        });
+    }
+
+    /**
+     * 流式导出当前用户的账单（CSV / NDJSON / XLSX），内存占用与账单数量无关
+     *
+     * @param format    导出格式: csv（默认）、ndjson、xlsx
+     * @param startDate 开始日期 (yyyy-MM-dd，可选)
+     * @param endDate   结束日期 (yyyy-MM-dd，可选)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            HttpServletRequest request) {
+
+        // 用户身份需在请求线程中解析，流式写出阶段运行在异步线程中
+        Long userId = userContext.currentUserId().orElse(null);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = StringUtils.hasText(startDate) ? LocalDate.parse(startDate) : null;
+            end = StringUtils.hasText(endDate) ? LocalDate.parse(endDate) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式错误，请使用 yyyy-MM-dd 格式");
+        }
+
+        log.info("用户 {} 导出账单: 格式={}, 日期范围: {} 到 {}", userId, exportFormat, start, end);
+
+        // 大量账单的导出可能超过全局异步超时，只为导出请求单独放宽
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(EXPORT_TIMEOUT_MS);
+        StreamingResponseBody body = out -> billExportService.export(userId, start, end, exportFormat, out);
+        String fileName = "bills-" + LocalDate.now() + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
+    }
+
+    /**
+     * 查询补零后的金额时间序列（按交易类型、分类拆分），用于汇总页图表
+     * 响应带弱 ETag（由用户数据版本与查询参数计算），数据未变化时返回 304
+     *
+     * @param granularity 粒度: day（默认）/ week / month
+     * @param startDate   开始日期 (yyyy-MM-dd，默认结束日期前 29 天)
+     * @param endDate     结束日期 (yyyy-MM-dd，默认今天)
+     * @param displayCurrency 展示货币（可选），指定时各币种金额折算后再汇总
+     */
+    @GetMapping("/series")
+    public ResponseEntity<Result<BillSeriesService.SpendingSeries>> series(
+            @RequestParam(required = false) String granularity,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String transactionType,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String displayCurrency,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        Long userId = userContext.currentUserId().orElse(null);
+        if (userId == null) {
+            return ResponseEntity.ok(Result.unauthorized("无法获取用户信息，请重新登录"));
+        }
+
+        SeriesGranularity seriesGranularity = SeriesGranularity.fromValue(granularity);
+        LocalDate end;
+        LocalDate start;
+        try {
+            end = StringUtils.hasText(endDate) ? LocalDate.parse(endDate) : LocalDate.now();
+            start = StringUtils.hasText(startDate) ? LocalDate.parse(startDate) : end.minusDays(29);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式错误，请使用 yyyy-MM-dd 格式");
+        }
+        String type = StringUtils.hasText(transactionType) ? transactionType : null;
+        String currency = exchangeRateService.resolveDisplayCurrency(displayCurrency);
+        // 折算结果随汇率变化，ETag 同时带上汇率快照版本
+        long rateVersion = currency != null ? exchangeRateIndex.current().version() : 0L;
+
+        // 序列中带有分类名称，分类改名或删除后同样需要换 ETag；汇总表回填前后的数据来源不同，回填状态也计入 ETag
+        String etag = null;
+        boolean rollupBuilt = billRollupService.isBuilt();
+        long dataVersion = userDataVersion.current(userId);
+        CategoryVersion.Stamp categoryStamp = categoryVersion.current(userId);
+        if (dataVersion >= 0 && categoryStamp.isValid() && rateVersion >= 0) {
+            String fingerprint = String.join("|", String.valueOf(userId), String.valueOf(dataVersion),
+                    String.valueOf(categoryStamp.user()), String.valueOf(categoryStamp.system()),
+                    seriesGranularity.getValue(), start.toString(), end.toString(), String.valueOf(type), String.valueOf(categoryId),
+                    String.valueOf(currency), String.valueOf(rateVersion), String.valueOf(rollupBuilt));
+            etag = "W/\"" + Integer.toHexString(fingerprint.hashCode()) + "-" + dataVersion + "\"";
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        BillSeriesService.SpendingSeries result = billSeriesService.getSeries(userId, start, end, seriesGranularity, type,
+                categoryId, currency);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate());
+        if (etag != null) {
+            builder.eTag(etag);
+        }
+        return builder.body(Result.success(result));
+    }
+
+    /**
+     * 批量导入账单（CSV，UTF-8），逐行校验、分块批量写入
+     * 表头兼容 /bill/export 导出的中文列名，单行错误不影响其他行
+     *
+     * @param file CSV 文件
+     * @return 导入结果，包含成功/失败行数、逐行错误与吞吐量
+     */
+    @PostMapping("/import")
+    public Result<BillImportService.ImportResult> importBills(@RequestParam("file") MultipartFile file) {
+        return withUser(userId -> {
+            if (file == null || file.isEmpty()) {
+                return Result.badRequest("导入文件不能为空");
+            }
+            log.info("用户 {} 导入账单: 文件={}, 大小={} 字节", userId, file.getOriginalFilename(), file.getSize());
+            try {
+                return Result.success(billImportService.importCsv(userId, file.getInputStream()));
+            } catch (IOException e) {
+                log.error("读取导入文件失败", e);
+                return Result.error(ResultCode.FILE_UPLOAD_FAILED);
+            }
+        });
+    }
+
     /**
      * 保存账单
      *
@@ -109,6 +308,8 @@ public class BillController {
     public Result<Map<String, String>> save(@Valid @RequestBody Bill bill) {
         return withUser(userId -> {
             bill.setUserId(userId);
+            // 手动保存时分类由用户在表单中选择
+            bill.setCategoryConfirmed(bill.getCategoryId() != null);
 
             if (bill.getFileId() != null) {
                 Bill existingBillWithFileId = billService.getByFileId(bill.getFileId());
@@ -139,6 +340,10 @@ public class BillController {
         bill.setId(id);
         return withBill(id, (userId, currentBill) -> {
             bill.setUserId(userId);
+            // 用户改动了分类即为确认；原样提交未确认的自动分类不算确认
+            bill.setCategoryConfirmed(bill.getCategoryId() != null
+                    && (!bill.getCategoryId().equals(currentBill.getCategoryId())
+                    || Boolean.TRUE.equals(currentBill.getCategoryConfirmed())));
 
             if (bill.getFileId() != null) {
                 if (!bill.getFileId().equals(currentBill.getFileId())) {
@@ -19,6 +19,8 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class ExchangeRateController {
 
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final ExchangeRateService exchangeRateService;
 
     @GetMapping("/currencies")
@@ -63,4 +65,25 @@ public class ExchangeRateController {
             return Result.error(ResultCode.EXCHANGE_RATE_SERVICE_ERROR, Map.of("error", "货币转换失败，请稍后重试"));
         }
     }
+
+    /**
+     * 批量转换：所有金额基于同一份汇率快照，一次请求完成一页账单的换算
+     */
+    @PostMapping("/conversions/batch")
+    public Result<List<Map<String, Object>>> convertCurrencyBatch(
+            @RequestBody List<ExchangeRateService.ConversionRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return Result.error(ResultCode.BAD_REQUEST.getCode(), "转换请求不能为空");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            return Result.error(ResultCode.BAD_REQUEST.getCode(), "单次最多转换 " + MAX_BATCH_SIZE + " 条");
+        }
+        try {
+            log.info("收到批量货币转换请求: 条数={}", requests.size());
+            return Result.success(exchangeRateService.convertBatchUsingStoredRates(requests));
+        } catch (RuntimeException e) {
+            log.error("批量货币转换时发生错误: 条数={}", requests.size(), e);
+            return Result.error(ResultCode.EXCHANGE_RATE_SERVICE_ERROR);
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package org.maram.bill.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * AI 洞察预计算快照实体类
+ * 每个 (用户, 周期, 开始日期, 模型) 只保留最新一份结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("ai_insight_snapshot")
+public class AiInsightSnapshot {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id; // 主键
+
+    @TableField("user_id")
+    private Long userId; // 用户ID
+
+    @TableField("period")
+    private String period; // 周期类型（MONTHLY/QUARTERLY/YEARLY）
+
+    @TableField("start_date")
+    private LocalDate startDate; // 周期开始日期
+
+    @TableField("end_date")
+    private LocalDate endDate; // 周期结束日期
+
+    @TableField("model")
+    private String model; // 生成所用模型
+
+    @TableField("data_version")
+    private Long dataVersion; // 生成时的用户数据版本
+
+    @TableField("category_version")
+    private String categoryVersion; // 生成时的分类版本（用户版本.系统版本）
+
+    @TableField("content")
+    private String content; // 洞察内容
+
+    @TableField("generated_at")
+    private LocalDateTime generatedAt; // 生成时间
+}
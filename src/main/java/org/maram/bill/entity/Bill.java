@@ -13,6 +13,7 @@ import jakarta.validation.constraints.Positive;
 import org.maram.bill.common.validation.ValidTransactionType;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -43,6 +44,9 @@ public class Bill {
     @TableField("category_id")
     private Long categoryId; // 分类ID
 
+    @TableField("category_confirmed")
+    private Boolean categoryConfirmed; // 分类是否经用户确认（手动选择或修正），只有确认过的分类用于训练分类器
+
     // --- 票据基本信息 ---
     @TableField("name")
     private String name; // 账单名称/摘要 (用户可定义或OCR提取)
@@ -103,4 +107,12 @@ public class Bill {
     // --- 关联实体（非数据库字段）---
     @TableField(exist = false)
     private BillCategory category; // 分类信息（用于联表查询）
+
+    @TableField(exist = false)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private BigDecimal displayAmount; // 折算到展示货币的总金额（按需填充）
+
+    @TableField(exist = false)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String displayCurrency; // 展示货币代码（按需填充）
 }
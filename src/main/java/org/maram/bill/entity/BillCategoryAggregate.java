@@ -0,0 +1,24 @@
+package org.maram.bill.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 按交易类型与分类聚合的账单统计结果（查询结果对象，不对应数据库表）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillCategoryAggregate {
+
+    private String transactionType; // 交易类型
+
+    private Long categoryId; // 分类ID，未分类为 0
+
+    private String categoryName; // 分类名称，未分类或分类已删除时为空
+
+    private Long totalCents; // 金额合计（分）
+
+    private Long billCount; // 账单数量
+}
@@ -0,0 +1,47 @@
+package org.maram.bill.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 账单按日汇总实体类
+ * 主键为 (user_id, day, category_id, transaction_type, currency)，随账单增删改增量维护。
+ * 未分类账单的 category_id 记为 0，未填写币种的 currency 记为空串。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("bill_daily_rollup")
+public class BillDailyRollup {
+
+    public static final long UNCATEGORIZED_ID = 0L;
+    public static final String UNKNOWN_CURRENCY = "";
+
+    @TableField("user_id")
+    private Long userId; // 用户ID
+
+    @TableField("day")
+    private LocalDate day; // 账单日期（issue_date）
+
+    @TableField("category_id")
+    private Long categoryId; // 分类ID，未分类为 0
+
+    @TableField("transaction_type")
+    private String transactionType; // 交易类型
+
+    @TableField("currency")
+    private String currency; // 币种，未填写为空串
+
+    @TableField("sum_cents")
+    private Long sumCents; // 金额合计（分）
+
+    @TableField("bill_count")
+    private Integer billCount; // 账单数量
+}
@@ -0,0 +1,18 @@
+package org.maram.bill.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 预算已用金额（查询结果对象，不对应数据库表）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetUsage {
+
+    private Long budgetId; // 预算ID
+
+    private Long usedCents; // 预算周期内的支出合计（分）
+}
@@ -0,0 +1,38 @@
+package org.maram.bill.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户分类器模型实体类
+ * 保存按用户学习的朴素贝叶斯计数表（压缩后的二进制）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("category_classifier")
+public class CategoryClassifier {
+
+    @TableId("user_id")
+    private Long userId; // 用户ID
+
+    @TableField("model")
+    private byte[] model; // 模型数据
+
+    @TableField("document_count")
+    private Integer documentCount; // 已学习的账单数
+
+    @TableField("version")
+    private Long version; // 模型版本，每次写入递增
+
+    @TableField("update_time")
+    private LocalDateTime updateTime; // 更新时间
+}
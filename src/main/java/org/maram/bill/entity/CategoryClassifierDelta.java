@@ -0,0 +1,45 @@
+package org.maram.bill.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分类器待合并样本实体类
+ * 与账单写入在同一事务内追加，由后台任务按用户合并进模型后删除
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("category_classifier_delta")
+public class CategoryClassifierDelta {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id; // 主键
+
+    @TableField("user_id")
+    private Long userId; // 用户ID
+
+    @TableField("category_id")
+    private Long categoryId; // 样本分类ID
+
+    @TableField("sign")
+    private Integer sign; // 1 为学习，-1 为撤销
+
+    @TableField("name")
+    private String name; // 账单名称
+
+    @TableField("supplier_name")
+    private String supplierName; // 供应商名称
+
+    @TableField("bill_type")
+    private String billType; // 账单类型
+
+    @TableField("create_time")
+    private LocalDateTime createTime; // 创建时间
+}
@@ -0,0 +1,51 @@
+package org.maram.bill.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分类关键词实体类
+ * 账单文本包含关键词时为对应分类加上 weight 分，用于分类智能匹配
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("category_keyword")
+public class CategoryKeyword {
+
+    public static final int DEFAULT_WEIGHT = 30;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id; // 主键ID
+
+    @TableField("user_id")
+    private Long userId; // 用户ID，NULL表示系统关键词
+
+    @TableField("category_id")
+    private Long categoryId; // 分类ID
+
+    @NotBlank(message = "关键词不能为空")
+    @Size(max = 50, message = "关键词长度不能超过50")
+    @TableField("keyword")
+    private String keyword; // 关键词
+
+    @Min(value = 1, message = "权重必须在1到100之间")
+    @Max(value = 100, message = "权重必须在1到100之间")
+    @TableField("weight")
+    private Integer weight; // 匹配权重
+
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime; // 创建时间
+}
@@ -0,0 +1,40 @@
+package org.maram.bill.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+
+/**
+ * 聊天消息持久化日志实体类（只追加）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("chat_message")
+public class ChatMessage {
+
+    public static final String ROLE_USER = "user";
+    public static final String ROLE_ASSISTANT = "assistant";
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id; // 主键
+
+    @TableField("conversation_id")
+    private String conversationId; // 对话ID（通常是openid）
+
+    @TableField("role")
+    private String role; // 消息角色: user / assistant
+
+    @TableField("content")
+    private String content; // 消息内容
+
+    @TableField("create_time")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime; // 消息产生时间（入队时记录，而非落库时间）
+}
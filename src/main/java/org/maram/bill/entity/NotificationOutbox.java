@@ -0,0 +1,61 @@
+package org.maram.bill.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 通知发件箱实体类
+ * 与触发通知的业务写入在同一事务内插入，由后台调度器异步投递
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("notification_outbox")
+public class NotificationOutbox {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id; // 主键
+
+    @TableField("user_id")
+    private Long userId; // 接收用户ID
+
+    @TableField("event_type")
+    private String eventType; // 事件类型
+
+    @TableField("dedupe_key")
+    private String dedupeKey; // 去重键
+
+    @TableField("payload")
+    private String payload; // 通知内容（JSON）
+
+    @TableField("status")
+    private String status; // 状态：PENDING/SENT/FAILED
+
+    @TableField("attempts")
+    private Integer attempts; // 已投递次数
+
+    @TableField("next_attempt_at")
+    private LocalDateTime nextAttemptAt; // 下次投递时间
+
+    @TableField("claim_token")
+    private String claimToken; // 认领本行的调度批次
+
+    @TableField("last_error")
+    private String lastError; // 最近一次投递错误
+
+    @TableField("create_time")
+    private LocalDateTime createTime; // 创建时间
+
+    @TableField("sent_time")
+    private LocalDateTime sentTime; // 投递成功时间
+}
@@ -1,6 +1,7 @@
 package org.maram.bill.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -45,6 +46,10 @@ public class UserBudget {
     @TableField("alert_threshold")
     private BigDecimal alertThreshold; // 预警阈值百分比(如80表示80%)
 
+    @JsonIgnore
+    @TableField(value = "used_cents", insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
+    private Long usedCents; // 已用金额计数器（分），随账单写入增量维护，NULL 表示尚未初始化
+
     @TableField(value = "create_time", fill = FieldFill.INSERT)
     private LocalDateTime createTime; // 创建时间
 
@@ -71,6 +76,12 @@ public class UserBudget {
     @TableField(exist = false)
     private Boolean isNearThreshold; // 是否接近预警阈值
 
+    @TableField(exist = false)
+    private BigDecimal projectedExpense; // 预计周期总支出（已用 + 剩余天数预测），仅进行中的预算有值
+
+    @TableField(exist = false)
+    private Boolean isProjectedOverBudget; // 按预测是否将超预算
+
     /**
      * 预算类型枚举
      */
@@ -0,0 +1,146 @@
+package org.maram.bill.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 简单封装微信小程序订阅消息接口，access_token 在进程内缓存到过期前一分钟。
+ */
+@Component
+@Slf4j
+public class WxSubscribeMessageClient {
+
+    private static final String WX_TOKEN_URL = "https://api.weixin.qq.com/cgi-bin/token";
+    private static final String WX_SUBSCRIBE_SEND_URL = "https://api.weixin.qq.com/cgi-bin/message/subscribe/send";
+    private static final long TOKEN_REFRESH_MARGIN_SECONDS = 60;
+    private static final int ERRCODE_INVALID_TOKEN = 40001;
+    private static final int ERRCODE_TOKEN_EXPIRED = 42001;
+    /**
+     * 用户未订阅该模板或已拒收（小程序需先调用 wx.requestSubscribeMessage）
+     */
+    public static final int ERRCODE_USER_REFUSED = 43101;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final String appid;
+    private final String secret;
+
+    private String accessToken;
+    private long accessTokenExpiresAt;
+
+    public WxSubscribeMessageClient(RestTemplateBuilder restTemplateBuilder,
+                                    ObjectMapper objectMapper,
+                                    @Value("${wechat.appid}") String appid,
+                                    @Value("${wechat.secret}") String secret) {
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofSeconds(5))
+                .setReadTimeout(Duration.ofSeconds(10))
+                .build();
+        this.objectMapper = objectMapper;
+        this.appid = appid;
+        this.secret = secret;
+    }
+
+    /**
+     * 发送订阅消息
+     * @param openid 接收者 openid
+     * @param templateId 模板ID
+     * @param page 点击消息跳转的小程序页面，可为空
+     * @param data 模板字段 -> 值
+     */
+    public void send(String openid, String templateId, String page, Map<String, String> data) {
+        if (!StringUtils.hasText(openid) || !StringUtils.hasText(templateId)) {
+            throw new IllegalArgumentException("openid 和模板ID不能为空");
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("touser", openid);
+        body.put("template_id", templateId);
+        if (StringUtils.hasText(page)) {
+            body.put("page", page);
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        data.forEach((key, value) -> fields.put(key, Map.of("value", value)));
+        body.put("data", fields);
+
+        String url = UriComponentsBuilder.fromHttpUrl(WX_SUBSCRIBE_SEND_URL)
+                .queryParam("access_token", getAccessToken())
+                .toUriString();
+        try {
+            JsonNode rootNode = objectMapper.readTree(restTemplate.postForObject(url, body, String.class));
+            int errcode = rootNode.path("errcode").asInt(0);
+            if (errcode != 0) {
+                if (errcode == ERRCODE_INVALID_TOKEN || errcode == ERRCODE_TOKEN_EXPIRED) {
+                    invalidateAccessToken();
+                }
+                String errmsg = rootNode.path("errmsg").asText("未知错误");
+                log.warn("微信订阅消息发送失败, errcode: {}, errmsg: {}", errcode, errmsg);
+                throw new SendException(errcode, "微信订阅消息发送失败: " + errcode + " " + errmsg);
+            }
+        } catch (RestClientException ex) {
+            throw new IllegalStateException("调用微信订阅消息接口失败", ex);
+        } catch (IOException ex) {
+            throw new IllegalStateException("解析微信订阅消息响应失败", ex);
+        }
+    }
+
+    private synchronized String getAccessToken() {
+        if (accessToken != null && System.currentTimeMillis() < accessTokenExpiresAt) {
+            return accessToken;
+        }
+        String url = UriComponentsBuilder.fromHttpUrl(WX_TOKEN_URL)
+                .queryParam("grant_type", "client_credential")
+                .queryParam("appid", appid)
+                .queryParam("secret", secret)
+                .toUriString();
+        try {
+            JsonNode rootNode = objectMapper.readTree(restTemplate.getForObject(url, String.class));
+            if (!rootNode.hasNonNull("access_token")) {
+                log.error("获取微信 access_token 失败: {}", rootNode);
+                throw new IllegalStateException("获取微信 access_token 失败");
+            }
+            long expiresIn = rootNode.path("expires_in").asLong(7200);
+            accessToken = rootNode.get("access_token").asText();
+            accessTokenExpiresAt = System.currentTimeMillis()
+                    + Math.max(0, expiresIn - TOKEN_REFRESH_MARGIN_SECONDS) * 1000;
+            return accessToken;
+        } catch (RestClientException ex) {
+            throw new IllegalStateException("调用微信 access_token 接口失败", ex);
+        } catch (IOException ex) {
+            throw new IllegalStateException("解析微信 access_token 响应失败", ex);
+        }
+    }
+
+    private synchronized void invalidateAccessToken() {
+        accessToken = null;
+    }
+
+    /**
+     * 微信接口返回非 0 errcode
+     */
+    public static class SendException extends IllegalStateException {
+
+        private final int errcode;
+
+        public SendException(int errcode, String message) {
+            super(message);
+            this.errcode = errcode;
+        }
+
+        public int getErrcode() {
+            return errcode;
+        }
+    }
+}
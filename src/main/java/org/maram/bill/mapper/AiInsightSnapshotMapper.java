@@ -0,0 +1,46 @@
+package org.maram.bill.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.maram.bill.entity.AiInsightSnapshot;
+
+import java.time.LocalDate;
+
+/**
+ * AI 洞察快照Mapper
+ */
+@Mapper
+public interface AiInsightSnapshotMapper extends BaseMapper<AiInsightSnapshot> {
+
+    /**
+     * 查询快照
+     * @param userId 用户ID
+     * @param period 周期类型
+     * @param startDate 周期开始日期
+     * @param model 模型名称
+     * @return 快照，不存在时为 null
+     */
+    @Select("SELECT * FROM ai_insight_snapshot WHERE user_id = #{userId} AND period = #{period} " +
+            "AND start_date = #{startDate} AND model = #{model}")
+    AiInsightSnapshot selectSnapshot(@Param("userId") Long userId,
+                                     @Param("period") String period,
+                                     @Param("startDate") LocalDate startDate,
+                                     @Param("model") String model);
+
+    /**
+     * 写入或覆盖快照
+     * @param snapshot 快照
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO ai_insight_snapshot (user_id, period, start_date, end_date, model, data_version, category_version, " +
+            "content, generated_at) " +
+            "VALUES (#{userId}, #{period}, #{startDate}, #{endDate}, #{model}, #{dataVersion}, #{categoryVersion}, " +
+            "#{content}, #{generatedAt}) " +
+            "ON DUPLICATE KEY UPDATE end_date = VALUES(end_date), data_version = VALUES(data_version), " +
+            "category_version = VALUES(category_version), " +
+            "content = VALUES(content), generated_at = VALUES(generated_at)")
+    int upsert(AiInsightSnapshot snapshot);
+}
@@ -22,6 +22,21 @@ public interface BillCategoryMapper extends BaseMapper<BillCategory> {
     @Select("SELECT * FROM bill_category WHERE (user_id = #{userId} OR user_id IS NULL) AND deleted = 0 ORDER BY sort_order")
     List<BillCategory> selectByUserId(@Param("userId") Long userId);
     
+    /**
+     * 查询用户自己创建的分类（不含系统分类）
+     * @param userId 用户ID
+     * @return 账单分类列表
+     */
+    @Select("SELECT * FROM bill_category WHERE user_id = #{userId} AND deleted = 0 ORDER BY sort_order")
+    List<BillCategory> selectOwnByUserId(@Param("userId") Long userId);
+
+    /**
+     * 查询所有用户共享的分类（user_id 为空）
+     * @return 账单分类列表
+     */
+    @Select("SELECT * FROM bill_category WHERE user_id IS NULL AND deleted = 0 ORDER BY sort_order")
+    List<BillCategory> selectSharedCategories();
+
     /**
      * 查询系统预设分类
      * @return 系统分类列表
@@ -0,0 +1,181 @@
+package org.maram.bill.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.maram.bill.entity.BillCategoryAggregate;
+import org.maram.bill.entity.BillDailyRollup;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 账单按日汇总Mapper
+ */
+@Mapper
+public interface BillDailyRollupMapper {
+
+    /**
+     * 批量累加增量（sum_cents / bill_count 可为负数），不存在的行自动插入
+     * @param deltas 增量列表
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO bill_daily_rollup (user_id, day, category_id, transaction_type, currency, sum_cents, bill_count) VALUES " +
+            "<foreach collection='deltas' item='d' separator=','>" +
+            "(#{d.userId}, #{d.day}, #{d.categoryId}, #{d.transactionType}, #{d.currency}, #{d.sumCents}, #{d.billCount})" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE sum_cents = sum_cents + VALUES(sum_cents), bill_count = bill_count + VALUES(bill_count)" +
+            "</script>")
+    int upsertDeltas(@Param("deltas") List<BillDailyRollup> deltas);
+
+    /**
+     * 删除用户的全部汇总行
+     * @param userId 用户ID
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM bill_daily_rollup WHERE user_id = #{userId}")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * 从 bill 表重新聚合用户的汇总行（调用前需先删除旧数据）
+     * @param userId 用户ID
+     * @return 插入行数
+     */
+    @Insert("INSERT INTO bill_daily_rollup (user_id, day, category_id, transaction_type, currency, sum_cents, bill_count) " +
+            "SELECT user_id, issue_date, COALESCE(category_id, 0), transaction_type, COALESCE(currency_code, ''), " +
+            "CAST(SUM(total_amount) * 100 AS SIGNED), COUNT(*) " +
+            "FROM bill WHERE user_id = #{userId} AND deleted = 0 AND issue_date IS NOT NULL " +
+            "GROUP BY user_id, issue_date, COALESCE(category_id, 0), transaction_type, COALESCE(currency_code, '')")
+    int rebuildByUserId(@Param("userId") Long userId);
+
+    /**
+     * 查询需要重建汇总的用户（有账单或已有汇总行）
+     * @return 用户ID列表
+     */
+    @Select("SELECT user_id FROM bill UNION SELECT user_id FROM bill_daily_rollup")
+    List<Long> selectRollupUserIds();
+
+    /**
+     * 按交易类型和分类聚合用户在日期范围内的金额与笔数，一次查询返回财务摘要所需的全部数据
+     * @param userId 用户ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @return 聚合结果
+     */
+    @Select("SELECT r.transaction_type, r.category_id, c.category_name, " +
+            "SUM(r.sum_cents) AS total_cents, SUM(r.bill_count) AS bill_count " +
+            "FROM bill_daily_rollup r " +
+            "LEFT JOIN bill_category c ON c.id = r.category_id AND c.deleted = 0 " +
+            "WHERE r.user_id = #{userId} AND r.day >= #{startDate} AND r.day <= #{endDate} " +
+            "GROUP BY r.transaction_type, r.category_id, c.category_name " +
+            "HAVING SUM(r.bill_count) > 0")
+    List<BillCategoryAggregate> selectCategoryAggregates(@Param("userId") Long userId,
+                                                         @Param("startDate") LocalDate startDate,
+                                                         @Param("endDate") LocalDate endDate);
+
+    /**
+     * 与 {@link #selectCategoryAggregates} 口径相同，直接聚合账单表，汇总表尚未回填完成时使用
+     * @param userId 用户ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @return 聚合结果
+     */
+    @Select("SELECT b.transaction_type, COALESCE(b.category_id, 0) AS category_id, c.category_name, " +
+            "CAST(SUM(b.total_amount) * 100 AS SIGNED) AS total_cents, COUNT(*) AS bill_count " +
+            "FROM bill b " +
+            "LEFT JOIN bill_category c ON c.id = b.category_id AND c.deleted = 0 " +
+            "WHERE b.user_id = #{userId} AND b.deleted = 0 AND b.issue_date >= #{startDate} AND b.issue_date <= #{endDate} " +
+            "GROUP BY b.transaction_type, COALESCE(b.category_id, 0), c.category_name")
+    List<BillCategoryAggregate> selectCategoryAggregatesFromBill(@Param("userId") Long userId,
+                                                                 @Param("startDate") LocalDate startDate,
+                                                                 @Param("endDate") LocalDate endDate);
+
+    /**
+     * 按日、交易类型、分类查询汇总（合并币种），用于时间序列图表
+     * @param userId 用户ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param transactionType 交易类型（可选）
+     * @param categoryId 分类ID（可选，0 表示未分类）
+     * @return 汇总行（currency 为空），按日期升序
+     */
+    @Select("<script>" +
+            "SELECT day, transaction_type, category_id, SUM(sum_cents) AS sum_cents, SUM(bill_count) AS bill_count " +
+            "FROM bill_daily_rollup WHERE user_id = #{userId} AND day &gt;= #{startDate} AND day &lt;= #{endDate} " +
+            "<if test='transactionType != null'>AND transaction_type = #{transactionType} </if>" +
+            "<if test='categoryId != null'>AND category_id = #{categoryId} </if>" +
+            "GROUP BY day, transaction_type, category_id " +
+            "HAVING SUM(bill_count) &gt; 0 " +
+            "ORDER BY day" +
+            "</script>")
+    List<BillDailyRollup> selectDailySeries(@Param("userId") Long userId,
+                                            @Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate,
+                                            @Param("transactionType") String transactionType,
+                                            @Param("categoryId") Long categoryId);
+
+    /**
+     * 按日、交易类型、分类、币种查询汇总，用于折算到展示货币的时间序列
+     * @param userId 用户ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param transactionType 交易类型（可选）
+     * @param categoryId 分类ID（可选，0 表示未分类）
+     * @return 汇总行，按日期升序
+     */
+    @Select("<script>" +
+            "SELECT day, transaction_type, category_id, currency, sum_cents, bill_count " +
+            "FROM bill_daily_rollup WHERE user_id = #{userId} AND day &gt;= #{startDate} AND day &lt;= #{endDate} " +
+            "AND bill_count &gt; 0 " +
+            "<if test='transactionType != null'>AND transaction_type = #{transactionType} </if>" +
+            "<if test='categoryId != null'>AND category_id = #{categoryId} </if>" +
+            "ORDER BY day" +
+            "</script>")
+    List<BillDailyRollup> selectDailySeriesByCurrency(@Param("userId") Long userId,
+                                                      @Param("startDate") LocalDate startDate,
+                                                      @Param("endDate") LocalDate endDate,
+                                                      @Param("transactionType") String transactionType,
+                                                      @Param("categoryId") Long categoryId);
+
+    /**
+     * 与 {@link #selectDailySeries} 口径相同，直接聚合账单表，汇总表尚未回填完成时使用
+     */
+    @Select("<script>" +
+            "SELECT issue_date AS day, transaction_type, COALESCE(category_id, 0) AS category_id, " +
+            "CAST(SUM(total_amount) * 100 AS SIGNED) AS sum_cents, COUNT(*) AS bill_count " +
+            "FROM bill WHERE user_id = #{userId} AND deleted = 0 " +
+            "AND issue_date &gt;= #{startDate} AND issue_date &lt;= #{endDate} " +
+            "<if test='transactionType != null'>AND transaction_type = #{transactionType} </if>" +
+            "<if test='categoryId != null'>AND COALESCE(category_id, 0) = #{categoryId} </if>" +
+            "GROUP BY issue_date, transaction_type, COALESCE(category_id, 0) " +
+            "ORDER BY issue_date" +
+            "</script>")
+    List<BillDailyRollup> selectDailySeriesFromBill(@Param("userId") Long userId,
+                                                    @Param("startDate") LocalDate startDate,
+                                                    @Param("endDate") LocalDate endDate,
+                                                    @Param("transactionType") String transactionType,
+                                                    @Param("categoryId") Long categoryId);
+
+    /**
+     * 与 {@link #selectDailySeriesByCurrency} 口径相同，直接聚合账单表，汇总表尚未回填完成时使用
+     */
+    @Select("<script>" +
+            "SELECT issue_date AS day, transaction_type, COALESCE(category_id, 0) AS category_id, " +
+            "COALESCE(currency_code, '') AS currency, " +
+            "CAST(SUM(total_amount) * 100 AS SIGNED) AS sum_cents, COUNT(*) AS bill_count " +
+            "FROM bill WHERE user_id = #{userId} AND deleted = 0 " +
+            "AND issue_date &gt;= #{startDate} AND issue_date &lt;= #{endDate} " +
+            "<if test='transactionType != null'>AND transaction_type = #{transactionType} </if>" +
+            "<if test='categoryId != null'>AND COALESCE(category_id, 0) = #{categoryId} </if>" +
+            "GROUP BY issue_date, transaction_type, COALESCE(category_id, 0), COALESCE(currency_code, '') " +
+            "ORDER BY issue_date" +
+            "</script>")
+    List<BillDailyRollup> selectDailySeriesByCurrencyFromBill(@Param("userId") Long userId,
+                                                              @Param("startDate") LocalDate startDate,
+                                                              @Param("endDate") LocalDate endDate,
+                                                              @Param("transactionType") String transactionType,
+                                                              @Param("categoryId") Long categoryId);
+}
@@ -3,10 +3,14 @@ package org.maram.bill.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 import org.maram.bill.entity.Bill;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Mapper
@@ -45,4 +49,69 @@ public interface BillMapper extends BaseMapper<Bill> {
      */
     @Select("SELECT COUNT(*) FROM bill WHERE category_id = #{categoryId} AND user_id = #{userId} AND deleted = 0")
     long countByCategoryId(@Param("categoryId") Long categoryId, @Param("userId") Long userId);
+
+    /**
+     * 流式读取用户账单（MySQL 逐行游标，fetchSize = Integer.MIN_VALUE）
+     * 结果逐行交给 handler 处理，不在内存中累积，用于大批量导出
+     * @param userId 用户ID
+     * @param startDate 开始日期（可选）
+     * @param endDate 结束日期（可选）
+     * @param handler 行处理器
+     */
+    @Select("<script>" +
+            "SELECT * FROM bill WHERE user_id = #{userId} AND deleted = 0 " +
+            "<if test='startDate != null'>AND issue_date &gt;= #{startDate} </if>" +
+            "<if test='endDate != null'>AND issue_date &lt;= #{endDate} </if>" +
+            "ORDER BY issue_date DESC, id DESC" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    void streamByUserId(@Param("userId") Long userId,
+                        @Param("startDate") LocalDate startDate,
+                        @Param("endDate") LocalDate endDate,
+                        ResultHandler<Bill> handler);
+
+    /**
+     * 流式读取用户账单的聚合列（按日期、ID 升序），用于构建内存列式存储
+     * 只返回 id、issue_date、category_id、transaction_type、total_amount，跳过没有日期的账单
+     * @param userId 用户ID
+     * @param handler 行处理器
+     */
+    @Select("SELECT id, issue_date, category_id, transaction_type, total_amount FROM bill " +
+            "WHERE user_id = #{userId} AND deleted = 0 AND issue_date IS NOT NULL " +
+            "ORDER BY issue_date, id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    void streamColumnsByUserId(@Param("userId") Long userId, ResultHandler<Bill> handler);
+
+    /**
+     * 查询用于训练分类器的全部已确认分类的账单（只返回 id、category_id 与文本字段）
+     * 不设条数上限：之后撤销的样本必须都在初始模型中学习过
+     * @param userId 用户ID
+     * @return 账单列表
+     */
+    @Select("SELECT id, category_id, name, supplier_name, bill_type FROM bill " +
+            "WHERE user_id = #{userId} AND category_id IS NOT NULL AND category_confirmed = 1 AND deleted = 0")
+    List<Bill> selectTrainingBills(@Param("userId") Long userId);
+
+    /**
+     * 查询最近已分类的账单（只返回 id、category_id 与文本字段），按ID倒序，用于评估分类匹配效果
+     * @param userId 用户ID
+     * @param limit 最大条数
+     * @return 账单列表
+     */
+    @Select("SELECT id, category_id, name, supplier_name, bill_type FROM bill " +
+            "WHERE user_id = #{userId} AND category_id IS NOT NULL AND deleted = 0 " +
+            "ORDER BY id DESC LIMIT #{limit}")
+    List<Bill> selectRecentCategorizedBills(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * 查询用户各分类下的账单名称及出现次数，按次数降序，用于构建分类向量索引的样本
+     * 只返回 category_id 与 name
+     * @param userId 用户ID
+     * @param limit 最大条数
+     * @return 账单列表（同一分类同一名称只返回一条）
+     */
+    @Select("SELECT category_id, name FROM bill " +
+            "WHERE user_id = #{userId} AND category_id IS NOT NULL AND name IS NOT NULL AND name <> '' AND deleted = 0 " +
+            "GROUP BY category_id, name ORDER BY COUNT(*) DESC LIMIT #{limit}")
+    List<Bill> selectCategoryNameSamples(@Param("userId") Long userId, @Param("limit") int limit);
 }
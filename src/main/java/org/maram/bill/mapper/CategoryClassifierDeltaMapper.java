@@ -0,0 +1,58 @@
+package org.maram.bill.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.maram.bill.entity.CategoryClassifierDelta;
+
+import java.util.List;
+
+/**
+ * 分类器待合并样本Mapper
+ */
+@Mapper
+public interface CategoryClassifierDeltaMapper extends BaseMapper<CategoryClassifierDelta> {
+
+    /**
+     * 批量追加样本
+     * @param deltas 样本列表
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO category_classifier_delta (user_id, category_id, sign, name, supplier_name, bill_type, create_time) VALUES " +
+            "<foreach collection='deltas' item='d' separator=','>" +
+            "(#{d.userId}, #{d.categoryId}, #{d.sign}, #{d.name}, #{d.supplierName}, #{d.billType}, #{d.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("deltas") List<CategoryClassifierDelta> deltas);
+
+    /**
+     * 查询有待合并样本的用户
+     * @param limit 最多返回的用户数
+     * @return 用户ID列表
+     */
+    @Select("SELECT DISTINCT user_id FROM category_classifier_delta LIMIT #{limit}")
+    List<Long> selectPendingUserIds(@Param("limit") int limit);
+
+    /**
+     * 按ID顺序查询用户的待合并样本
+     * @param userId 用户ID
+     * @return 样本列表
+     */
+    @Select("SELECT * FROM category_classifier_delta WHERE user_id = #{userId} ORDER BY id")
+    List<CategoryClassifierDelta> selectByUserId(@Param("userId") Long userId);
+
+    /**
+     * 删除已合并的样本
+     * @param ids 样本ID列表
+     * @return 影响行数
+     */
+    @Delete("<script>" +
+            "DELETE FROM category_classifier_delta WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteByIds(@Param("ids") List<Long> ids);
+}
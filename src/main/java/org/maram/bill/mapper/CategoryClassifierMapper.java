@@ -0,0 +1,42 @@
+package org.maram.bill.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.maram.bill.entity.CategoryClassifier;
+
+/**
+ * 用户分类器模型Mapper
+ */
+@Mapper
+public interface CategoryClassifierMapper extends BaseMapper<CategoryClassifier> {
+
+    /**
+     * 创建或锁定用户的模型行：不存在时插入空模型（model 为 NULL），存在时取得该行的排他锁，
+     * 两种情况都只加一次排他锁，不会像"锁定读 + INSERT IGNORE"那样在间隙锁上互相等待
+     * @param userId 用户ID
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO category_classifier (user_id, model, document_count, version) VALUES (#{userId}, NULL, 0, 0) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id")
+    int lockOrCreate(@Param("userId") Long userId);
+
+    /**
+     * 查询模型版本（用于判断进程内缓存是否过期）
+     * @param userId 用户ID
+     * @return 模型版本，模型不存在时为 null
+     */
+    @Select("SELECT version FROM category_classifier WHERE user_id = #{userId}")
+    Long selectVersion(@Param("userId") Long userId);
+
+    /**
+     * 写回模型并递增版本
+     * @return 影响行数
+     */
+    @Update("UPDATE category_classifier SET model = #{model}, document_count = #{documentCount}, version = version + 1 " +
+            "WHERE user_id = #{userId}")
+    int updateModel(@Param("userId") Long userId, @Param("model") byte[] model, @Param("documentCount") int documentCount);
+}
@@ -0,0 +1,34 @@
+package org.maram.bill.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.maram.bill.entity.CategoryKeyword;
+
+import java.util.List;
+
+/**
+ * 分类关键词Mapper
+ */
+@Mapper
+public interface CategoryKeywordMapper extends BaseMapper<CategoryKeyword> {
+
+    /**
+     * 查询用户可用的关键词（用户自定义 + 系统关键词）
+     * @param userId 用户ID
+     * @return 关键词列表
+     */
+    @Select("SELECT * FROM category_keyword WHERE user_id = #{userId} OR user_id IS NULL")
+    List<CategoryKeyword> selectByUserId(@Param("userId") Long userId);
+
+    /**
+     * 查询分类下对用户可见的关键词
+     * @param categoryId 分类ID
+     * @param userId 用户ID
+     * @return 关键词列表
+     */
+    @Select("SELECT * FROM category_keyword WHERE category_id = #{categoryId} " +
+            "AND (user_id = #{userId} OR user_id IS NULL) ORDER BY weight DESC, id")
+    List<CategoryKeyword> selectByCategoryId(@Param("categoryId") Long categoryId, @Param("userId") Long userId);
+}
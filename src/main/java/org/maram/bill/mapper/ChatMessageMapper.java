@@ -0,0 +1,48 @@
+package org.maram.bill.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.maram.bill.entity.ChatMessage;
+
+import java.util.List;
+
+/**
+ * 聊天消息日志Mapper
+ */
+@Mapper
+public interface ChatMessageMapper extends BaseMapper<ChatMessage> {
+
+    /**
+     * 多行批量插入聊天消息
+     * @param messages 消息列表
+     * @return 插入行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO chat_message (conversation_id, role, content, create_time) VALUES " +
+            "<foreach collection='messages' item='m' separator=','>" +
+            "(#{m.conversationId}, #{m.role}, #{m.content}, #{m.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("messages") List<ChatMessage> messages);
+
+    /**
+     * 按ID倒序查询对话历史（游标分页）
+     * @param conversationId 对话ID
+     * @param beforeId 只返回ID小于该值的消息，为空时从最新消息开始
+     * @param size 返回条数
+     * @return 消息列表（新消息在前）
+     */
+    @Select("<script>" +
+            "SELECT * FROM chat_message WHERE conversation_id = #{conversationId} " +
+            "<if test='beforeId != null'>" +
+            "AND id &lt; #{beforeId} " +
+            "</if>" +
+            "ORDER BY id DESC LIMIT #{size}" +
+            "</script>")
+    List<ChatMessage> selectHistory(@Param("conversationId") String conversationId,
+                                    @Param("beforeId") Long beforeId,
+                                    @Param("size") int size);
+}
@@ -2,8 +2,22 @@ package org.maram.bill.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.maram.bill.entity.ExchangeRate;
 
+import java.util.List;
+
 @Mapper
 public interface ExchangeRateMapper extends BaseMapper<ExchangeRate> {
+
+    /**
+     * 查询指定基准货币下每种目标货币的最新一条汇率（同一目标货币取最大ID）
+     * @param baseCurrencyCode 基准货币代码
+     * @return 汇率列表
+     */
+    @Select("SELECT r.* FROM exchange_rates r " +
+            "JOIN (SELECT MAX(id) AS id FROM exchange_rates WHERE base_currency_code = #{baseCurrencyCode} " +
+            "GROUP BY target_currency_code) latest ON latest.id = r.id")
+    List<ExchangeRate> selectLatestByBase(@Param("baseCurrencyCode") String baseCurrencyCode);
 }
@@ -0,0 +1,113 @@
+package org.maram.bill.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.maram.bill.entity.NotificationOutbox;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 通知发件箱Mapper
+ */
+@Mapper
+public interface NotificationOutboxMapper extends BaseMapper<NotificationOutbox> {
+
+    /**
+     * 写入待投递通知，去重键已存在时忽略
+     * @param message 通知
+     * @return 影响行数，重复时为 0
+     */
+    @Insert("INSERT IGNORE INTO notification_outbox (user_id, event_type, dedupe_key, payload, status, attempts, next_attempt_at, create_time) " +
+            "VALUES (#{userId}, #{eventType}, #{dedupeKey}, #{payload}, 'PENDING', 0, #{nextAttemptAt}, #{createTime})")
+    int insertIgnore(NotificationOutbox message);
+
+    /**
+     * 认领到期的待投递通知：写入批次标识并把下次投递时间推后作为租约，
+     * 调度器中途崩溃时租约到期后会被重新认领
+     * @param claimToken 批次标识
+     * @param now 当前时间
+     * @param leaseUntil 租约到期时间
+     * @param limit 最多认领条数
+     * @return 认领条数
+     */
+    @Update("UPDATE notification_outbox SET claim_token = #{claimToken}, next_attempt_at = #{leaseUntil} " +
+            "WHERE status = 'PENDING' AND next_attempt_at <= #{now} ORDER BY id LIMIT #{limit}")
+    int claimDue(@Param("claimToken") String claimToken,
+                 @Param("now") LocalDateTime now,
+                 @Param("leaseUntil") LocalDateTime leaseUntil,
+                 @Param("limit") int limit);
+
+    /**
+     * 查询本批次认领的通知
+     * @param claimToken 批次标识
+     * @return 通知列表
+     */
+    @Select("SELECT * FROM notification_outbox WHERE claim_token = #{claimToken} AND status = 'PENDING' ORDER BY id")
+    List<NotificationOutbox> selectByClaimToken(@Param("claimToken") String claimToken);
+
+    /**
+     * 投递前续租单条通知：只有仍由本批次持有时才把租约延长到 leaseUntil
+     * @param id 通知ID
+     * @param claimToken 批次标识
+     * @param leaseUntil 新的租约到期时间
+     * @return 影响行数，为 0 表示租约已被其他调度器接管
+     */
+    @Update("UPDATE notification_outbox SET next_attempt_at = #{leaseUntil} " +
+            "WHERE id = #{id} AND claim_token = #{claimToken} AND status = 'PENDING'")
+    int renewLease(@Param("id") Long id,
+                   @Param("claimToken") String claimToken,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 统计用户在指定时间之后已投递的通知数
+     * @param userId 用户ID
+     * @param since 起始时间
+     * @return 通知数
+     */
+    @Select("SELECT COUNT(*) FROM notification_outbox WHERE user_id = #{userId} AND status = 'SENT' AND sent_time >= #{since}")
+    int countSentSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+
+    /**
+     * 标记投递成功
+     * @param id 通知ID
+     * @param claimToken 批次标识
+     * @param sentTime 投递时间
+     * @return 影响行数，为 0 表示租约已丢失
+     */
+    @Update("UPDATE notification_outbox SET status = 'SENT', attempts = attempts + 1, sent_time = #{sentTime}, " +
+            "claim_token = NULL, last_error = NULL WHERE id = #{id} AND claim_token = #{claimToken}")
+    int markSent(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("sentTime") LocalDateTime sentTime);
+
+    /**
+     * 记录投递失败：计入次数并安排下次重试，达到上限时标记为 FAILED
+     * @param id 通知ID
+     * @param claimToken 批次标识
+     * @param status 新状态（PENDING 或 FAILED）
+     * @param nextAttemptAt 下次投递时间
+     * @param lastError 错误信息
+     * @return 影响行数，为 0 表示租约已丢失
+     */
+    @Update("UPDATE notification_outbox SET status = #{status}, attempts = attempts + 1, next_attempt_at = #{nextAttemptAt}, " +
+            "claim_token = NULL, last_error = #{lastError} WHERE id = #{id} AND claim_token = #{claimToken}")
+    int markAttemptFailed(@Param("id") Long id,
+                          @Param("claimToken") String claimToken,
+                          @Param("status") String status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("lastError") String lastError);
+
+    /**
+     * 因限流推迟投递（不计入投递次数）
+     * @param id 通知ID
+     * @param claimToken 批次标识
+     * @param nextAttemptAt 下次投递时间
+     * @return 影响行数，为 0 表示租约已丢失
+     */
+    @Update("UPDATE notification_outbox SET next_attempt_at = #{nextAttemptAt}, claim_token = NULL " +
+            "WHERE id = #{id} AND claim_token = #{claimToken}")
+    int defer(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+}
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.maram.bill.entity.BudgetUsage;
 import org.maram.bill.entity.UserBudget;
 
 import java.math.BigDecimal;
@@ -44,18 +46,152 @@ public interface UserBudgetMapper extends BaseMapper<UserBudget> {
 
     /**
      * 查询用户在指定日期范围内的支出总额
+     * 读取 bill_daily_rollup 按日汇总表，每个用户每年最多扫描数百行
      * @param userId 用户ID
      * @param startDate 开始日期
      * @param endDate 结束日期
      * @return 支出总额
      */
-    @Select("SELECT COALESCE(SUM(total_amount), 0) FROM bill " +
+    @Select("SELECT CAST(COALESCE(SUM(sum_cents), 0) / 100 AS DECIMAL(19,2)) FROM bill_daily_rollup " +
             "WHERE user_id = #{userId} AND transaction_type = 'expense' " +
-            "AND issue_date >= #{startDate} AND issue_date <= #{endDate} AND deleted = 0")
+            "AND day >= #{startDate} AND day <= #{endDate}")
     BigDecimal selectExpenseAmountByDateRange(@Param("userId") Long userId, 
                                             @Param("startDate") LocalDate startDate, 
                                             @Param("endDate") LocalDate endDate);
 
+    /**
+     * 直接扫描 bill 表查询用户在指定日期范围内的支出总额（汇总表回填完成前使用）
+     * @param userId 用户ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @return 支出总额
+     */
+    @Select("SELECT COALESCE(SUM(total_amount), 0) FROM bill " +
+            "WHERE user_id = #{userId} AND transaction_type = 'expense' " +
+            "AND issue_date >= #{startDate} AND issue_date <= #{endDate} AND deleted = 0")
+    BigDecimal selectExpenseAmountFromBill(@Param("userId") Long userId,
+                                           @Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate);
+
+    /**
+     * 一次查询计算多个预算各自周期内的支出合计
+     * 预算与按日汇总表按用户和日期范围关联后按预算分组，没有支出的预算不返回
+     * @param budgetIds 预算ID列表
+     * @return 各预算的已用金额（分）
+     */
+    @Select("<script>" +
+            "SELECT b.id AS budget_id, SUM(r.sum_cents) AS used_cents " +
+            "FROM user_budget b " +
+            "JOIN bill_daily_rollup r ON r.user_id = b.user_id AND r.transaction_type = 'expense' " +
+            "AND r.day &gt;= b.start_date AND r.day &lt;= b.end_date " +
+            "WHERE b.id IN " +
+            "<foreach collection='budgetIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY b.id" +
+            "</script>")
+    List<BudgetUsage> selectUsageByBudgetIds(@Param("budgetIds") List<Long> budgetIds);
+
+    /**
+     * 直接扫描 bill 表计算多个预算各自周期内的支出合计（汇总表回填完成前使用）
+     * @param budgetIds 预算ID列表
+     * @return 各预算的已用金额（分）
+     */
+    @Select("<script>" +
+            "SELECT ub.id AS budget_id, CAST(SUM(b.total_amount) * 100 AS SIGNED) AS used_cents " +
+            "FROM user_budget ub " +
+            "JOIN bill b ON b.user_id = ub.user_id AND b.transaction_type = 'expense' AND b.deleted = 0 " +
+            "AND b.issue_date &gt;= ub.start_date AND b.issue_date &lt;= ub.end_date " +
+            "WHERE ub.id IN " +
+            "<foreach collection='budgetIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY ub.id" +
+            "</script>")
+    List<BudgetUsage> selectUsageFromBillByBudgetIds(@Param("budgetIds") List<Long> budgetIds);
+
+    /**
+     * 锁定周期与日期范围有交集、且计数器已初始化的预算，用于在账单写入事务内更新计数器
+     * @param userId 用户ID
+     * @param startDate 变更涉及的最早日期
+     * @param endDate 变更涉及的最晚日期
+     * @return 预算列表（含 used_cents）
+     */
+    @Select("SELECT * FROM user_budget WHERE user_id = #{userId} AND deleted = 0 AND used_cents IS NOT NULL " +
+            "AND start_date <= #{endDate} AND end_date >= #{startDate} ORDER BY id FOR UPDATE")
+    List<UserBudget> selectCountersForUpdate(@Param("userId") Long userId,
+                                             @Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
+
+    /**
+     * 累加预算已用金额计数器
+     * @param id 预算ID
+     * @param deltaCents 变化量（分）
+     * @return 影响行数
+     */
+    @Update("UPDATE user_budget SET used_cents = used_cents + #{deltaCents} WHERE id = #{id} AND used_cents IS NOT NULL")
+    int addUsedCents(@Param("id") Long id, @Param("deltaCents") long deltaCents);
+
+    /**
+     * 按汇总表重新计算单个预算的计数器
+     * @param id 预算ID
+     * @return 影响行数
+     */
+    @Update("UPDATE user_budget b SET used_cents = (" +
+            "SELECT COALESCE(SUM(r.sum_cents), 0) FROM bill_daily_rollup r " +
+            "WHERE r.user_id = b.user_id AND r.transaction_type = 'expense' " +
+            "AND r.day >= b.start_date AND r.day <= b.end_date) " +
+            "WHERE b.id = #{id}")
+    int recomputeUsedCents(@Param("id") Long id);
+
+    /**
+     * 直接扫描 bill 表重新计算单个预算的计数器（汇总表回填完成前使用）
+     * @param id 预算ID
+     * @return 影响行数
+     */
+    @Update("UPDATE user_budget ub SET used_cents = (" +
+            "SELECT CAST(COALESCE(SUM(b.total_amount), 0) * 100 AS SIGNED) FROM bill b " +
+            "WHERE b.user_id = ub.user_id AND b.transaction_type = 'expense' AND b.deleted = 0 " +
+            "AND b.issue_date >= ub.start_date AND b.issue_date <= ub.end_date) " +
+            "WHERE ub.id = #{id}")
+    int recomputeUsedCentsFromBill(@Param("id") Long id);
+
+    /**
+     * 按ID分页查询未删除的预算ID（计数器校正使用）
+     * @param afterId 上一页最后一个ID
+     * @param limit 每页数量
+     * @return 预算ID列表
+     */
+    @Select("SELECT id FROM user_budget WHERE deleted = 0 AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Long> selectIdsAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 锁定单个预算行
+     * @param id 预算ID
+     * @return 预算，已删除时为 null
+     */
+    @Select("SELECT * FROM user_budget WHERE id = #{id} AND deleted = 0 FOR UPDATE")
+    UserBudget selectByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * 从汇总表读取用户在指定日期范围内的支出合计（分）
+     * @param userId 用户ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @return 支出合计（分）
+     */
+    @Select("SELECT COALESCE(SUM(sum_cents), 0) FROM bill_daily_rollup " +
+            "WHERE user_id = #{userId} AND transaction_type = 'expense' " +
+            "AND day >= #{startDate} AND day <= #{endDate}")
+    long selectExpenseCentsFromRollup(@Param("userId") Long userId,
+                                      @Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate);
+
+    /**
+     * 覆盖预算计数器
+     * @param id 预算ID
+     * @param usedCents 已用金额（分）
+     * @return 影响行数
+     */
+    @Update("UPDATE user_budget SET used_cents = #{usedCents} WHERE id = #{id}")
+    int setUsedCents(@Param("id") Long id, @Param("usedCents") long usedCents);
+
     /**
      * 检查用户在指定时间段是否已有预算
      * @param userId 用户ID
@@ -4,6 +4,8 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -28,4 +30,9 @@ public interface UserMapper extends BaseMapper<org.maram.bill.entity.User> {
                        @Param("aiModel") String aiModel,
                        @Param("aiTemperature") Double aiTemperature);
 
-}
\ No newline at end of file
+    /**
+     * 查询指定时间之后登录过的用户
+     */
+    @Select("SELECT * FROM user WHERE last_login_at >= #{since} AND deleted = 0")
+    List<org.maram.bill.entity.User> selectActiveSince(@Param("since") LocalDateTime since);
+}
@@ -1,7 +1,13 @@
 package org.maram.bill.scheduler;
 
 import org.maram.bill.config.properties.SchedulerProperties;
+import org.maram.bill.service.AiInsightSnapshotService;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.BudgetCounterService;
+import org.maram.bill.service.CategoryClassifierService;
 import org.maram.bill.service.ExchangeRateService;
+import org.maram.bill.service.NotificationOutboxService;
+import org.maram.bill.service.SpendForecastService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,11 +21,26 @@ public class ScheduledTasks {
 
     private final ExchangeRateService exchangeRateService;
     private final SchedulerProperties schedulerProperties;
+    private final BillRollupService billRollupService;
+    private final AiInsightSnapshotService aiInsightSnapshotService;
+    private final BudgetCounterService budgetCounterService;
+    private final NotificationOutboxService notificationOutboxService;
+    private final SpendForecastService spendForecastService;
+    private final CategoryClassifierService categoryClassifierService;
 
     @Autowired
-    public ScheduledTasks(ExchangeRateService exchangeRateService, SchedulerProperties schedulerProperties) {
+    public ScheduledTasks(ExchangeRateService exchangeRateService, SchedulerProperties schedulerProperties,
+                          BillRollupService billRollupService, AiInsightSnapshotService aiInsightSnapshotService,
+                          BudgetCounterService budgetCounterService, NotificationOutboxService notificationOutboxService,
+                          SpendForecastService spendForecastService, CategoryClassifierService categoryClassifierService) {
         this.exchangeRateService = exchangeRateService;
         this.schedulerProperties = schedulerProperties;
+        this.billRollupService = billRollupService;
+        this.aiInsightSnapshotService = aiInsightSnapshotService;
+        this.budgetCounterService = budgetCounterService;
+        this.notificationOutboxService = notificationOutboxService;
+        this.spendForecastService = spendForecastService;
+        this.categoryClassifierService = categoryClassifierService;
     }
 
     // 使用配置文件中的 cron 表达式
@@ -33,4 +54,71 @@ public class ScheduledTasks {
         }
         logger.info("定时任务：更新汇率数据 执行完毕。");
     }
-}
\ No newline at end of file
+
+    // 比对汇率版本号，其他节点更新汇率后重建本地汇率快照
+    @Scheduled(cron = "${scheduler.sync-exchange-rates-cron}")
+    public void syncExchangeRates() {
+        try {
+            exchangeRateService.syncRateSnapshot();
+        } catch (Exception e) {
+            logger.error("定时同步汇率快照任务执行失败。", e);
+        }
+    }
+
+    // 从 bill 表重建按日汇总，回填历史数据并校正可能的增量偏差；随后基于汇总表校正预算计数器
+    @Scheduled(cron = "${scheduler.rebuild-bill-rollup-cron}")
+    public void rebuildBillDailyRollup() {
+        logger.info("执行定时任务：重建账单日汇总。");
+        try {
+            billRollupService.rebuildAll();
+            budgetCounterService.reconcileAll();
+        } catch (Exception e) {
+            logger.error("定时重建账单日汇总任务执行失败。", e);
+        }
+        logger.info("定时任务：重建账单日汇总 执行完毕。");
+    }
+
+    // 汇总表重建后为近期活跃用户预计算支出预测
+    @Scheduled(cron = "${scheduler.precompute-forecasts-cron}")
+    public void precomputeForecasts() {
+        logger.info("执行定时任务：预计算支出预测。");
+        try {
+            spendForecastService.precomputeRecentlyActive();
+        } catch (Exception e) {
+            logger.error("定时预计算支出预测任务执行失败。", e);
+        }
+        logger.info("定时任务：预计算支出预测 执行完毕。");
+    }
+
+    // 低峰期为近期活跃用户预计算月度/季度洞察
+    @Scheduled(cron = "${scheduler.precompute-insights-cron}")
+    public void precomputeInsights() {
+        logger.info("执行定时任务：预计算AI洞察。");
+        try {
+            aiInsightSnapshotService.precomputeRecentlyActive();
+        } catch (Exception e) {
+            logger.error("定时预计算AI洞察任务执行失败。", e);
+        }
+        logger.info("定时任务：预计算AI洞察 执行完毕。");
+    }
+
+    // 投递发件箱中到期的通知（高频、每次最多一批）
+    @Scheduled(cron = "${scheduler.dispatch-notifications-cron}")
+    public void dispatchNotifications() {
+        try {
+            notificationOutboxService.dispatchPending();
+        } catch (Exception e) {
+            logger.error("定时投递通知任务执行失败。", e);
+        }
+    }
+
+    // 把账单写入时追加的分类器样本合并进各用户的模型
+    @Scheduled(cron = "${scheduler.fold-classifier-deltas-cron}")
+    public void foldClassifierDeltas() {
+        try {
+            categoryClassifierService.foldPendingDeltas();
+        } catch (Exception e) {
+            logger.error("定时合并分类器样本任务执行失败。", e);
+        }
+    }
+}
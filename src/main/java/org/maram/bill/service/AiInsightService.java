@@ -1,6 +1,14 @@
 package org.maram.bill.service;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * AI智能洞察服务接口
@@ -41,4 +49,71 @@ public interface AiInsightService {
      * @return 财务数据摘要字符串
      */
     String buildFinancialSummary(Long userId, LocalDate startDate, LocalDate endDate, String period);
+
+    /**
+     * 计算结构化财务指标（供前端汇总页直接使用，也是 AI 提示词的数据来源）
+     * @param userId 用户ID
+     * @param period 时间周期类型（MONTHLY/QUARTERLY/YEARLY，不区分大小写）
+     * @param targetDate 周期内的任意日期（如果为null则使用当前日期）
+     * @return 财务指标
+     */
+    InsightMetrics computeMetrics(Long userId, String period, LocalDate targetDate);
+
+    /**
+     * 将财务指标渲染为紧凑的 AI 提示词
+     * @param metrics 财务指标
+     * @return 提示词文本
+     */
+    String renderPrompt(InsightMetrics metrics);
+
+    /**
+     * 财务指标
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    class InsightMetrics {
+        private String period; // 周期类型
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate startDate; // 周期开始日期
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate endDate; // 周期结束日期
+
+        private BigDecimal totalIncome; // 总收入
+        private BigDecimal totalExpense; // 总支出
+        private BigDecimal netBalance; // 净收支
+
+        private long billCount; // 总账单数
+        private long incomeCount; // 收入笔数
+        private long expenseCount; // 支出笔数
+        private BigDecimal averageExpense; // 平均单笔支出
+
+        private List<CategoryShare> categories; // 支出分类（按金额倒序）
+
+        private BigDecimal budgetAmount; // 预算金额，未设置时为空
+        private BigDecimal budgetRemaining; // 剩余预算
+        private BigDecimal budgetUsagePercentage; // 预算使用率（%）
+
+        private long elapsedDays; // 周期内已过天数
+        private long remainingDays; // 周期内剩余天数
+        private BigDecimal dailyBurnRate; // 日均支出
+        private BigDecimal projectedRemainingExpense; // 预计剩余支出，周期已结束时为空
+        private BigDecimal projectedTotalExpense; // 预计总支出，周期已结束时为空
+        private BigDecimal projectedOverBudget; // 预计超预算金额，不超预算时为空
+        private String projectionMethod; // 预测方法：HOLT_WINTERS 或 LINEAR（按日均线性外推）
+    }
+
+    /**
+     * 分类支出占比
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    class CategoryShare {
+        private String categoryName; // 分类名称
+        private BigDecimal amount; // 支出金额
+        private long count; // 支出笔数
+        private BigDecimal percentage; // 占总支出比例（%）
+    }
 }
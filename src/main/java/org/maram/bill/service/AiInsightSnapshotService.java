@@ -0,0 +1,28 @@
+package org.maram.bill.service;
+
+import org.maram.bill.service.AiInsightService.InsightMetrics;
+import org.maram.bill.service.support.InsightResultCache;
+
+/**
+ * AI 洞察预计算快照服务接口
+ * 在低峰期预先生成活跃用户的月度/季度洞察，请求时若快照仍新鲜则直接返回
+ */
+public interface AiInsightSnapshotService {
+
+    /**
+     * 查询新鲜的快照内容
+     * 新鲜指：生成时的数据版本、分类版本与当前一致，且周期在生成时已结束或快照为当天生成
+     * @param userId 用户ID
+     * @param version 当前用户数据与分类版本
+     * @param metrics 当前周期的财务指标
+     * @param model 模型名称
+     * @return 快照内容，不存在或已过期时为 null
+     */
+    String findFresh(Long userId, InsightResultCache.Version version, InsightMetrics metrics, String model);
+
+    /**
+     * 为近期活跃用户预计算当前与上一个月度、季度洞察（已有新鲜快照的跳过）
+     * @return 新生成的快照数量
+     */
+    int precomputeRecentlyActive();
+}
@@ -1,5 +1,7 @@
 package org.maram.bill.service;
 
+import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.maram.bill.entity.BillCategory;
 
 import java.util.List;
@@ -19,6 +21,14 @@ public interface BillCategoryMatchingService {
      */
     Long matchCategory(String billType, String transactionType, Long userId);
 
+    /**
+     * 只在已有分类中匹配（名称精确匹配、关键词匹配、向量匹配），不创建默认分类
+     * @param billType 账单类型文本
+     * @param userId 用户ID
+     * @return 匹配的分类ID，如果没有匹配则返回null
+     */
+    Long findMatchingCategory(String billType, Long userId);
+
     /**
      * 根据关键词模糊匹配分类
      * @param keywords 关键词列表
@@ -56,4 +66,39 @@ public interface BillCategoryMatchingService {
      * @return 分类ID
      */
     Long getOrCreateDefaultCategory(String categoryName, Long userId);
+
+    /**
+     * 用用户最近已分类的账单评估匹配效果：分别统计关键词匹配、向量匹配以及二者组合（关键词未命中时用向量）
+     * 命中实际分类的比例与单次匹配耗时。账单原本的分类可能就来自关键词匹配，关键词召回率会偏高
+     * @param userId 用户ID
+     * @param sampleSize 样本数
+     * @return 评估结果
+     */
+    MatchEvaluation evaluate(Long userId, int sampleSize);
+
+    /**
+     * 分类匹配评估结果
+     */
+    @Data
+    @NoArgsConstructor
+    class MatchEvaluation {
+        private int samples; // 样本数
+        private boolean vectorEnabled; // 是否启用向量匹配
+        private MatcherStats keyword = new MatcherStats(); // 关键词匹配
+        private MatcherStats vector = new MatcherStats(); // 向量匹配
+        private double combinedRecall; // 关键词 + 向量兜底的召回率
+    }
+
+    /**
+     * 单个匹配器的统计
+     */
+    @Data
+    @NoArgsConstructor
+    class MatcherStats {
+        private int hits; // 命中实际分类的样本数
+        private int misses; // 返回了其他分类的样本数
+        private double recall; // 命中率
+        private double averageMicros; // 平均耗时（微秒）
+        private double p95Micros; // P95 耗时（微秒）
+    }
 }
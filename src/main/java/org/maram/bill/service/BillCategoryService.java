@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.maram.bill.entity.BillCategory;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 账单分类服务接口，定义账单分类相关的业务操作
@@ -24,6 +25,13 @@ public interface BillCategoryService {
      */
     List<BillCategory> listByUserId(Long userId);
 
+    /**
+     * 获取指定用户可见分类的 ID -> 名称映射（包含系统预设分类）
+     * @param userId 用户ID
+     * @return 分类名称映射
+     */
+    Map<Long, String> getCategoryNames(Long userId);
+
     /**
      * 获取系统预设分类
      * @return 系统预设分类列表
@@ -0,0 +1,24 @@
+package org.maram.bill.service;
+
+import org.maram.bill.common.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * 账单导出服务接口
+ */
+public interface BillExportService {
+
+    /**
+     * 将用户账单以流式方式写入输出流，内存占用与账单数量无关
+     * @param userId 用户ID
+     * @param startDate 开始日期（可选）
+     * @param endDate 结束日期（可选）
+     * @param format 导出格式
+     * @param out 输出流（由调用方负责关闭）
+     * @return 导出的账单条数
+     */
+    long export(Long userId, LocalDate startDate, LocalDate endDate, ExportFormat format, OutputStream out) throws IOException;
+}
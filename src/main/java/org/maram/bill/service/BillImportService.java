@@ -0,0 +1,51 @@
+package org.maram.bill.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 账单批量导入服务接口
+ */
+public interface BillImportService {
+
+    /**
+     * 流式解析 CSV 并批量导入账单
+     * 表头支持导出文件的中文列名以及常见英文列名（date, amount, type, category, name ...）；
+     * 没有交易类型列时按金额符号区分收支：负数为支出，正数为收入
+     * @param userId 用户ID
+     * @param in CSV 输入流（UTF-8）
+     * @return 导入结果，包含逐行错误信息和吞吐量
+     */
+    ImportResult importCsv(Long userId, InputStream in) throws IOException;
+
+    /**
+     * 导入结果
+     */
+    @Data
+    @NoArgsConstructor
+    class ImportResult {
+        private long totalRows; // 数据行数（不含表头）
+        private long importedRows; // 成功导入行数
+        private long failedRows; // 失败行数
+        private long elapsedMs; // 耗时（毫秒）
+        private double rowsPerSecond; // 吞吐量（行/秒）
+        private List<RowError> errors = new ArrayList<>(); // 逐行错误（最多返回部分）
+    }
+
+    /**
+     * 单行错误信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    class RowError {
+        private long line; // CSV 行号
+        private String message; // 错误原因
+    }
+}
@@ -0,0 +1,50 @@
+package org.maram.bill.service;
+
+import org.maram.bill.entity.Bill;
+
+import java.util.List;
+
+/**
+ * 账单按日汇总服务接口
+ * 汇总表随账单写入在同一事务内增量维护，周期类统计直接读取汇总行而不扫描 bill 表
+ */
+public interface BillRollupService {
+
+    /**
+     * 记录新增账单
+     * @param bills 已插入的账单
+     */
+    void onBillsInserted(List<Bill> bills);
+
+    /**
+     * 记录账单修改：从旧维度扣减、向新维度累加
+     * @param before 修改前的账单
+     * @param after 修改后的账单
+     */
+    void onBillUpdated(Bill before, Bill after);
+
+    /**
+     * 记录账单删除
+     * @param bill 被删除的账单
+     */
+    void onBillDeleted(Bill bill);
+
+    /**
+     * 从 bill 表重建单个用户的汇总数据
+     * @param userId 用户ID
+     * @return 重建后的汇总行数
+     */
+    int rebuildUser(Long userId);
+
+    /**
+     * 重建所有用户的汇总数据（用于历史数据回填与定期校正），全部用户成功后标记汇总表已构建
+     * @return 处理的用户数
+     */
+    int rebuildAll();
+
+    /**
+     * 汇总表是否已完成历史回填；未完成前周期统计应直接查询 bill 表
+     * @return 是否可以读取汇总表
+     */
+    boolean isBuilt();
+}
@@ -0,0 +1,68 @@
+package org.maram.bill.service;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.maram.bill.common.enums.SeriesGranularity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 账单时间序列服务接口
+ * 基于按日汇总表在服务端分桶，返回补零后的定长序列，供图表直接绘制
+ */
+public interface BillSeriesService {
+
+    /**
+     * 查询按交易类型和分类拆分的金额时间序列
+     * @param userId 用户ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param granularity 分桶粒度
+     * @param transactionType 交易类型（可选）
+     * @param categoryId 分类ID（可选）
+     * @param displayCurrency 展示货币（可选），指定时各币种金额先折算到该货币再汇总
+     * @return 时间序列
+     */
+    SpendingSeries getSeries(Long userId, LocalDate startDate, LocalDate endDate, SeriesGranularity granularity,
+                             String transactionType, Long categoryId, String displayCurrency);
+
+    /**
+     * 时间序列结果，所有 values 与 buckets 一一对应
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    class SpendingSeries {
+        private String granularity; // 粒度: day / week / month
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate startDate; // 开始日期
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate endDate; // 结束日期
+        private List<String> buckets; // 每个桶的起始日期
+        private List<Series> series; // 各交易类型、分类的序列
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String displayCurrency; // 展示货币，未指定时金额按原币种直接相加
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Long unconvertedCount; // 缺少汇率、未计入序列的账单数（仅指定展示货币时返回）
+    }
+
+    /**
+     * 单条序列
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    class Series {
+        private String transactionType; // 交易类型
+        private Long categoryId; // 分类ID，未分类为 0
+        private String categoryName; // 分类名称
+        private BigDecimal total; // 区间合计
+        private long count; // 区间笔数
+        private List<BigDecimal> values; // 各桶金额（无数据的桶为 0）
+    }
+}
@@ -1,6 +1,7 @@
 package org.maram.bill.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.maram.bill.common.utils.CursorPage;
 import org.maram.bill.entity.Bill;
 
 import java.time.LocalDate;
@@ -12,11 +13,29 @@ public interface BillService {
     List<Bill> listByUserId(Long userId); // 新增或修改
 
     Long saveAndReturnId(Bill bill);
+
+    /**
+     * 批量保存账单（JDBC batch，单个事务）
+     * @param bills 账单列表，所有账单必须已设置用户ID
+     * @return 是否全部保存成功
+     */
+    boolean saveBillsInBatch(List<Bill> bills);
     boolean updateById(Bill bill);
     boolean removeById(Long id);
 
     Page<Bill> pageUserBills(Page<Bill> pageRequest, Long userId, String transactionType, String billType, Long categoryId, String startDate, String endDate);
 
+    /**
+     * 游标（keyset）分页查询用户账单，按 (issue_date, id) 倒序
+     * @param userId 用户ID
+     * @param cursor 上一页返回的游标，首页传 null
+     * @param size 每页条数
+     * @param withTotal 是否在首页返回总数
+     * @return 游标分页结果
+     */
+    CursorPage<Bill> scrollUserBills(Long userId, String cursor, int size, String transactionType, String billType,
+                                     Long categoryId, String startDate, String endDate, boolean withTotal);
+
     boolean existsByFileId(Long fileId);
     Bill getByFileId(Long fileId);
 
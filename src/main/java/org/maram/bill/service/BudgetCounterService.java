@@ -0,0 +1,44 @@
+package org.maram.bill.service;
+
+import org.maram.bill.entity.Bill;
+
+import java.util.List;
+
+/**
+ * 预算已用金额计数器服务接口
+ * user_budget.used_cents 随账单写入在同一事务内增量维护，预算查询与预警直接读取，不再逐个聚合；
+ * 计数器从阈值以下越过到阈值以上时发布 {@link org.maram.bill.common.event.BudgetThresholdCrossedEvent}
+ */
+public interface BudgetCounterService {
+
+    /**
+     * 记录新增账单
+     * @param bills 已插入的账单
+     */
+    void onBillsInserted(List<Bill> bills);
+
+    /**
+     * 记录账单修改
+     * @param before 修改前的账单
+     * @param after 修改后的账单
+     */
+    void onBillUpdated(Bill before, Bill after);
+
+    /**
+     * 记录账单删除
+     * @param bill 被删除的账单
+     */
+    void onBillDeleted(Bill bill);
+
+    /**
+     * 按汇总表重新计算单个预算的计数器（新建预算或修改预算周期后调用）
+     * @param budgetId 预算ID
+     */
+    void initialize(Long budgetId);
+
+    /**
+     * 按汇总表校正所有预算的计数器（用于历史数据回填与定期校正）
+     * @return 更新的预算数
+     */
+    int reconcileAll();
+}
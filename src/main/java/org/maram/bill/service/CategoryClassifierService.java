@@ -0,0 +1,54 @@
+package org.maram.bill.service;
+
+import org.maram.bill.entity.Bill;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 用户分类器服务接口
+ * 按用户从用户确认过分类的账单中学习朴素贝叶斯模型（特征为名称、供应商、账单类型的字符 n-gram），
+ * 不学习分类器自身的预测与匹配兜底结果。账单写入只在同一事务内追加待合并样本，
+ * 由后台任务合并进模型；分类时先于关键词匹配调用，置信度不足时返回 null
+ */
+public interface CategoryClassifierService {
+
+    /**
+     * 预测账单分类
+     * @param bill 账单（需包含 userId）
+     * @return 分类ID，模型样本不足、置信度不足或分类已不可用时返回 null
+     */
+    Long predict(Bill bill);
+
+    /**
+     * 为批量处理创建预测函数，模型只加载一次
+     * @param userId 用户ID
+     * @return 预测函数，语义同 {@link #predict(Bill)}
+     */
+    Function<Bill, Long> predictorFor(Long userId);
+
+    /**
+     * 记录新增账单中已确认分类的样本
+     * @param bills 已插入的账单
+     */
+    void onBillsInserted(List<Bill> bills);
+
+    /**
+     * 记录账单修改（包括手动修正分类）：撤销修改前的已确认样本，记录修改后的已确认样本
+     * @param before 修改前的账单
+     * @param after 修改后的账单
+     */
+    void onBillUpdated(Bill before, Bill after);
+
+    /**
+     * 撤销已删除账单的已确认样本
+     * @param bill 被删除的账单
+     */
+    void onBillDeleted(Bill bill);
+
+    /**
+     * 把待合并样本按用户合并进模型，每个用户一个独立事务
+     * @return 处理的用户数
+     */
+    int foldPendingDeltas();
+}
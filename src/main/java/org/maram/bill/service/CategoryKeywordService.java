@@ -0,0 +1,37 @@
+package org.maram.bill.service;
+
+import org.maram.bill.entity.CategoryKeyword;
+
+import java.util.List;
+
+/**
+ * 分类关键词服务接口，维护分类智能匹配使用的用户自定义关键词
+ */
+public interface CategoryKeywordService {
+
+    /**
+     * 查询分类下对用户可见的关键词（用户自定义 + 系统关键词）
+     * @param categoryId 分类ID
+     * @param userId 用户ID
+     * @return 关键词列表，按权重降序
+     */
+    List<CategoryKeyword> listByCategory(Long categoryId, Long userId);
+
+    /**
+     * 为分类添加用户关键词，关键词统一转为小写
+     * @param categoryId 分类ID
+     * @param userId 用户ID
+     * @param keyword 关键词（weight 为空时使用默认权重）
+     * @return 保存后的关键词，关键词已存在时返回 null
+     */
+    CategoryKeyword add(Long categoryId, Long userId, CategoryKeyword keyword);
+
+    /**
+     * 删除用户自己的关键词
+     * @param categoryId 分类ID
+     * @param keywordId 关键词ID
+     * @param userId 用户ID
+     * @return 是否删除成功
+     */
+    boolean remove(Long categoryId, Long keywordId, Long userId);
+}
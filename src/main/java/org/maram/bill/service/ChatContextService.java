@@ -1,5 +1,6 @@
 package org.maram.bill.service;
 
+import org.maram.bill.entity.ChatMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.messages.AssistantMessage;
@@ -33,4 +34,13 @@ public interface ChatContextService {
      * 清空对话上下文
      */
     void clearContext(String conversationId);
+
+    /**
+     * 分页查询持久化的对话历史（按消息ID倒序的游标分页）
+     * @param conversationId 对话ID
+     * @param beforeId 游标，只返回ID小于该值的消息；为空时从最新消息开始
+     * @param size 每页条数
+     * @return 消息列表（新消息在前）
+     */
+    List<ChatMessage> getHistory(String conversationId, Long beforeId, int size);
 }
@@ -1,5 +1,9 @@
 package org.maram.bill.service;
 
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.maram.bill.entity.Bill;
 import org.maram.bill.entity.Currency;
 import java.math.BigDecimal;
 import java.util.List;
@@ -22,9 +26,51 @@ public interface ExchangeRateService {
      */
     Map<String, Object> convertCurrencyUsingStoredRates(BigDecimal amount, String fromCurrencyCode, String toCurrencyCode);
 
+    /**
+     * 基于同一份汇率快照批量转换，单项失败不影响其他项
+     * @param requests 转换请求列表
+     * @return 与请求一一对应的结果；成功项与单次转换的结果相同，失败项包含 error 字段
+     */
+    List<Map<String, Object>> convertBatchUsingStoredRates(List<ConversionRequest> requests);
+
+    /**
+     * 校验并归一化展示货币代码
+     * @param displayCurrency 展示货币代码（可选）
+     * @return 大写的货币代码，未指定时返回 null
+     * @throws IllegalArgumentException 汇率快照中没有该货币时抛出
+     */
+    String resolveDisplayCurrency(String displayCurrency);
+
+    /**
+     * 为账单填充折算到展示货币的金额（displayAmount / displayCurrency），所有账单使用同一份汇率快照；
+     * 未填写币种的账单按基准货币处理，缺少汇率的账单不填充
+     * @param bills 账单列表
+     * @param displayCurrency 展示货币代码
+     * @throws IllegalArgumentException 展示货币不受支持时抛出
+     */
+    void applyDisplayCurrency(List<Bill> bills, String displayCurrency);
+
     /**
      * (供定时任务调用)
      * 从外部API获取并更新配置中指定的货币对的汇率到数据库。
      */
     void fetchAndUpdateExchangeRates();
-}
\ No newline at end of file
+
+    /**
+     * (供定时任务调用)
+     * 其他节点更新汇率后，重建本地的汇率快照。
+     */
+    void syncRateSnapshot();
+
+    /**
+     * 单项转换请求
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    class ConversionRequest {
+        private BigDecimal amount; // 金额
+        private String from; // 源货币代码
+        private String to; // 目标货币代码
+    }
+}
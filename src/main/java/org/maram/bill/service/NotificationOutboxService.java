@@ -0,0 +1,22 @@
+package org.maram.bill.service;
+
+import org.maram.bill.common.event.BudgetThresholdCrossedEvent;
+
+/**
+ * 通知发件箱服务接口
+ * 通知与触发它的业务写入在同一事务内落库，后台批量投递，写路径不等待外部接口
+ */
+public interface NotificationOutboxService {
+
+    /**
+     * 将预算预警写入发件箱（同一预算周期、同一等级只写入一次）
+     * @param event 预算越过阈值事件
+     */
+    void enqueueBudgetAlert(BudgetThresholdCrossedEvent event);
+
+    /**
+     * 认领并投递一批到期通知：失败按指数退避重试，超过单用户限流时推迟
+     * @return 投递成功的条数
+     */
+    int dispatchPending();
+}
@@ -0,0 +1,66 @@
+package org.maram.bill.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.maram.bill.common.utils.CentsKernel;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 支出预测服务接口
+ * 基于按日汇总表的每日支出序列做带周季节性的指数平滑预测，结果按用户数据版本缓存，
+ * 预算页与 AI 洞察直接读取缓存中的逐日预测值
+ */
+public interface SpendForecastService {
+
+    /**
+     * 获取用户的逐日支出预测（数据版本未变时直接返回缓存）
+     * @param userId 用户ID
+     * @return 预测结果，历史数据不足时为 null
+     */
+    SpendForecast getForecast(Long userId);
+
+    /**
+     * 为近期活跃用户预先计算预测，填充缓存
+     * @return 计算的用户数
+     */
+    int precomputeRecentlyActive();
+
+    /**
+     * 逐日支出预测
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    class SpendForecast {
+        private String method; // 预测方法
+        private LocalDate lastObservedDay; // 最后一个观测日，预测从次日开始
+        private long[] dailyCents; // 逐日预测支出（分），下标 0 为 lastObservedDay 的次日
+        private long spentTodayCents; // 预测计算时当天（lastObservedDay 的次日）已发生的支出（分）
+
+        /**
+         * 日期区间 [from, to] 内的预测支出合计，超出预测范围的日期不计入
+         */
+        public BigDecimal expenseBetween(LocalDate from, LocalDate to) {
+            int start = (int) Math.max(0, ChronoUnit.DAYS.between(lastObservedDay, from) - 1);
+            int end = (int) Math.min(dailyCents.length, ChronoUnit.DAYS.between(lastObservedDay, to));
+            return CentsKernel.toAmount(start < end ? CentsKernel.sum(dailyCents, start, end) : 0L);
+        }
+
+        /**
+         * 从当天到 to 还会发生的预测支出：当天取预测值减去已发生的支出（不小于 0），之后逐日累加预测值。
+         * 已用金额中只包含当天已发生的部分，与本方法的结果相加即为区间预计总支出
+         */
+        public BigDecimal remainingExpense(LocalDate to) {
+            LocalDate today = lastObservedDay.plusDays(1);
+            if (to.isBefore(today)) {
+                return BigDecimal.ZERO;
+            }
+            long todayRemaining = dailyCents.length > 0 ? Math.max(0L, dailyCents[0] - spentTodayCents) : 0L;
+            return expenseBetween(today.plusDays(1), to).add(CentsKernel.toAmount(todayRemaining));
+        }
+    }
+}
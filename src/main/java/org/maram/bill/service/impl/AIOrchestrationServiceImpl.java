@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.maram.bill.common.service.PromptService;
+import org.maram.bill.common.utils.UtteranceTemplate;
 import org.maram.bill.config.ai.ChatConfig;
 import org.maram.bill.service.AIOrchestrationService;
 import org.maram.bill.service.BillCategoryMatchingService;
@@ -14,6 +15,7 @@ import org.maram.bill.service.BillProcessingService;
 import org.maram.bill.service.ChatContextService;
 import org.maram.bill.service.InvoiceFileService;
 import org.maram.bill.service.UserService;
+import org.maram.bill.service.support.ChatResponseCache;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.model.ChatModel;
@@ -55,6 +57,7 @@ public class AIOrchestrationServiceImpl implements AIOrchestrationService {
     private final UserService userService;
     private final PromptService promptService;
     private final ChatContextService chatContextService;  // 使用我们自己的轻量级上下文管理
+    private final ChatResponseCache chatResponseCache;
 
     private static final int MAX_CONTEXT_ROUNDS = 5;  // 最多保留最近5轮对话
 
@@ -74,7 +77,8 @@ public class AIOrchestrationServiceImpl implements AIOrchestrationService {
                     openid, userAiConfig.getModel(), userAiConfig.getTemperature(), userAiConfig.getModelConfig());
 
             ChatClient chatClient = buildChatClient(userAiConfig);
-            String currentDate = LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE);
+            LocalDate today = LocalDate.now();
+            String currentDate = today.format(DateTimeFormatter.ISO_LOCAL_DATE);
             Long userId = userService.getUserIdByOpenid(openid);
             List<String> availableCategories = categoryMatchingService.getAvailableCategoryNames(userId);
             String systemPrompt = promptService.getSystemPrompt(availableCategories);
@@ -114,11 +118,23 @@ public class AIOrchestrationServiceImpl implements AIOrchestrationService {
                         });
 
             } else if (hasText) {
-                String userPrompt = promptService.formatUserPromptWithCategories(currentDate, availableCategories, userTextMessage);
+                String message = userTextMessage.trim();
 
                 // 获取历史对话上下文
                 List<Message> historyMessages = chatContextService.getRecentMessages(openid, MAX_CONTEXT_ROUNDS);
 
+                // 缓存只保存无上下文时的响应，对话进行中（如"改成30"）必须交给大模型结合历史处理
+                UtteranceTemplate template = historyMessages.isEmpty() ? chatResponseCache.parse(message, today) : null;
+                String cached = chatResponseCache.get(template, availableCategories, userAiConfig.getModel(), message);
+                if (cached != null) {
+                    log.info("用户 [{}]: 命中记账短句缓存，跳过LLM调用。模板: {}", openid, template.template());
+                    chatContextService.addUserMessage(openid, userTextMessage);
+                    chatContextService.addAssistantMessage(openid, cached);
+                    return Flux.just(cached);
+                }
+
+                String userPrompt = promptService.formatUserPromptWithCategories(currentDate, availableCategories, userTextMessage);
+
                 log.info("用户 [{}]: 构建 ChatClient 请求 (纯文本)。Prompt长度: {}, 历史消息数: {}",
                         openid, userPrompt.length(), historyMessages.size());
                 log.debug("用户 [{}]: 用户提示词内容: {}", openid, userPrompt);
@@ -142,6 +158,11 @@ public class AIOrchestrationServiceImpl implements AIOrchestrationService {
                             // 保存完整的AI响应到上下文
                             if (fullResponse.length() > 0) {
                                 chatContextService.addAssistantMessage(openid, fullResponse.toString());
+                                // 只缓存不依赖历史上下文的响应（有历史时 template 为 null）
+                                if (template != null) {
+                                    chatResponseCache.put(template, availableCategories, userAiConfig.getModel(),
+                                            message, fullResponse.toString());
+                                }
                             }
                         })
                         .doOnError(error -> log.error("用户 [{}]: LLM流处理错误", openid, error))
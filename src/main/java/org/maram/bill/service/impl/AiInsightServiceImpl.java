@@ -2,26 +2,41 @@ package org.maram.bill.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.maram.bill.entity.Bill;
-import org.maram.bill.entity.BillCategory;
+import org.maram.bill.common.enums.BudgetType;
+import org.maram.bill.common.enums.TransactionType;
+import org.maram.bill.common.utils.CentsKernel;
+import org.maram.bill.entity.BillCategoryAggregate;
+import org.maram.bill.entity.BillDailyRollup;
 import org.maram.bill.entity.UserBudget;
+import org.maram.bill.mapper.BillDailyRollupMapper;
 import org.maram.bill.service.AiInsightService;
 import org.maram.bill.service.BillCategoryService;
-import org.maram.bill.service.BillService;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.SpendForecastService;
+import org.maram.bill.service.SpendForecastService.SpendForecast;
 import org.maram.bill.service.UserBudgetService;
+import org.maram.bill.service.support.BillColumnStore;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * AI智能洞察服务实现类
+ *
+ * 财务数据先由一次聚合查询计算为结构化的 {@link InsightMetrics}，
+ * 前端汇总页直接使用该指标，AI 分析则使用由指标渲染出的紧凑提示词。
+ * 热点用户的聚合优先在内存列式存储上完成，否则查询按日汇总表；汇总表尚未回填完成时直接聚合账单表。
  */
 @Service
 @Slf4j
@@ -30,206 +45,137 @@ public class AiInsightServiceImpl implements AiInsightService {
 
     private static final int TOP_CATEGORIES_LIMIT = 5;
     private static final int PERCENTAGE_SCALE = 1;
-    private static final int CALCULATION_SCALE = 4;
     private static final BigDecimal HUNDRED = new BigDecimal("100");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    
-    private final BillService billService;
+    private static final String UNCATEGORIZED = "未分类";
+    private static final String PROJECTION_LINEAR = "LINEAR";
+
     private final UserBudgetService userBudgetService;
+    private final BillDailyRollupMapper rollupMapper;
+    private final BillColumnStore billColumnStore;
     private final BillCategoryService billCategoryService;
+    private final BillRollupService billRollupService;
+    private final SpendForecastService spendForecastService;
 
     @Override
     public String generateMonthlyInsight(Long userId, LocalDate targetDate) {
-        DateRange range = calculateMonthlyDateRange(targetDate);
-        return buildFinancialSummary(userId, range.start(), range.end(), "MONTHLY");
+        return renderPrompt(computeMetrics(userId, BudgetType.MONTHLY.getValue(), targetDate));
     }
 
     @Override
     public String generateQuarterlyInsight(Long userId, LocalDate targetDate) {
-        DateRange range = calculateQuarterlyDateRange(targetDate);
-        return buildFinancialSummary(userId, range.start(), range.end(), "QUARTERLY");
+        return renderPrompt(computeMetrics(userId, BudgetType.QUARTERLY.getValue(), targetDate));
     }
 
     @Override
     public String generateYearlyInsight(Long userId, LocalDate targetDate) {
-        DateRange range = calculateYearlyDateRange(targetDate);
-        return buildFinancialSummary(userId, range.start(), range.end(), "YEARLY");
+        return renderPrompt(computeMetrics(userId, BudgetType.YEARLY.getValue(), targetDate));
     }
 
     @Override
     public String buildFinancialSummary(Long userId, LocalDate startDate, LocalDate endDate, String period) {
-        log.debug("构建用户{}的财务摘要: {} 到 {}, 周期: {}", userId, startDate, endDate, period);
-
-        StringBuilder summary = new StringBuilder();
-        
-        summary.append("📊 财务数据分析报告\n");
-        summary.append("分析周期: ").append(startDate.format(DATE_FORMATTER))
-               .append(" 至 ").append(endDate.format(DATE_FORMATTER)).append("\n\n");
-
-        List<UserBudget> budgets = userBudgetService.getActiveBudgets(userId, startDate);
-        UserBudget currentBudget = budgets.stream()
-                .filter(budget -> period.equals(budget.getBudgetType()))
-                .findFirst()
-                .orElse(null);
-
-        List<Bill> bills = getBillsInPeriod(userId, startDate, endDate);
-        BigDecimal totalIncome = calculateTotalIncome(bills);
-        BigDecimal totalExpense = calculateTotalExpense(bills);
-
-        appendBudgetInfo(summary, currentBudget, totalExpense, period);
-        appendIncomeExpenseSummary(summary, totalIncome, totalExpense);
-        appendCategoryAnalysis(summary, bills, totalExpense);
-        appendBillStatistics(summary, bills);
-        appendAverageExpense(summary, bills, totalExpense);
-        appendTrendPrediction(summary, totalExpense, startDate, endDate, currentBudget);
-
-        summary.append("🤖 请小咩根据以上数据为我提供专业的财务建议和洞察分析。");
-
-        return summary.toString();
+        return renderPrompt(buildMetrics(userId, startDate, endDate, period));
     }
 
-    private List<Bill> getBillsInPeriod(Long userId, LocalDate startDate, LocalDate endDate) {
-        return billService.listByUserIdAndDateRange(userId, startDate, endDate);
+    @Override
+    public InsightMetrics computeMetrics(Long userId, String period, LocalDate targetDate) {
+        String normalized = period != null ? period.toUpperCase(Locale.ROOT) : "";
+        DateRange range = switch (normalized) {
+            case "MONTHLY" -> calculateMonthlyDateRange(targetDate);
+            case "QUARTERLY" -> calculateQuarterlyDateRange(targetDate);
+            case "YEARLY" -> calculateYearlyDateRange(targetDate);
+            default -> throw new IllegalArgumentException("不支持的分析周期: " + period);
+        };
+        return buildMetrics(userId, range.start(), range.end(), normalized);
     }
 
-    private String getCategoryName(Long categoryId) {
-        try {
-            BillCategory category = billCategoryService.getById(categoryId);
-            return category != null ? category.getCategoryName() : "未分类";
-        } catch (Exception e) {
-            log.warn("获取分类名称失败: {}", categoryId);
-            return "未分类";
+    /**
+     * 紧凑提示词：每类指标一行、无装饰符号，金额保留两位小数
+     */
+    @Override
+    public String renderPrompt(InsightMetrics metrics) {
+        StringBuilder prompt = new StringBuilder(512);
+        prompt.append("周期:").append(metrics.getPeriod()).append(' ')
+              .append(metrics.getStartDate().format(DATE_FORMATTER)).append('~')
+              .append(metrics.getEndDate().format(DATE_FORMATTER)).append('\n');
+        prompt.append("收入:").append(metrics.getTotalIncome())
+              .append(" 支出:").append(metrics.getTotalExpense())
+              .append(" 净额:").append(metrics.getNetBalance()).append('\n');
+        prompt.append("笔数:").append(metrics.getBillCount())
+              .append(" 收入").append(metrics.getIncomeCount())
+              .append(" 支出").append(metrics.getExpenseCount());
+        if (metrics.getAverageExpense() != null) {
+            prompt.append(" 单笔均支出:").append(metrics.getAverageExpense());
         }
-    }
+        prompt.append('\n');
 
-    private BigDecimal calculateTotalIncome(List<Bill> bills) {
-        return bills.stream()
-                .filter(bill -> "income".equalsIgnoreCase(bill.getTransactionType()))
-                .map(Bill::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal calculateTotalExpense(List<Bill> bills) {
-        return bills.stream()
-                .filter(bill -> "expense".equalsIgnoreCase(bill.getTransactionType()))
-                .map(Bill::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private void appendBudgetInfo(StringBuilder summary, UserBudget budget, BigDecimal totalExpense, String period) {
-        if (budget != null) {
-            summary.append("💰 预算情况:\n");
-            summary.append("预算金额: ¥").append(budget.getBudgetAmount()).append("\n");
-            summary.append("已支出: ¥").append(totalExpense).append("\n");
-            
-            BigDecimal remaining = budget.getBudgetAmount().subtract(totalExpense);
-            summary.append("剩余预算: ¥").append(remaining).append("\n");
-            
-            BigDecimal usagePercentage = totalExpense
-                    .divide(budget.getBudgetAmount(), CALCULATION_SCALE, RoundingMode.HALF_UP)
-                    .multiply(HUNDRED);
-            summary.append("预算使用率: ").append(usagePercentage.setScale(PERCENTAGE_SCALE, RoundingMode.HALF_UP))
-                   .append("%\n\n");
+        if (metrics.getBudgetAmount() != null) {
+            prompt.append("预算:").append(metrics.getBudgetAmount())
+                  .append(" 剩余:").append(metrics.getBudgetRemaining())
+                  .append(" 使用率:").append(metrics.getBudgetUsagePercentage()).append("%\n");
         } else {
-            summary.append("💰 预算情况: 未设置").append(period.toLowerCase()).append("预算\n\n");
+            prompt.append("预算:未设置\n");
         }
-    }
-
-    private void appendIncomeExpenseSummary(StringBuilder summary, BigDecimal totalIncome, BigDecimal totalExpense) {
-        summary.append("📈 收支概况:\n");
-        summary.append("总收入: ¥").append(totalIncome).append("\n");
-        summary.append("总支出: ¥").append(totalExpense).append("\n");
-        BigDecimal balance = totalIncome.subtract(totalExpense);
-        summary.append("净收支: ¥").append(balance).append("\n\n");
-    }
 
-    private void appendCategoryAnalysis(StringBuilder summary, List<Bill> bills, BigDecimal totalExpense) {
-        Map<String, BigDecimal> categoryExpenses = bills.stream()
-                .filter(bill -> "expense".equalsIgnoreCase(bill.getTransactionType()))
-                .filter(bill -> bill.getCategoryId() != null)
-                .collect(Collectors.groupingBy(
-                    bill -> getCategoryName(bill.getCategoryId()),
-                    Collectors.reducing(BigDecimal.ZERO, Bill::getTotalAmount, BigDecimal::add)
-                ));
-
-        if (!categoryExpenses.isEmpty()) {
-            summary.append("🏷️ 支出分类分析:\n");
-            categoryExpenses.entrySet().stream()
-                    .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed())
-                    .limit(TOP_CATEGORIES_LIMIT)
-                    .forEach(entry -> {
-                        BigDecimal percentage = totalExpense.compareTo(BigDecimal.ZERO) > 0
-                            ? entry.getValue().divide(totalExpense, CALCULATION_SCALE, RoundingMode.HALF_UP).multiply(HUNDRED)
-                            : BigDecimal.ZERO;
-                        summary.append("- ").append(entry.getKey()).append(": ¥")
-                               .append(entry.getValue()).append(" (")
-                               .append(percentage.setScale(PERCENTAGE_SCALE, RoundingMode.HALF_UP)).append("%)\n");
-                    });
-            summary.append("\n");
+        List<CategoryShare> categories = metrics.getCategories();
+        if (categories != null && !categories.isEmpty()) {
+            prompt.append("支出分类:");
+            int limit = Math.min(TOP_CATEGORIES_LIMIT, categories.size());
+            for (int i = 0; i < limit; i++) {
+                CategoryShare share = categories.get(i);
+                if (i > 0) {
+                    prompt.append(';');
+                }
+                prompt.append(share.getCategoryName()).append(' ').append(share.getAmount())
+                      .append('(').append(share.getPercentage()).append("%)");
+            }
+            prompt.append('\n');
         }
-    }
 
-    private void appendBillStatistics(StringBuilder summary, List<Bill> bills) {
-        long incomeCount = bills.stream()
-                .filter(bill -> "income".equalsIgnoreCase(bill.getTransactionType()))
-                .count();
-        long expenseCount = bills.stream()
-                .filter(bill -> "expense".equalsIgnoreCase(bill.getTransactionType()))
-                .count();
-
-        summary.append("📋 账单统计:\n");
-        summary.append("总账单数: ").append(bills.size()).append("笔\n");
-        summary.append("收入账单: ").append(incomeCount).append("笔\n");
-        summary.append("支出账单: ").append(expenseCount).append("笔\n\n");
-    }
-
-    private void appendAverageExpense(StringBuilder summary, List<Bill> bills, BigDecimal totalExpense) {
-        if (totalExpense.compareTo(BigDecimal.ZERO) <= 0) {
-            return;
+        if (metrics.getProjectedTotalExpense() != null) {
+            prompt.append("进度:已过").append(metrics.getElapsedDays()).append("天 剩余").append(metrics.getRemainingDays())
+                  .append("天 日均支出:").append(metrics.getDailyBurnRate())
+                  .append(" 预计剩余支出:").append(metrics.getProjectedRemainingExpense())
+                  .append(" 预计总支出:").append(metrics.getProjectedTotalExpense())
+                  .append(" 预测方法:").append(PROJECTION_LINEAR.equals(metrics.getProjectionMethod()) ? "日均外推" : "周季节性平滑");
+            if (metrics.getProjectedOverBudget() != null) {
+                prompt.append(" 预计超预算:").append(metrics.getProjectedOverBudget());
+            }
+            prompt.append('\n');
         }
 
-        long expenseBillCount = bills.stream()
-                .filter(bill -> "expense".equalsIgnoreCase(bill.getTransactionType()))
-                .count();
-
-        if (expenseBillCount > 0) {
-            BigDecimal avgExpense = totalExpense.divide(new BigDecimal(expenseBillCount), 2, RoundingMode.HALF_UP);
-            summary.append("💳 平均单笔支出: ¥").append(avgExpense).append("\n\n");
-        }
+        prompt.append("请根据以上数据给出财务建议和洞察分析。");
+        return prompt.toString();
     }
 
-    private void appendTrendPrediction(StringBuilder summary, BigDecimal totalExpense, 
-                                      LocalDate startDate, LocalDate endDate, UserBudget budget) {
-        LocalDate now = LocalDate.now();
-        if (!endDate.isAfter(now)) {
-            return;
-        }
+    private InsightMetrics buildMetrics(Long userId, LocalDate startDate, LocalDate endDate, String period) {
+        log.debug("计算用户{}的财务指标: {} 到 {}, 周期: {}", userId, startDate, endDate, period);
 
-        long passedDays = startDate.until(now).getDays() + 1;
-        long remainingDays = now.until(endDate).getDays();
+        UserBudget currentBudget = userBudgetService.getActiveBudgets(userId, startDate).stream()
+                .filter(budget -> period.equals(budget.getBudgetType()))
+                .findFirst()
+                .orElse(null);
 
-        if (remainingDays <= 0 || passedDays <= 0) {
-            return;
+        MetricsAccumulator accumulator = new MetricsAccumulator();
+        for (BillCategoryAggregate aggregate : loadAggregates(userId, startDate, endDate)) {
+            accumulator.add(aggregate);
         }
+        LocalDate today = LocalDate.now();
+        SpendForecast forecast = endDate.isAfter(today) ? spendForecastService.getForecast(userId) : null;
+        return accumulator.toMetrics(period, startDate, endDate, currentBudget, today, forecast);
+    }
 
-        BigDecimal dailyAvgExpense = totalExpense.divide(new BigDecimal(passedDays), 2, RoundingMode.HALF_UP);
-        BigDecimal projectedExpense = dailyAvgExpense.multiply(new BigDecimal(remainingDays));
-
-        summary.append("🔮 趋势预测:\n");
-        summary.append("已过天数: ").append(passedDays).append("天\n");
-        summary.append("剩余天数: ").append(remainingDays).append("天\n");
-        summary.append("日均支出: ¥").append(dailyAvgExpense).append("\n");
-        summary.append("预计剩余支出: ¥").append(projectedExpense).append("\n");
-
-        if (budget != null) {
-            BigDecimal projectedTotal = totalExpense.add(projectedExpense);
-            summary.append("预计总支出: ¥").append(projectedTotal).append("\n");
-            if (projectedTotal.compareTo(budget.getBudgetAmount()) > 0) {
-                BigDecimal overBudget = projectedTotal.subtract(budget.getBudgetAmount());
-                summary.append("⚠️ 预计超预算: ¥").append(overBudget).append("\n");
-            }
+    private List<BillCategoryAggregate> loadAggregates(Long userId, LocalDate startDate, LocalDate endDate) {
+        BillColumnStore.UserColumns columns = billColumnStore.acquire(userId);
+        if (columns == null) {
+            return billRollupService.isBuilt()
+                    ? rollupMapper.selectCategoryAggregates(userId, startDate, endDate)
+                    : rollupMapper.selectCategoryAggregatesFromBill(userId, startDate, endDate);
         }
-        summary.append("\n");
+        List<BillCategoryAggregate> aggregates = billColumnStore.categoryAggregates(columns, startDate, endDate);
+        Map<Long, String> categoryNames = billCategoryService.getCategoryNames(userId);
+        aggregates.forEach(aggregate -> aggregate.setCategoryName(categoryNames.get(aggregate.getCategoryId())));
+        return aggregates;
     }
 
     private DateRange calculateMonthlyDateRange(LocalDate targetDate) {
@@ -256,4 +202,111 @@ public class AiInsightServiceImpl implements AiInsightService {
     }
 
     private record DateRange(LocalDate start, LocalDate end) {}
+
+
+    /**
+     * 单遍累加器：逐行累加聚合结果（以分为单位的 long 计算），最后一次性派生平均值、占比与预测
+     */
+    private static final class MetricsAccumulator {
+
+        private long incomeCents;
+        private long expenseCents;
+        private long incomeCount;
+        private long expenseCount;
+        private long billCount;
+        private final Map<String, long[]> categoryExpense = new HashMap<>();
+
+        void add(BillCategoryAggregate aggregate) {
+            long cents = aggregate.getTotalCents() != null ? aggregate.getTotalCents() : 0L;
+            long count = aggregate.getBillCount() != null ? aggregate.getBillCount() : 0L;
+            billCount += count;
+            if (TransactionType.INCOME.getValue().equalsIgnoreCase(aggregate.getTransactionType())) {
+                incomeCents += cents;
+                incomeCount += count;
+            } else if (TransactionType.EXPENSE.getValue().equalsIgnoreCase(aggregate.getTransactionType())) {
+                expenseCents += cents;
+                expenseCount += count;
+                boolean categorized = aggregate.getCategoryId() != null
+                        && aggregate.getCategoryId() != BillDailyRollup.UNCATEGORIZED_ID
+                        && aggregate.getCategoryName() != null;
+                long[] bucket = categoryExpense.computeIfAbsent(categorized ? aggregate.getCategoryName() : UNCATEGORIZED,
+                        k -> new long[2]);
+                bucket[0] += cents;
+                bucket[1] += count;
+            }
+        }
+
+        InsightMetrics toMetrics(String period, LocalDate startDate, LocalDate endDate, UserBudget budget, LocalDate today,
+                                 SpendForecast forecast) {
+            BigDecimal totalIncome = CentsKernel.toAmount(incomeCents);
+            BigDecimal totalExpense = CentsKernel.toAmount(expenseCents);
+
+            InsightMetrics.InsightMetricsBuilder builder = InsightMetrics.builder()
+                    .period(period)
+                    .startDate(startDate)
+                    .endDate(endDate)
+                    .totalIncome(totalIncome)
+                    .totalExpense(totalExpense)
+                    .netBalance(CentsKernel.toAmount(incomeCents - expenseCents))
+                    .billCount(billCount)
+                    .incomeCount(incomeCount)
+                    .expenseCount(expenseCount)
+                    .averageExpense(expenseCount > 0 ? divide(totalExpense, expenseCount) : null)
+                    .categories(buildCategoryShares());
+
+            if (budget != null && budget.getBudgetAmount() != null) {
+                builder.budgetAmount(budget.getBudgetAmount())
+                        .budgetRemaining(budget.getBudgetAmount().subtract(totalExpense))
+                        .budgetUsagePercentage(percentage(totalExpense, budget.getBudgetAmount()));
+            }
+
+            long elapsedDays = today.isBefore(startDate) ? 0
+                    : ChronoUnit.DAYS.between(startDate, today.isAfter(endDate) ? endDate : today) + 1;
+            long remainingDays = endDate.isAfter(today) && !today.isBefore(startDate)
+                    ? ChronoUnit.DAYS.between(today, endDate) : 0;
+            builder.elapsedDays(elapsedDays).remainingDays(remainingDays);
+
+            if (elapsedDays > 0) {
+                BigDecimal dailyBurnRate = divide(totalExpense, elapsedDays);
+                builder.dailyBurnRate(dailyBurnRate);
+                if (remainingDays > 0) {
+                    // 有预测模型时使用逐日预测值（含当天尚未发生的部分），否则按日均线性外推
+                    BigDecimal projectedRemaining = forecast != null
+                            ? forecast.remainingExpense(endDate)
+                            : dailyBurnRate.multiply(BigDecimal.valueOf(remainingDays));
+                    BigDecimal projectedTotal = totalExpense.add(projectedRemaining);
+                    builder.projectedRemainingExpense(projectedRemaining)
+                            .projectedTotalExpense(projectedTotal)
+                            .projectionMethod(forecast != null ? forecast.getMethod() : PROJECTION_LINEAR);
+                    if (budget != null && budget.getBudgetAmount() != null
+                            && projectedTotal.compareTo(budget.getBudgetAmount()) > 0) {
+                        builder.projectedOverBudget(projectedTotal.subtract(budget.getBudgetAmount()));
+                    }
+                }
+            }
+            return builder.build();
+        }
+
+        private List<CategoryShare> buildCategoryShares() {
+            BigDecimal totalExpense = CentsKernel.toAmount(expenseCents);
+            List<CategoryShare> shares = new ArrayList<>(categoryExpense.size());
+            categoryExpense.forEach((name, bucket) -> {
+                BigDecimal amount = CentsKernel.toAmount(bucket[0]);
+                shares.add(new CategoryShare(name, amount, bucket[1], percentage(amount, totalExpense)));
+            });
+            shares.sort(Comparator.comparing(CategoryShare::getAmount).reversed());
+            return shares;
+        }
+
+        private static BigDecimal divide(BigDecimal amount, long divisor) {
+            return amount.divide(BigDecimal.valueOf(divisor), CentsKernel.AMOUNT_SCALE, RoundingMode.HALF_UP);
+        }
+
+        private static BigDecimal percentage(BigDecimal part, BigDecimal whole) {
+            if (whole.signum() <= 0) {
+                return BigDecimal.ZERO.setScale(PERCENTAGE_SCALE);
+            }
+            return part.multiply(HUNDRED).divide(whole, PERCENTAGE_SCALE, RoundingMode.HALF_UP);
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package org.maram.bill.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.constants.PromptTemplates;
+import org.maram.bill.common.enums.BudgetType;
+import org.maram.bill.config.ai.ChatConfig;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.AiInsightSnapshot;
+import org.maram.bill.entity.User;
+import org.maram.bill.mapper.AiInsightSnapshotMapper;
+import org.maram.bill.mapper.UserMapper;
+import org.maram.bill.service.AiInsightService;
+import org.maram.bill.service.AiInsightService.InsightMetrics;
+import org.maram.bill.service.AiInsightSnapshotService;
+import org.maram.bill.service.support.InsightResultCache;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AI 洞察预计算快照服务实现类
+ *
+ * 预计算使用固定大小线程池限制并发，并按最小间隔对模型调用限速，避免触发服务商限流。
+ * Spring AI 的 ChatModel 不提供服务商的批处理接口，因此这里以限速的同步调用代替。
+ * 定时任务在每个节点都会触发，通过 Redis 锁保证同一时间只有一个节点执行预计算，避免重复调用模型。
+ */
+@Service
+@Slf4j
+public class AiInsightSnapshotServiceImpl implements AiInsightSnapshotService {
+
+    private static final List<BudgetType> PRECOMPUTE_PERIODS = List.of(BudgetType.MONTHLY, BudgetType.QUARTERLY);
+    private static final long MAX_RUN_HOURS = 3;
+    private static final String PRECOMPUTE_LOCK_KEY = "ai:insight:precompute:lock";
+    // 锁的有效期长于单次执行的最长时间，节点异常退出时锁到期自动释放
+    private static final Duration PRECOMPUTE_LOCK_TTL = Duration.ofHours(MAX_RUN_HOURS + 1);
+
+    private final AiInsightSnapshotMapper snapshotMapper;
+    private final UserMapper userMapper;
+    private final AiInsightService aiInsightService;
+    private final InsightResultCache insightResultCache;
+    private final ChatModel chatModel;
+    private final ChatConfig chatConfig;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final AppConfigProperties.Insight properties;
+
+    private final Object pacingLock = new Object();
+    private long nextCallAt;
+
+    public AiInsightSnapshotServiceImpl(AiInsightSnapshotMapper snapshotMapper,
+                                        UserMapper userMapper,
+                                        AiInsightService aiInsightService,
+                                        InsightResultCache insightResultCache,
+                                        ChatModel chatModel,
+                                        ChatConfig chatConfig,
+                                        StringRedisTemplate stringRedisTemplate,
+                                        AppConfigProperties appConfigProperties) {
+        this.snapshotMapper = snapshotMapper;
+        this.userMapper = userMapper;
+        this.aiInsightService = aiInsightService;
+        this.insightResultCache = insightResultCache;
+        this.chatModel = chatModel;
+        this.chatConfig = chatConfig;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = appConfigProperties.getInsight();
+    }
+
+    @Override
+    public String findFresh(Long userId, InsightResultCache.Version version, InsightMetrics metrics, String model) {
+        if (!version.isValid()) {
+            return null;
+        }
+        AiInsightSnapshot snapshot = snapshotMapper.selectSnapshot(userId, metrics.getPeriod(), metrics.getStartDate(), model);
+        if (snapshot == null || snapshot.getDataVersion() == null || snapshot.getDataVersion() != version.data()
+                || !version.categoryToken().equals(snapshot.getCategoryVersion())) {
+            return null;
+        }
+        LocalDate generatedOn = snapshot.getGeneratedAt().toLocalDate();
+        boolean periodClosed = generatedOn.isAfter(metrics.getEndDate());
+        return periodClosed || generatedOn.equals(LocalDate.now()) ? snapshot.getContent() : null;
+    }
+
+    @Override
+    public int precomputeRecentlyActive() {
+        if (!properties.isPrecomputeEnabled()) {
+            return 0;
+        }
+        try {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(PRECOMPUTE_LOCK_KEY, "1", PRECOMPUTE_LOCK_TTL))) {
+                log.info("其他节点正在执行洞察预计算，跳过");
+                return 0;
+            }
+        } catch (Exception e) {
+            log.warn("获取洞察预计算锁失败，跳过本次预计算", e);
+            return 0;
+        }
+        try {
+            return precomputeUsers();
+        } finally {
+            stringRedisTemplate.delete(PRECOMPUTE_LOCK_KEY);
+        }
+    }
+
+    private int precomputeUsers() {
+        long start = System.currentTimeMillis();
+        List<User> users = userMapper.selectActiveSince(LocalDateTime.now().minusDays(properties.getPrecomputeActiveDays()));
+        if (users.isEmpty()) {
+            return 0;
+        }
+
+        LocalDate today = LocalDate.now();
+        AtomicInteger generated = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.getPrecomputeConcurrency()), runnable -> {
+            Thread thread = new Thread(runnable, "insight-precompute");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (User user : users) {
+                for (BudgetType period : PRECOMPUTE_PERIODS) {
+                    LocalDate previous = period == BudgetType.MONTHLY ? today.minusMonths(1) : today.minusMonths(3);
+                    for (LocalDate targetDate : List.of(today, previous)) {
+                        executor.submit(() -> {
+                            try {
+                                if (precompute(user, period.getValue(), targetDate)) {
+                                    generated.incrementAndGet();
+                                }
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } catch (Exception e) {
+                                failed.incrementAndGet();
+                                log.warn("预计算用户 {} 的{}洞察失败", user.getId(), period.getValue(), e);
+                            }
+                        });
+                    }
+                }
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(MAX_RUN_HOURS, TimeUnit.HOURS)) {
+                log.warn("洞察预计算超过 {} 小时未完成，取消剩余任务", MAX_RUN_HOURS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("洞察预计算完成: 用户数={}, 新生成={}, 失败={}, 耗时={}ms",
+                users.size(), generated.get(), failed.get(), System.currentTimeMillis() - start);
+        return generated.get();
+    }
+
+    private boolean precompute(User user, String period, LocalDate targetDate) throws InterruptedException {
+        InsightResultCache.Version version = insightResultCache.read(user.getId());
+        if (!version.isValid()) {
+            return false;
+        }
+        InsightMetrics metrics = aiInsightService.computeMetrics(user.getId(), period, targetDate);
+        if (metrics.getBillCount() == 0) {
+            return false;
+        }
+        ChatConfig.UserAiConfigInfo aiConfig = chatConfig.getUserAiConfig(user.getOpenid());
+        if (findFresh(user.getId(), version, metrics, aiConfig.getModel()) != null) {
+            return false;
+        }
+
+        awaitCallSlot();
+        String content = ChatClient.builder(chatModel)
+                .defaultOptions(OpenAiChatOptions.builder()
+                        .model(aiConfig.getModel())
+                        .temperature(aiConfig.getTemperature())
+                        .build())
+                .build()
+                .prompt()
+                .system(PromptTemplates.System.INSIGHT_TEMPLATE)
+                .user(aiInsightService.renderPrompt(metrics))
+                .call()
+                .content();
+        if (content == null || content.isBlank()) {
+            return false;
+        }
+
+        snapshotMapper.upsert(AiInsightSnapshot.builder()
+                .userId(user.getId())
+                .period(metrics.getPeriod())
+                .startDate(metrics.getStartDate())
+                .endDate(metrics.getEndDate())
+                .model(aiConfig.getModel())
+                .dataVersion(version.data())
+                .categoryVersion(version.categoryToken())
+                .content(content)
+                .generatedAt(LocalDateTime.now())
+                .build());
+        return true;
+    }
+
+    /**
+     * 按最小间隔分配调用时间片，多个线程共享同一速率
+     */
+    private void awaitCallSlot() throws InterruptedException {
+        long waitMs;
+        synchronized (pacingLock) {
+            long now = System.currentTimeMillis();
+            long slot = Math.max(now, nextCallAt);
+            nextCallAt = slot + properties.getPrecomputeMinIntervalMs();
+            waitMs = slot - now;
+        }
+        if (waitMs > 0) {
+            Thread.sleep(waitMs);
+        }
+    }
+}
@@ -1,20 +1,34 @@
 package org.maram.bill.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.utils.AhoCorasick;
+import org.maram.bill.entity.Bill;
 import org.maram.bill.entity.BillCategory;
-import org.maram.bill.mapper.BillCategoryMapper;
+import org.maram.bill.entity.CategoryKeyword;
+import org.maram.bill.mapper.BillMapper;
+import org.maram.bill.mapper.CategoryKeywordMapper;
 import org.maram.bill.service.BillCategoryMatchingService;
-import org.maram.bill.service.BillCategoryService;
+import org.maram.bill.service.support.CategoryIndex;
+import org.maram.bill.service.support.CategoryVectorIndex;
+import org.maram.bill.service.support.CategoryVersion;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * 账单分类智能匹配服务实现类
+ *
+ * 每个用户的可用分类名称、描述词、内置关键词与 category_keyword 表中的关键词编译为一个 Aho-Corasick 自动机，
+ * 匹配时对账单文本做一次线性扫描，命中的模式按权重累加到对应分类（同一模式对同一分类只计一次）。
+ * 自动机按用户缓存，并记录构建时的分类版本号，用户分类、关键词或系统分类变化后在下次匹配时重建。
+ * 名称精确匹配与可用分类列表读取 {@link CategoryIndex} 的内存快照，不查库。
+ * 精确匹配与关键词匹配都未命中时，启用了向量索引则再按 {@link CategoryVectorIndex} 做最近邻匹配。
  */
 @Service
 @Slf4j
@@ -40,8 +54,22 @@ public class BillCategoryMatchingServiceImpl implements BillCategoryMatchingServ
         Map.entry("住房", List.of("住房", "房租", "物业", "装修", "家具", "水电费", "燃气费"))
     );
 
-    private final BillCategoryMapper billCategoryMapper;
-    private final BillCategoryService billCategoryService;
+    private static final long MATCHER_CACHE_MAX_SIZE = 10000;
+    private static final String DESCRIPTION_TERM_SEPARATOR = "[\\s,，、。;；:：/|()（）]+";
+    private static final int MIN_DESCRIPTION_TERM_LENGTH = 2;
+
+    private final CategoryIndex categoryIndex;
+    private final CategoryKeywordMapper categoryKeywordMapper;
+    private final CategoryVectorIndex categoryVectorIndex;
+    private final BillMapper billMapper;
+
+    /**
+     * 用户ID -> 编译后的分类匹配器
+     */
+    private final Cache<Long, CategoryMatcher> matchers = Caffeine.newBuilder()
+            .maximumSize(MATCHER_CACHE_MAX_SIZE)
+            .expireAfterAccess(Duration.ofHours(6))
+            .build();
 
     @Override
     public Long matchCategory(String billType, String transactionType, Long userId) {
@@ -51,6 +79,23 @@ public class BillCategoryMatchingServiceImpl implements BillCategoryMatchingServ
             return null;
         }
 
+        Long matched = findMatchingCategory(billType, userId);
+        if (matched != null) {
+            return matched;
+        }
+
+        // 已有分类中都没有匹配到，尝试创建默认分类
+        Long defaultCategoryId = getOrCreateDefaultCategory(billType, userId);
+        log.debug("创建或获取默认分类: {}", defaultCategoryId);
+        return defaultCategoryId;
+    }
+
+    @Override
+    public Long findMatchingCategory(String billType, Long userId) {
+        if (!StringUtils.hasText(billType)) {
+            return null;
+        }
+
         // 1. 首先尝试精确匹配分类名称
         Long exactMatch = findCategoryIdByName(billType, userId);
         if (exactMatch != null) {
@@ -58,42 +103,34 @@ public class BillCategoryMatchingServiceImpl implements BillCategoryMatchingServ
             return exactMatch;
         }
 
-        // 2. 尝试关键词模糊匹配
-        List<String> keywords = Arrays.asList(billType.split("[\\s,，、]"));
-        List<BillCategory> fuzzyMatches = fuzzyMatchCategories(keywords, userId);
+        // 2. 对文本做一次自动机扫描，按命中模式的权重打分
+        List<BillCategory> fuzzyMatches = matcherFor(userId).rank(billType);
         if (!fuzzyMatches.isEmpty()) {
             log.debug("模糊匹配到分类: {}", fuzzyMatches.get(0).getId());
             return fuzzyMatches.get(0).getId();
         }
 
-        // 3. 如果没有匹配到，尝试创建默认分类
-        Long defaultCategoryId = getOrCreateDefaultCategory(billType, userId);
-        log.debug("创建或获取默认分类: {}", defaultCategoryId);
-        return defaultCategoryId;
+        // 3. 向量最近邻匹配（未启用时跳过）
+        Long nearest = categoryVectorIndex.nearestCategory(userId, billType);
+        if (nearest != null) {
+            log.debug("向量匹配到分类: {}", nearest);
+            return nearest;
+        }
+
+        return null;
     }
 
     @Override
     public List<BillCategory> fuzzyMatchCategories(List<String> keywords, Long userId) {
-        List<BillCategory> userCategories = billCategoryService.listByUserId(userId);
-        Map<BillCategory, Integer> scoreMap = new HashMap<>();
-
-        for (BillCategory category : userCategories) {
-            int score = calculateMatchScore(category, keywords);
-            if (score > 0) {
-                scoreMap.put(category, score);
-            }
+        if (keywords == null || keywords.isEmpty()) {
+            return Collections.emptyList();
         }
-
-        return scoreMap.entrySet().stream()
-                .sorted(Map.Entry.<BillCategory, Integer>comparingByValue().reversed())
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        return matcherFor(userId).rank(String.join("\n", keywords));
     }
 
     @Override
     public List<String> getAvailableCategoryNames(Long userId) {
-        List<BillCategory> categories = billCategoryService.listByUserId(userId);
-        return categories.stream()
+        return categoryIndex.get(userId).categories().stream()
                 .filter(category -> CATEGORY_STATUS_ENABLED == category.getStatus())
                 .map(BillCategory::getCategoryName)
                 .collect(Collectors.toList());
@@ -105,17 +142,7 @@ public class BillCategoryMatchingServiceImpl implements BillCategoryMatchingServ
             return null;
         }
 
-        LambdaQueryWrapper<BillCategory> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.and(wrapper -> 
-            wrapper.eq(BillCategory::getUserId, userId)
-            .or()
-            .isNull(BillCategory::getUserId)
-        );
-        queryWrapper.eq(BillCategory::getCategoryName, categoryName.trim())
-                   .eq(BillCategory::getStatus, CATEGORY_STATUS_ENABLED);
-
-        BillCategory category = billCategoryMapper.selectOne(queryWrapper);
-        return category != null ? category.getId() : null;
+        return categoryIndex.get(userId).findEnabledIdByName(categoryName);
     }
 
     @Override
@@ -138,31 +165,207 @@ public class BillCategoryMatchingServiceImpl implements BillCategoryMatchingServ
         return null;
     }
 
-    private int calculateMatchScore(BillCategory category, List<String> keywords) {
-        int score = 0;
-        String categoryName = category.getCategoryName().toLowerCase();
-        String description = category.getDescription() != null ? category.getDescription().toLowerCase() : "";
-
-        for (String keyword : keywords) {
-            String lowerKeyword = keyword.toLowerCase().trim();
-            if (lowerKeyword.isEmpty()) {
+    @Override
+    public MatchEvaluation evaluate(Long userId, int sampleSize) {
+        MatchEvaluation evaluation = new MatchEvaluation();
+        evaluation.setVectorEnabled(categoryVectorIndex.isEnabled());
+        List<Bill> samples = billMapper.selectRecentCategorizedBills(userId, sampleSize);
+        long[] keywordNanos = new long[samples.size()];
+        long[] vectorNanos = new long[samples.size()];
+        int evaluated = 0;
+        int combinedHits = 0;
+        for (Bill bill : samples) {
+            String text = firstNonBlank(bill.getBillType(), bill.getName(), bill.getSupplierName());
+            if (text == null) {
                 continue;
             }
+            long start = System.nanoTime();
+            Long keywordMatch = findCategoryIdByName(text, userId);
+            if (keywordMatch == null) {
+                List<BillCategory> ranked = matcherFor(userId).rank(text);
+                keywordMatch = ranked.isEmpty() ? null : ranked.get(0).getId();
+            }
+            keywordNanos[evaluated] = System.nanoTime() - start;
+
+            Long vectorMatch = null;
+            if (evaluation.isVectorEnabled()) {
+                start = System.nanoTime();
+                vectorMatch = categoryVectorIndex.nearestCategory(userId, text);
+                vectorNanos[evaluated] = System.nanoTime() - start;
+            }
+
+            record(evaluation.getKeyword(), keywordMatch, bill.getCategoryId());
+            record(evaluation.getVector(), vectorMatch, bill.getCategoryId());
+            Long combined = keywordMatch != null ? keywordMatch : vectorMatch;
+            if (bill.getCategoryId().equals(combined)) {
+                combinedHits++;
+            }
+            evaluated++;
+        }
+        evaluation.setSamples(evaluated);
+        summarize(evaluation.getKeyword(), keywordNanos, evaluated);
+        if (evaluation.isVectorEnabled()) {
+            summarize(evaluation.getVector(), vectorNanos, evaluated);
+        }
+        evaluation.setCombinedRecall(evaluated > 0 ? (double) combinedHits / evaluated : 0);
+        log.info("用户 {} 分类匹配评估: 样本={}, 关键词召回={}, 向量召回={}, 组合召回={}", userId, evaluated,
+                evaluation.getKeyword().getRecall(), evaluation.getVector().getRecall(), evaluation.getCombinedRecall());
+        return evaluation;
+    }
+
+    private void record(MatcherStats stats, Long matched, Long actual) {
+        if (matched == null) {
+            return;
+        }
+        if (matched.equals(actual)) {
+            stats.setHits(stats.getHits() + 1);
+        } else {
+            stats.setMisses(stats.getMisses() + 1);
+        }
+    }
+
+    private void summarize(MatcherStats stats, long[] nanos, int count) {
+        if (count == 0) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        stats.setRecall((double) stats.getHits() / count);
+        stats.setAverageMicros(Arrays.stream(sorted).average().orElse(0) / 1000.0);
+        stats.setP95Micros(sorted[Math.min(count - 1, (int) Math.ceil(count * 0.95) - 1)] / 1000.0);
+    }
+
+    private String firstNonBlank(String... values) {
+        for (String value : values) {
+            if (StringUtils.hasText(value)) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
 
-            if (categoryName.equals(lowerKeyword)) {
-                score += SCORE_EXACT_MATCH;
-            } else if (categoryName.contains(lowerKeyword)) {
-                score += SCORE_CONTAINS_MATCH;
-            } else if (description.contains(lowerKeyword)) {
-                score += SCORE_DESCRIPTION_MATCH;
-            } else {
-                List<String> categoryKeywords = CATEGORY_KEYWORDS.get(category.getCategoryName());
-                if (categoryKeywords != null && categoryKeywords.contains(lowerKeyword)) {
-                    score += SCORE_KEYWORD_MATCH;
+    private CategoryMatcher matcherFor(Long userId) {
+        CategoryIndex.Snapshot snapshot = categoryIndex.get(userId);
+        CategoryVersion.Stamp stamp = snapshot.stamp();
+        CategoryMatcher cached = matchers.getIfPresent(userId);
+        if (stamp.isValid() && cached != null && cached.stamp().equals(stamp)) {
+            return cached;
+        }
+        CategoryMatcher matcher = buildMatcher(userId, snapshot);
+        if (stamp.isValid()) {
+            matchers.put(userId, matcher);
+        }
+        return matcher;
+    }
+
+    /**
+     * 汇总用户可用分类的全部模式串并编译自动机
+     */
+    private CategoryMatcher buildMatcher(Long userId, CategoryIndex.Snapshot snapshot) {
+        List<BillCategory> categories = snapshot.categories().stream()
+                .filter(category -> category.getStatus() != null && CATEGORY_STATUS_ENABLED == category.getStatus())
+                .collect(Collectors.toList());
+        Map<Long, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < categories.size(); i++) {
+            indexById.put(categories.get(i).getId(), i);
+        }
+
+        // 模式串 -> (分类下标 -> 权重)，同一模式对同一分类取最高权重
+        Map<String, Map<Integer, Integer>> weights = new LinkedHashMap<>();
+        Map<String, Set<Integer>> names = new HashMap<>();
+        for (int i = 0; i < categories.size(); i++) {
+            BillCategory category = categories.get(i);
+            addPattern(weights, category.getCategoryName(), i, SCORE_CONTAINS_MATCH);
+            if (StringUtils.hasText(category.getCategoryName())) {
+                names.computeIfAbsent(normalize(category.getCategoryName()), k -> new HashSet<>()).add(i);
+            }
+            if (StringUtils.hasText(category.getDescription())) {
+                for (String term : category.getDescription().split(DESCRIPTION_TERM_SEPARATOR)) {
+                    if (term.length() >= MIN_DESCRIPTION_TERM_LENGTH) {
+                        addPattern(weights, term, i, SCORE_DESCRIPTION_MATCH);
+                    }
                 }
             }
+            for (String keyword : CATEGORY_KEYWORDS.getOrDefault(category.getCategoryName(), List.of())) {
+                addPattern(weights, keyword, i, SCORE_KEYWORD_MATCH);
+            }
         }
+        for (CategoryKeyword keyword : categoryKeywordMapper.selectByUserId(userId)) {
+            Integer index = indexById.get(keyword.getCategoryId());
+            if (index != null) {
+                addPattern(weights, keyword.getKeyword(), index,
+                        keyword.getWeight() != null ? keyword.getWeight() : CategoryKeyword.DEFAULT_WEIGHT);
+            }
+        }
+
+        List<String> patterns = new ArrayList<>(weights.keySet());
+        int[][] targets = new int[patterns.size()][];
+        int[][] scores = new int[patterns.size()][];
+        boolean[][] isName = new boolean[patterns.size()][];
+        for (int p = 0; p < patterns.size(); p++) {
+            Map<Integer, Integer> byCategory = weights.get(patterns.get(p));
+            Set<Integer> nameOf = names.getOrDefault(patterns.get(p), Set.of());
+            targets[p] = new int[byCategory.size()];
+            scores[p] = new int[byCategory.size()];
+            isName[p] = new boolean[byCategory.size()];
+            int k = 0;
+            for (Map.Entry<Integer, Integer> entry : byCategory.entrySet()) {
+                targets[p][k] = entry.getKey();
+                scores[p][k] = entry.getValue();
+                isName[p][k++] = nameOf.contains(entry.getKey());
+            }
+        }
+        log.debug("构建用户 {} 的分类匹配自动机: 分类数={}, 模式数={}", userId, categories.size(), patterns.size());
+        return new CategoryMatcher(snapshot.stamp(), categories, AhoCorasick.build(patterns), targets, scores, isName);
+    }
+
+    private void addPattern(Map<String, Map<Integer, Integer>> weights, String pattern, int categoryIndex, int weight) {
+        if (!StringUtils.hasText(pattern)) {
+            return;
+        }
+        weights.computeIfAbsent(normalize(pattern), k -> new LinkedHashMap<>())
+                .merge(categoryIndex, weight, Math::max);
+    }
 
-        return score;
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 编译后的用户分类匹配器（不可变）
+     */
+    private record CategoryMatcher(CategoryVersion.Stamp stamp, List<BillCategory> categories,
+                                   AhoCorasick automaton, int[][] targets, int[][] scores,
+                                   boolean[][] isName) {
+
+        /**
+         * 扫描文本并按得分降序返回命中的分类，同分按分类排序顺序
+         * 文本与某个分类名称完全一致时该模式按精确匹配计分
+         */
+        List<BillCategory> rank(String text) {
+            String normalized = normalize(text);
+            int[] categoryScores = new int[categories.size()];
+            boolean[] seen = new boolean[targets.length];
+            automaton.match(normalized, (pattern, end) -> {
+                if (seen[pattern]) {
+                    return;
+                }
+                seen[pattern] = true;
+                boolean whole = automaton.patternLength(pattern) == normalized.length();
+                for (int k = 0; k < targets[pattern].length; k++) {
+                    int score = whole && isName[pattern][k] ? SCORE_EXACT_MATCH : scores[pattern][k];
+                    categoryScores[targets[pattern][k]] += score;
+                }
+            });
+
+            List<Integer> matched = new ArrayList<>();
+            for (int i = 0; i < categoryScores.length; i++) {
+                if (categoryScores[i] > 0) {
+                    matched.add(i);
+                }
+            }
+            matched.sort((a, b) -> Integer.compare(categoryScores[b], categoryScores[a]));
+            return matched.stream().map(categories::get).collect(Collectors.toList());
+        }
     }
 }
@@ -9,13 +9,17 @@ import org.maram.bill.config.properties.AppConfigProperties;
 import org.maram.bill.entity.BillCategory;
 import org.maram.bill.mapper.BillCategoryMapper;
 import org.maram.bill.service.BillCategoryService;
-import org.springframework.cache.annotation.Cacheable;
+import org.maram.bill.service.support.CategoryIndex;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 账单分类服务实现类
+ * 分类列表读取 {@link CategoryIndex} 的分层缓存，所有写操作成功后通过 {@link CategoryIndex#onChanged(Long)} 使缓存失效
  */
 @Service
 @Slf4j
@@ -28,9 +32,11 @@ public class BillCategoryServiceImpl extends ServiceImpl<BillCategoryMapper, Bil
     private static final int DEFAULT_SORT_ORDER = 0;
 
     private final AppConfigProperties appConfigProperties;
+    private final CategoryIndex categoryIndex;
 
-    public BillCategoryServiceImpl(AppConfigProperties appConfigProperties) {
+    public BillCategoryServiceImpl(AppConfigProperties appConfigProperties, CategoryIndex categoryIndex) {
         this.appConfigProperties = appConfigProperties;
+        this.categoryIndex = categoryIndex;
     }
 
     @Override
@@ -40,17 +46,27 @@ public class BillCategoryServiceImpl extends ServiceImpl<BillCategoryMapper, Bil
     }
 
     @Override
-    @Cacheable(value = "categories", key = "'user:' + #userId", unless = "#result == null or #result.isEmpty()")
     public List<BillCategory> listByUserId(Long userId) {
         log.debug("获取用户{}的账单分类列表", userId);
-        return baseMapper.selectByUserId(userId);
+        return categoryIndex.get(userId).categories();
+    }
+
+    @Override
+    public Map<Long, String> getCategoryNames(Long userId) {
+        List<BillCategory> categories = categoryIndex.get(userId).categories();
+        Map<Long, String> names = new HashMap<>(categories.size() * 2);
+        for (BillCategory category : categories) {
+            names.put(category.getId(), category.getCategoryName());
+        }
+        return names;
     }
 
     @Override
-    @Cacheable(value = "categories", key = "'system'", unless = "#result == null or #result.isEmpty()")
     public List<BillCategory> listSystemCategories() {
         log.debug("获取系统预设分类列表");
-        return baseMapper.selectSystemCategories();
+        return categoryIndex.sharedCategories().stream()
+                .filter(this::isSystemCategory)
+                .collect(Collectors.toList());
     }
 
 
@@ -67,8 +83,12 @@ public class BillCategoryServiceImpl extends ServiceImpl<BillCategoryMapper, Bil
         if (billCategory.getIsSystem() == null) {
             billCategory.setIsSystem(IS_USER_CATEGORY);
         }
-        
-        return baseMapper.insert(billCategory) > 0;
+
+        boolean saved = baseMapper.insert(billCategory) > 0;
+        if (saved) {
+            bumpVersion(billCategory);
+        }
+        return saved;
     }
 
     @Override
@@ -79,8 +99,12 @@ public class BillCategoryServiceImpl extends ServiceImpl<BillCategoryMapper, Bil
             log.warn("系统预设分类不允许被修改: {}", billCategory.getId());
             return false;
         }
-        
-        return baseMapper.updateById(billCategory) > 0;
+
+        boolean updated = baseMapper.updateById(billCategory) > 0;
+        if (updated) {
+            bumpVersion(existingCategory);
+        }
+        return updated;
     }
 
     @Override
@@ -96,8 +120,12 @@ public class BillCategoryServiceImpl extends ServiceImpl<BillCategoryMapper, Bil
             log.warn("系统预设分类不允许被删除: {}", id);
             return false;
         }
-        
-        return baseMapper.deleteById(id) > 0;
+
+        boolean removed = baseMapper.deleteById(id) > 0;
+        if (removed) {
+            bumpVersion(category);
+        }
+        return removed;
     }
 
     @Override
@@ -112,8 +140,12 @@ public class BillCategoryServiceImpl extends ServiceImpl<BillCategoryMapper, Bil
             log.warn("系统预设分类不允许修改状态: {}", id);
             return false;
         }
-        
-        return baseMapper.updateById(category) > 0;
+
+        boolean updated = baseMapper.updateById(category) > 0;
+        if (updated) {
+            bumpVersion(existingCategory);
+        }
+        return updated;
     }
 
     @Override
@@ -140,24 +172,25 @@ public class BillCategoryServiceImpl extends ServiceImpl<BillCategoryMapper, Bil
             return false;
         }
 
-        BillCategory category = getById(categoryId);
-        if (category == null) {
-            return false;
-        }
-
-        // 系统分类所有用户都可以访问，用户分类只有创建者可以访问
-        return category.getUserId() == null || userId.equals(category.getUserId());
+        // 系统分类所有用户都可以访问，用户分类只有创建者可以访问，两者恰好构成用户的分类快照
+        return categoryIndex.get(userId).contains(categoryId);
     }
 
     @Override
     public boolean isDuplicateName(String categoryName, Long userId, Long excludeId) {
         log.debug("验证分类名称是否重复: name={}, userId={}, excludeId={}", categoryName, userId, excludeId);
+        if (userId != null) {
+            return categoryIndex.get(userId).hasOwnName(categoryName, excludeId);
+        }
         return isDuplicateField(BillCategory::getCategoryName, categoryName, userId, excludeId);
     }
 
     @Override
     public boolean isDuplicateCode(String categoryCode, Long userId, Long excludeId) {
         log.debug("验证分类编码是否重复: code={}, userId={}, excludeId={}", categoryCode, userId, excludeId);
+        if (userId != null) {
+            return categoryIndex.get(userId).hasOwnCode(categoryCode, excludeId);
+        }
         return isDuplicateField(BillCategory::getCategoryCode, categoryCode, userId, excludeId);
     }
 
@@ -202,6 +235,13 @@ public class BillCategoryServiceImpl extends ServiceImpl<BillCategoryMapper, Bil
         return true;
     }
 
+    /**
+     * 使分类所属范围的缓存失效，共享分类（user_id 为空）影响所有用户
+     */
+    private void bumpVersion(BillCategory category) {
+        categoryIndex.onChanged(category != null ? category.getUserId() : null);
+    }
+
     private boolean isSystemCategory(BillCategory category) {
         return category != null && IS_SYSTEM_CATEGORY == category.getIsSystem();
     }
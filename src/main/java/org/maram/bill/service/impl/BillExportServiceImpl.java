@@ -0,0 +1,215 @@
+package org.maram.bill.service.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.maram.bill.common.enums.ExportFormat;
+import org.maram.bill.entity.Bill;
+import org.maram.bill.mapper.BillMapper;
+import org.maram.bill.service.BillCategoryService;
+import org.maram.bill.service.BillExportService;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 账单流式导出服务实现类
+ * 通过 MyBatis ResultHandler 逐行读取账单并直接写入输出流，分类名称从内存映射中解析。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BillExportServiceImpl implements BillExportService {
+
+    private static final String[] HEADERS = {
+            "ID", "日期", "交易类型", "分类", "名称", "供应商", "账单类型",
+            "总金额", "税额", "不含税金额", "币种", "发票号码", "备注"
+    };
+    private static final String[] JSON_FIELDS = {
+            "id", "issueDate", "transactionType", "categoryName", "name", "supplierName", "billType",
+            "totalAmount", "taxAmount", "netAmount", "currencyCode", "invoiceNumber", "notes"
+    };
+
+    private static final String UNCATEGORIZED = "未分类";
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final int XLSX_ROW_WINDOW = 100;  // SXSSF 内存中保留的行数
+    private static final int FLUSH_EVERY_ROWS = 500;
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final BillMapper billMapper;
+    private final BillCategoryService billCategoryService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public long export(Long userId, LocalDate startDate, LocalDate endDate, ExportFormat format, OutputStream out) throws IOException {
+        Map<Long, String> categoryNames = billCategoryService.getCategoryNames(userId);
+        long start = System.currentTimeMillis();
+
+        long rows;
+        try {
+            rows = switch (format) {
+                case CSV -> exportCsv(userId, startDate, endDate, categoryNames, out);
+                case NDJSON -> exportNdjson(userId, startDate, endDate, categoryNames, out);
+                case XLSX -> exportXlsx(userId, startDate, endDate, categoryNames, out);
+            };
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info("用户 {} 导出账单完成: 格式={}, 条数={}, 耗时={}ms", userId, format, rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private long exportCsv(Long userId, LocalDate startDate, LocalDate endDate,
+                           Map<Long, String> categoryNames, OutputStream out) throws IOException {
+        out.write(UTF8_BOM);  // 便于 Excel 正确识别 UTF-8
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", HEADERS));
+        writer.write("\r\n");
+
+        long[] count = {0};
+        billMapper.streamByUserId(userId, startDate, endDate, context -> {
+            Object[] values = toRow(context.getResultObject(), categoryNames);
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(escapeCsv(values[i]));
+                }
+                writer.write("\r\n");
+                if (++count[0] % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+        return count[0];
+    }
+
+    private long exportNdjson(Long userId, LocalDate startDate, LocalDate endDate,
+                              Map<Long, String> categoryNames, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        long[] count = {0};
+        billMapper.streamByUserId(userId, startDate, endDate, context -> {
+            Object[] values = toRow(context.getResultObject(), categoryNames);
+            try {
+                generator.writeStartObject();
+                for (int i = 0; i < HEADERS.length; i++) {
+                    writeJsonField(generator, JSON_FIELDS[i], values[i]);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                if (++count[0] % FLUSH_EVERY_ROWS == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.flush();
+        return count[0];
+    }
+
+    private long exportXlsx(Long userId, LocalDate startDate, LocalDate endDate,
+                            Map<Long, String> categoryNames, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet("账单");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) {
+                header.createCell(i).setCellValue(HEADERS[i]);
+            }
+
+            int[] rowIndex = {1};
+            billMapper.streamByUserId(userId, startDate, endDate, context -> {
+                Object[] values = toRow(context.getResultObject(), categoryNames);
+                Row row = sheet.createRow(rowIndex[0]++);
+                for (int i = 0; i < values.length; i++) {
+                    Object value = values[i];
+                    if (value instanceof BigDecimal decimal) {
+                        row.createCell(i).setCellValue(decimal.doubleValue());
+                    } else if (value != null) {
+                        row.createCell(i).setCellValue(value.toString());
+                    }
+                }
+            });
+            workbook.write(out);
+            return rowIndex[0] - 1L;
+        } finally {
+            workbook.dispose();  // 删除 SXSSF 落盘的临时文件
+            workbook.close();
+        }
+    }
+
+    private void writeJsonField(JsonGenerator generator, String field, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumberField(field, decimal);
+        } else {
+            generator.writeStringField(field, value.toString());
+        }
+    }
+
+    private Object[] toRow(Bill bill, Map<Long, String> categoryNames) {
+        String categoryName = bill.getCategoryId() != null
+                ? categoryNames.getOrDefault(bill.getCategoryId(), UNCATEGORIZED)
+                : UNCATEGORIZED;
+        return new Object[]{
+                bill.getId(),
+                bill.getIssueDate(),
+                bill.getTransactionType(),
+                categoryName,
+                bill.getName(),
+                bill.getSupplierName(),
+                bill.getBillType(),
+                bill.getTotalAmount(),
+                bill.getTaxAmount(),
+                bill.getNetAmount(),
+                bill.getCurrencyCode(),
+                bill.getInvoiceNumber(),
+                bill.getNotes()
+        };
+    }
+
+    private String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : neutralizeFormula(value.toString());
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    /**
+     * 名称、备注等文本来自用户输入或 AI 识别，以公式字符开头时加单引号前缀，避免表格软件将其作为公式执行
+     */
+    private String neutralizeFormula(String text) {
+        if (!text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+            return "'" + text;
+        }
+        return text;
+    }
+}
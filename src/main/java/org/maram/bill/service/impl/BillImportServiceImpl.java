@@ -0,0 +1,364 @@
+package org.maram.bill.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.enums.TransactionType;
+import org.maram.bill.common.utils.CsvReader;
+import org.maram.bill.entity.Bill;
+import org.maram.bill.entity.BillCategory;
+import org.maram.bill.service.BillCategoryMatchingService;
+import org.maram.bill.service.BillCategoryService;
+import org.maram.bill.service.BillImportService;
+import org.maram.bill.service.BillProcessingService;
+import org.maram.bill.service.BillService;
+import org.maram.bill.service.CategoryClassifierService;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * 账单批量导入服务实现类
+ *
+ * 1. CSV 逐行流式解析，不把整个文件读入内存
+ * 2. 分类匹配使用本次导入内的内存索引：精确名称直接命中，其余按文本去重后只匹配一次
+ * 3. 每 CHUNK_SIZE 行作为一个事务，通过 JDBC batch 批量插入；分块写入失败时对半拆分重试，只有出错的行记为失败
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BillImportServiceImpl implements BillImportService {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 200;
+    private static final int CATEGORY_STATUS_ENABLED = 1;
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("yyyy/M/d"),
+            DateTimeFormatter.ofPattern("yyyyMMdd"),
+            DateTimeFormatter.ofPattern("yyyy.M.d")
+    );
+
+    private final BillService billService;
+    private final BillProcessingService billProcessingService;
+    private final BillCategoryService billCategoryService;
+    private final BillCategoryMatchingService categoryMatchingService;
+    private final CategoryClassifierService categoryClassifierService;
+
+    /**
+     * 支持的列及其表头别名（小写比较）
+     */
+    private enum Column {
+        DATE("日期", "date", "issuedate", "issue_date", "交易日期", "记账日期"),
+        AMOUNT("总金额", "金额", "amount", "totalamount", "total_amount"),
+        TYPE("交易类型", "收支类型", "类型", "type", "transactiontype", "transaction_type"),
+        CATEGORY("分类", "category", "categoryname", "category_name"),
+        NAME("名称", "name", "摘要", "备注说明", "description"),
+        SUPPLIER("供应商", "商户", "交易对方", "supplier", "suppliername", "supplier_name", "merchant"),
+        BILL_TYPE("账单类型", "billtype", "bill_type"),
+        TAX("税额", "tax", "taxamount", "tax_amount"),
+        NET("不含税金额", "net", "netamount", "net_amount"),
+        CURRENCY("币种", "货币", "currency", "currencycode", "currency_code"),
+        INVOICE_NUMBER("发票号码", "invoicenumber", "invoice_number"),
+        NOTES("备注", "notes", "note", "remark");
+
+        private final String[] aliases;
+
+        Column(String... aliases) {
+            this.aliases = aliases;
+        }
+    }
+
+    @Override
+    public ImportResult importCsv(Long userId, InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportResult result = new ImportResult();
+        CategoryIndex categoryIndex = new CategoryIndex(userId);
+
+        try (CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)))) {
+            List<String> header = reader.readRecord();
+            if (header == null) {
+                throw new IllegalArgumentException("导入文件为空");
+            }
+            Map<Column, Integer> columns = resolveColumns(header);
+            if (!columns.containsKey(Column.AMOUNT)) {
+                throw new IllegalArgumentException("导入文件缺少金额列");
+            }
+
+            List<Bill> chunk = new ArrayList<>(CHUNK_SIZE);
+            List<Long> chunkLines = new ArrayList<>(CHUNK_SIZE);
+            List<String> record;
+            while ((record = reader.readRecord()) != null) {
+                long line = reader.getLineNumber();
+                if (isBlank(record)) {
+                    continue;
+                }
+                result.setTotalRows(result.getTotalRows() + 1);
+                try {
+                    Bill bill = parseBill(record, columns, userId);
+                    bill.setCategoryId(categoryIndex.resolve(bill, cell(record, columns, Column.CATEGORY)));
+                    chunk.add(bill);
+                    chunkLines.add(line);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    addError(result, line, e.getMessage());
+                } catch (RuntimeException e) {
+                    log.warn("导入第 {} 行处理失败", line, e);
+                    addError(result, line, "行处理失败: " + e.getMessage());
+                }
+
+                if (chunk.size() >= CHUNK_SIZE) {
+                    flushChunk(chunk, chunkLines, result);
+                }
+            }
+            flushChunk(chunk, chunkLines, result);
+        }
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        result.setElapsedMs(elapsed);
+        result.setRowsPerSecond(result.getImportedRows() * 1000.0 / elapsed);
+        log.info("用户 {} 导入账单完成: 总行数={}, 成功={}, 失败={}, 耗时={}ms, 吞吐量={} 行/秒",
+                userId, result.getTotalRows(), result.getImportedRows(), result.getFailedRows(),
+                elapsed, String.format("%.1f", result.getRowsPerSecond()));
+        return result;
+    }
+
+    private void flushChunk(List<Bill> chunk, List<Long> chunkLines, ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            saveOrBisect(chunk, chunkLines, result);
+        } finally {
+            chunk.clear();
+            chunkLines.clear();
+        }
+    }
+
+    /**
+     * 整块写入失败时对半拆分重试，每次重试各自一个事务，最终只有真正写入失败的行记为错误
+     */
+    private void saveOrBisect(List<Bill> bills, List<Long> lines, ImportResult result) {
+        try {
+            billService.saveBillsInBatch(bills);
+            result.setImportedRows(result.getImportedRows() + bills.size());
+            return;
+        } catch (Exception e) {
+            if (bills.size() == 1) {
+                log.warn("导入第 {} 行写入失败", lines.get(0), e);
+                addError(result, lines.get(0), "数据库写入失败: " + rootMessage(e));
+                return;
+            }
+            log.warn("批量导入分块写入失败，拆分重试: 行 {} - {}", lines.get(0), lines.get(lines.size() - 1), e);
+        }
+        // 失败的批量插入可能已回填自增ID，事务回滚后需清空再重试
+        bills.forEach(bill -> bill.setId(null));
+        int middle = bills.size() / 2;
+        saveOrBisect(bills.subList(0, middle), lines.subList(0, middle), result);
+        saveOrBisect(bills.subList(middle, bills.size()), lines.subList(middle, lines.size()), result);
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private Bill parseBill(List<String> record, Map<Column, Integer> columns, Long userId) {
+        BigDecimal amount = parseAmount(cell(record, columns, Column.AMOUNT), "金额");
+        if (amount == null) {
+            throw new IllegalArgumentException("金额不能为空");
+        }
+
+        String transactionType = parseTransactionType(cell(record, columns, Column.TYPE), amount);
+
+        Bill bill = Bill.builder()
+                .userId(userId)
+                .transactionType(transactionType)
+                // 收支方向已由类型列或金额符号确定，账单金额统一存正数
+                .totalAmount(amount.abs())
+                .issueDate(parseDate(cell(record, columns, Column.DATE)))
+                .name(cell(record, columns, Column.NAME))
+                .supplierName(cell(record, columns, Column.SUPPLIER))
+                .billType(cell(record, columns, Column.BILL_TYPE))
+                .taxAmount(parseAmount(cell(record, columns, Column.TAX), "税额"))
+                .netAmount(parseAmount(cell(record, columns, Column.NET), "不含税金额"))
+                .currencyCode(upper(cell(record, columns, Column.CURRENCY)))
+                .invoiceNumber(cell(record, columns, Column.INVOICE_NUMBER))
+                .notes(cell(record, columns, Column.NOTES))
+                .build();
+
+        String validationError = billProcessingService.validateBillData(bill);
+        if (validationError != null) {
+            throw new IllegalArgumentException(validationError);
+        }
+        return bill;
+    }
+
+    /**
+     * 交易类型：类型列优先（支持中文"收入/支出"），此时金额符号不再区分收支（导出文件里的金额都是绝对值）；
+     * 没有类型列或该行类型为空时按银行流水惯例由金额符号判断：负数为支出，正数为收入
+     */
+    private String parseTransactionType(String value, BigDecimal amount) {
+        if (!StringUtils.hasText(value)) {
+            if (amount.signum() == 0) {
+                throw new IllegalArgumentException("金额为 0 且未指定交易类型，无法判断收支");
+            }
+            return amount.signum() < 0 ? TransactionType.EXPENSE.getValue() : TransactionType.INCOME.getValue();
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        if (normalized.equals("收入") || normalized.equals(TransactionType.INCOME.getValue())) {
+            return TransactionType.INCOME.getValue();
+        }
+        if (normalized.equals("支出") || normalized.equals(TransactionType.EXPENSE.getValue())) {
+            return TransactionType.EXPENSE.getValue();
+        }
+        throw new IllegalArgumentException("无法识别的交易类型: " + value);
+    }
+
+    private BigDecimal parseAmount(String value, String fieldName) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        String cleaned = value.replace(",", "").replace("¥", "").replace("￥", "").replace("$", "").trim();
+        try {
+            return new BigDecimal(cleaned);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(fieldName + "格式错误: " + value);
+        }
+    }
+
+    private LocalDate parseDate(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        String text = value.trim();
+        // 兼容 "yyyy-MM-dd HH:mm:ss" 之类带时间的格式
+        int space = text.indexOf(' ');
+        if (space > 0) {
+            text = text.substring(0, space);
+        }
+        for (DateTimeFormatter formatter : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(text, formatter);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+        throw new IllegalArgumentException("日期格式错误: " + value);
+    }
+
+    private Map<Column, Integer> resolveColumns(List<String> header) {
+        Map<String, Column> aliasIndex = new HashMap<>();
+        for (Column column : Column.values()) {
+            for (String alias : column.aliases) {
+                aliasIndex.put(alias.toLowerCase(Locale.ROOT), column);
+            }
+        }
+        Map<Column, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            Column column = aliasIndex.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+            if (column != null) {
+                columns.putIfAbsent(column, i);
+            }
+        }
+        return columns;
+    }
+
+    private String cell(List<String> record, Map<Column, Integer> columns, Column column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private String upper(String value) {
+        return value == null ? null : value.toUpperCase(Locale.ROOT);
+    }
+
+    private boolean isBlank(List<String> record) {
+        for (String value : record) {
+            if (StringUtils.hasText(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addError(ImportResult result, long line, String message) {
+        result.setFailedRows(result.getFailedRows() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new RowError(line, message));
+        }
+    }
+
+    /**
+     * 单次导入内的分类索引：分类名称精确匹配走内存 Map，其次由用户分类器预测（模型只加载一次），
+     * 其余文本只在已有分类中匹配并按文本去重缓存结果，避免每行重复查询；匹配不到时留空，导入不会创建分类
+     */
+    private class CategoryIndex {
+
+        private final Long userId;
+        private final Map<String, Long> idsByName = new HashMap<>();
+        private final Map<String, Optional<Long>> matched = new HashMap<>();
+        private final Function<Bill, Long> predictor;
+
+        CategoryIndex(Long userId) {
+            this.userId = userId;
+            this.predictor = categoryClassifierService.predictorFor(userId);
+            for (BillCategory category : billCategoryService.listByUserId(userId)) {
+                if (category.getStatus() != null && category.getStatus() == CATEGORY_STATUS_ENABLED) {
+                    idsByName.putIfAbsent(category.getCategoryName().trim().toLowerCase(Locale.ROOT), category.getId());
+                }
+            }
+        }
+
+        Long resolve(Bill bill, String categoryName) {
+            String text = firstNonBlank(categoryName, bill.getBillType(), bill.getName(), bill.getSupplierName());
+            if (text == null) {
+                return null;
+            }
+            String key = text.toLowerCase(Locale.ROOT);
+            Long exact = idsByName.get(key);
+            if (exact != null) {
+                // 文件分类列中写明的分类名称视为用户确认
+                bill.setCategoryConfirmed(StringUtils.hasText(categoryName));
+                return exact;
+            }
+            // 文件里明确给出了分类列时以该列文本为准，不用分类器覆盖
+            Long predicted = StringUtils.hasText(categoryName) ? null : predictor.apply(bill);
+            if (predicted != null) {
+                return predicted;
+            }
+            return matched.computeIfAbsent(key,
+                    k -> Optional.ofNullable(categoryMatchingService.findMatchingCategory(text, userId)))
+                    .orElse(null);
+        }
+
+        private String firstNonBlank(String... values) {
+            for (String value : values) {
+                if (StringUtils.hasText(value)) {
+                    return value.trim();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.maram.bill.entity.Bill;
 import org.maram.bill.service.BillCategoryMatchingService;
 import org.maram.bill.service.BillProcessingService;
 import org.maram.bill.service.BillService;
+import org.maram.bill.service.CategoryClassifierService;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -27,12 +28,15 @@ public class BillProcessingServiceImpl implements BillProcessingService {
 
     private final BillService billService;
     private final BillCategoryMatchingService categoryMatchingService;
+    private final CategoryClassifierService categoryClassifierService;
 
     @Override
     public Long processAndSaveBill(Bill bill, Long userId) {
         log.debug("开始智能处理账单: userId={}, bill={}", userId, bill);
 
         bill.setUserId(userId);
+        // 识别结果中的分类来自模型或匹配，不作为用户确认的训练样本
+        bill.setCategoryConfirmed(false);
 
         String validationError = validateBillData(bill);
         if (validationError != null) {
@@ -67,6 +71,11 @@ public class BillProcessingServiceImpl implements BillProcessingService {
 
     @Override
     public Long matchBillCategory(Bill bill, Long userId) {
+        // 先用从该用户历史账单学到的分类器，置信度不足时再按关键词匹配
+        Long predicted = categoryClassifierService.predictorFor(userId).apply(bill);
+        if (predicted != null) {
+            return predicted;
+        }
         String billType = inferBillType(bill);
         return categoryMatchingService.matchCategory(billType, bill.getTransactionType(), userId);
     }
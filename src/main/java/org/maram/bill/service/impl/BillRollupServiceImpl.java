@@ -0,0 +1,196 @@
+package org.maram.bill.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.utils.CentsKernel;
+import org.maram.bill.entity.Bill;
+import org.maram.bill.entity.BillDailyRollup;
+import org.maram.bill.mapper.BillDailyRollupMapper;
+import org.maram.bill.service.BillRollupService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 账单按日汇总服务实现类
+ *
+ * 同一次写入产生的增量先在内存中按汇总维度合并（例如修改金额但维度不变时只产生一条差值），
+ * 再通过一条 INSERT ... ON DUPLICATE KEY UPDATE 累加。没有 issue_date 的账单不参与汇总，
+ * 与按日期范围统计的查询口径一致。
+ *
+ * 汇总表上线前的历史账单由启动时的后台回填补齐：全部用户重建成功后才在 Redis 中写入已构建标记，
+ * 标记出现前预算统计继续查询 bill 表。多节点同时启动时通过短期锁保证只有一个节点执行回填。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BillRollupServiceImpl implements BillRollupService {
+
+    private static final String BUILT_KEY = "bill:rollup:built";
+    private static final String BACKFILL_LOCK_KEY = "bill:rollup:backfill:lock";
+    private static final Duration BACKFILL_LOCK_TTL = Duration.ofHours(2);
+
+    private final BillDailyRollupMapper rollupMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 标记一旦写入不会撤销，本地记住后不再读取 Redis
+     */
+    private volatile boolean built;
+
+    private record RollupKey(Long userId, LocalDate day, Long categoryId, String transactionType, String currency) {
+    }
+
+    /**
+     * 汇总表尚未回填时在后台线程中执行全量重建，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            if (isBuilt() || !Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(BACKFILL_LOCK_KEY, "1", BACKFILL_LOCK_TTL))) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("检查账单日汇总回填状态失败，等待定时重建任务回填", e);
+            return;
+        }
+        Thread backfill = new Thread(() -> {
+            try {
+                log.info("账单日汇总尚未回填，开始后台重建");
+                rebuildAll();
+            } catch (Exception e) {
+                log.error("账单日汇总后台回填失败", e);
+            } finally {
+                stringRedisTemplate.delete(BACKFILL_LOCK_KEY);
+            }
+        }, "bill-rollup-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    @Override
+    @Transactional
+    public void onBillsInserted(List<Bill> bills) {
+        Map<RollupKey, long[]> deltas = new LinkedHashMap<>();
+        for (Bill bill : bills) {
+            accumulate(deltas, bill, 1);
+        }
+        apply(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void onBillUpdated(Bill before, Bill after) {
+        Map<RollupKey, long[]> deltas = new LinkedHashMap<>();
+        accumulate(deltas, before, -1);
+        accumulate(deltas, after, 1);
+        apply(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void onBillDeleted(Bill bill) {
+        Map<RollupKey, long[]> deltas = new LinkedHashMap<>();
+        accumulate(deltas, bill, -1);
+        apply(deltas);
+    }
+
+    @Override
+    @Transactional
+    public int rebuildUser(Long userId) {
+        return doRebuild(userId);
+    }
+
+    /**
+     * 逐用户重建，每个用户一个独立事务，避免长事务锁住整张 bill 表
+     */
+    @Override
+    public int rebuildAll() {
+        long start = System.currentTimeMillis();
+        List<Long> userIds = rollupMapper.selectRollupUserIds();
+        int processed = 0;
+        for (Long userId : userIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> doRebuild(userId));
+                processed++;
+            } catch (Exception e) {
+                log.error("重建用户 {} 的账单日汇总失败", userId, e);
+            }
+        }
+        log.info("账单日汇总重建完成: 用户数={}/{}, 耗时={}ms", processed, userIds.size(), System.currentTimeMillis() - start);
+        if (processed == userIds.size() && !built) {
+            stringRedisTemplate.opsForValue().set(BUILT_KEY, "1");
+            built = true;
+            log.info("账单日汇总已标记为构建完成");
+        }
+        return processed;
+    }
+
+    @Override
+    public boolean isBuilt() {
+        if (built) {
+            return true;
+        }
+        try {
+            built = Boolean.TRUE.equals(stringRedisTemplate.hasKey(BUILT_KEY));
+        } catch (Exception e) {
+            log.warn("读取账单日汇总构建标记失败", e);
+        }
+        return built;
+    }
+
+    private int doRebuild(Long userId) {
+        rollupMapper.deleteByUserId(userId);
+        return rollupMapper.rebuildByUserId(userId);
+    }
+
+    private void accumulate(Map<RollupKey, long[]> deltas, Bill bill, int sign) {
+        if (bill == null || bill.getUserId() == null || bill.getIssueDate() == null
+                || bill.getTransactionType() == null || bill.getTotalAmount() == null) {
+            return;
+        }
+        RollupKey key = new RollupKey(
+                bill.getUserId(),
+                bill.getIssueDate(),
+                Objects.requireNonNullElse(bill.getCategoryId(), BillDailyRollup.UNCATEGORIZED_ID),
+                bill.getTransactionType(),
+                Objects.requireNonNullElse(bill.getCurrencyCode(), BillDailyRollup.UNKNOWN_CURRENCY));
+        long[] delta = deltas.computeIfAbsent(key, k -> new long[2]);
+        delta[0] += sign * CentsKernel.toCents(bill.getTotalAmount());
+        delta[1] += sign;
+    }
+
+    private void apply(Map<RollupKey, long[]> deltas) {
+        List<BillDailyRollup> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> {
+            if (delta[0] == 0 && delta[1] == 0) {
+                return;
+            }
+            rows.add(BillDailyRollup.builder()
+                    .userId(key.userId())
+                    .day(key.day())
+                    .categoryId(key.categoryId())
+                    .transactionType(key.transactionType())
+                    .currency(key.currency())
+                    .sumCents(delta[0])
+                    .billCount((int) delta[1])
+                    .build());
+        });
+        if (!rows.isEmpty()) {
+            rollupMapper.upsertDeltas(rows);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.maram.bill.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.enums.SeriesGranularity;
+import org.maram.bill.common.utils.CentsKernel;
+import org.maram.bill.entity.BillDailyRollup;
+import org.maram.bill.mapper.BillDailyRollupMapper;
+import org.maram.bill.service.BillCategoryService;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.BillSeriesService;
+import org.maram.bill.service.support.BillColumnStore;
+import org.maram.bill.service.support.ExchangeRateIndex;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 账单时间序列服务实现类
+ * 一次查询取出区间内的按日汇总行（热点用户直接扫描内存列式存储），在内存中按粒度分桶并补零，分类名称从内存映射中解析
+ * 指定展示货币时按币种读取汇总行，用内存汇率快照折算后再分桶；汇总表尚未回填完成时以相同口径直接聚合账单表
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BillSeriesServiceImpl implements BillSeriesService {
+
+    private static final int MAX_BUCKETS = 1000;
+    private static final String UNCATEGORIZED = "未分类";
+
+    private final BillDailyRollupMapper rollupMapper;
+    private final BillCategoryService billCategoryService;
+    private final BillColumnStore billColumnStore;
+    private final BillRollupService billRollupService;
+    private final ExchangeRateIndex exchangeRateIndex;
+
+    private record SeriesKey(String transactionType, Long categoryId) {
+    }
+
+    private static final class SeriesAccumulator {
+        private final long[] cents;
+        private long total;
+        private long count;
+
+        SeriesAccumulator(int buckets) {
+            this.cents = new long[buckets];
+        }
+    }
+
+    @Override
+    public SpendingSeries getSeries(Long userId, LocalDate startDate, LocalDate endDate, SeriesGranularity granularity,
+                                    String transactionType, Long categoryId, String displayCurrency) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("开始日期不能晚于结束日期");
+        }
+        LocalDate origin = granularity.bucketStart(startDate);
+        int bucketCount = granularity.indexOf(origin, endDate) + 1;
+        if (bucketCount > MAX_BUCKETS) {
+            throw new IllegalArgumentException("时间范围过大，请缩小范围或使用更粗的粒度");
+        }
+
+        List<String> buckets = new ArrayList<>(bucketCount);
+        for (LocalDate bucket = origin; buckets.size() < bucketCount; bucket = bucket.plus(1, granularity.getUnit())) {
+            buckets.add(bucket.toString());
+        }
+
+        Map<SeriesKey, SeriesAccumulator> accumulators;
+        String currency = StringUtils.hasText(displayCurrency) ? displayCurrency.trim().toUpperCase() : null;
+        long[] unconverted = new long[1];
+        if (currency != null) {
+            // 列式存储不区分币种，折算时读取按币种拆分的汇总行
+            accumulators = accumulateConverted(userId, startDate, endDate, granularity, origin, bucketCount,
+                    transactionType, categoryId, currency, unconverted);
+        } else {
+            BillColumnStore.UserColumns columns = billColumnStore.acquire(userId);
+            accumulators = columns != null
+                    ? accumulateColumns(columns, startDate, endDate, granularity, origin, bucketCount, transactionType, categoryId)
+                    : accumulateRollup(userId, startDate, endDate, granularity, origin, bucketCount, transactionType, categoryId);
+        }
+
+        Map<Long, String> categoryNames = billCategoryService.getCategoryNames(userId);
+        List<Series> series = new ArrayList<>(accumulators.size());
+        accumulators.forEach((key, accumulator) -> {
+            List<BigDecimal> values = new ArrayList<>(bucketCount);
+            for (long cents : accumulator.cents) {
+                values.add(cents == 0 ? BigDecimal.ZERO : CentsKernel.toAmount(cents));
+            }
+            series.add(new Series(key.transactionType(), key.categoryId(),
+                    categoryNames.getOrDefault(key.categoryId(), UNCATEGORIZED),
+                    CentsKernel.toAmount(accumulator.total), accumulator.count, values));
+        });
+        series.sort(Comparator.comparing(Series::getTransactionType)
+                .thenComparing(Series::getTotal, Comparator.reverseOrder()));
+
+        log.debug("账单时间序列: userId={}, {} 到 {}, 粒度={}, 桶数={}, 序列数={}",
+                userId, startDate, endDate, granularity.getValue(), bucketCount, series.size());
+        return new SpendingSeries(granularity.getValue(), startDate, endDate, buckets, series,
+                currency, currency != null ? unconverted[0] : null);
+    }
+
+    private Map<SeriesKey, SeriesAccumulator> accumulateRollup(Long userId, LocalDate startDate, LocalDate endDate,
+                                                               SeriesGranularity granularity, LocalDate origin, int bucketCount,
+                                                               String transactionType, Long categoryId) {
+        Map<SeriesKey, SeriesAccumulator> accumulators = new LinkedHashMap<>();
+        List<BillDailyRollup> rows = billRollupService.isBuilt()
+                ? rollupMapper.selectDailySeries(userId, startDate, endDate, transactionType, categoryId)
+                : rollupMapper.selectDailySeriesFromBill(userId, startDate, endDate, transactionType, categoryId);
+        for (BillDailyRollup row : rows) {
+            SeriesAccumulator accumulator = accumulators.computeIfAbsent(
+                    new SeriesKey(row.getTransactionType(), row.getCategoryId()), k -> new SeriesAccumulator(bucketCount));
+            long cents = row.getSumCents() != null ? row.getSumCents() : 0L;
+            accumulator.cents[granularity.indexOf(origin, row.getDay())] += cents;
+            accumulator.total += cents;
+            accumulator.count += row.getBillCount() != null ? row.getBillCount() : 0;
+        }
+        return accumulators;
+    }
+
+    /**
+     * 逐个币种按同一份汇率快照折算到展示货币（每个币种只查一次汇率），未填写币种按基准货币处理；
+     * 缺少汇率的行不计入序列，账单数累加到 unconverted[0]
+     */
+    private Map<SeriesKey, SeriesAccumulator> accumulateConverted(Long userId, LocalDate startDate, LocalDate endDate,
+                                                                  SeriesGranularity granularity, LocalDate origin, int bucketCount,
+                                                                  String transactionType, Long categoryId,
+                                                                  String displayCurrency, long[] unconverted) {
+        ExchangeRateIndex.Snapshot snapshot = exchangeRateIndex.current();
+        Map<String, Optional<BigDecimal>> rates = new HashMap<>();
+        Map<SeriesKey, SeriesAccumulator> accumulators = new LinkedHashMap<>();
+        List<BillDailyRollup> rows = billRollupService.isBuilt()
+                ? rollupMapper.selectDailySeriesByCurrency(userId, startDate, endDate, transactionType, categoryId)
+                : rollupMapper.selectDailySeriesByCurrencyFromBill(userId, startDate, endDate, transactionType, categoryId);
+        for (BillDailyRollup row : rows) {
+            String currency = StringUtils.hasText(row.getCurrency()) ? row.getCurrency().toUpperCase() : snapshot.baseCode();
+            Optional<BigDecimal> rate = rates.computeIfAbsent(currency, code -> code.equals(displayCurrency)
+                    ? Optional.of(BigDecimal.ONE)
+                    : Optional.ofNullable(snapshot.find(code, displayCurrency)).map(ExchangeRateIndex.Rate::rate));
+            long count = row.getBillCount() != null ? row.getBillCount() : 0;
+            if (rate.isEmpty()) {
+                unconverted[0] += count;
+                continue;
+            }
+            long cents = row.getSumCents() != null ? row.getSumCents() : 0L;
+            if (rate.get().compareTo(BigDecimal.ONE) != 0) {
+                cents = BigDecimal.valueOf(cents).multiply(rate.get()).setScale(0, RoundingMode.HALF_UP).longValue();
+            }
+            SeriesAccumulator accumulator = accumulators.computeIfAbsent(
+                    new SeriesKey(row.getTransactionType(), row.getCategoryId()), k -> new SeriesAccumulator(bucketCount));
+            accumulator.cents[granularity.indexOf(origin, row.getDay())] += cents;
+            accumulator.total += cents;
+            accumulator.count += count;
+        }
+        if (unconverted[0] > 0) {
+            log.warn("用户 {} 有 {} 笔账单缺少到 {} 的汇率，未计入时间序列", userId, unconverted[0], displayCurrency);
+        }
+        return accumulators;
+    }
+
+    /**
+     * 直接扫描列式存储：按日期二分定位区间，预先计算每一天所属的桶下标，循环内不创建对象
+     */
+    private Map<SeriesKey, SeriesAccumulator> accumulateColumns(BillColumnStore.UserColumns columns,
+                                                                LocalDate startDate, LocalDate endDate,
+                                                                SeriesGranularity granularity, LocalDate origin, int bucketCount,
+                                                                String transactionType, Long categoryId) {
+        Map<SeriesKey, SeriesAccumulator> accumulators = new LinkedHashMap<>();
+        int typeFilter = transactionType != null ? BillColumnStore.typeIndex(transactionType) : -1;
+        if (transactionType != null && typeFilter < 0) {
+            return accumulators;
+        }
+
+        int fromDay = CentsKernel.epochDay(startDate);
+        int toDay = CentsKernel.epochDay(endDate);
+        int[] dayBuckets = new int[toDay - fromDay + 1];
+        for (int offset = 0; offset < dayBuckets.length; offset++) {
+            dayBuckets[offset] = granularity.indexOf(origin, startDate.plusDays(offset));
+        }
+
+        long[] cents = columns.cents();
+        int[] days = columns.days();
+        int[] groups = columns.groups();
+        SeriesAccumulator[] byGroup = new SeriesAccumulator[columns.groupCount()];
+        for (int i = columns.lowerBound(fromDay), to = columns.upperBound(toDay); i < to; i++) {
+            int group = groups[i];
+            if (typeFilter >= 0 && BillColumnStore.UserColumns.typeOf(group) != typeFilter) {
+                continue;
+            }
+            if (categoryId != null
+                    && columns.categoryId(BillColumnStore.UserColumns.categoryIndexOf(group)) != categoryId) {
+                continue;
+            }
+            SeriesAccumulator accumulator = byGroup[group];
+            if (accumulator == null) {
+                accumulator = byGroup[group] = new SeriesAccumulator(bucketCount);
+            }
+            accumulator.cents[dayBuckets[days[i] - fromDay]] += cents[i];
+            accumulator.total += cents[i];
+            accumulator.count++;
+        }
+
+        for (int group = 0; group < byGroup.length; group++) {
+            if (byGroup[group] != null) {
+                accumulators.put(new SeriesKey(BillColumnStore.typeValue(BillColumnStore.UserColumns.typeOf(group)),
+                        columns.categoryId(BillColumnStore.UserColumns.categoryIndexOf(group))), byGroup[group]);
+            }
+        }
+        return accumulators;
+    }
+}
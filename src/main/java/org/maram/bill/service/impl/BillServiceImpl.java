@@ -4,19 +4,28 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.utils.CursorPage;
 import org.maram.bill.entity.Bill;
-import org.maram.bill.entity.BillCategory;
 import org.maram.bill.mapper.BillMapper;
-import org.maram.bill.service.BillCategoryService;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.BudgetCounterService;
+import org.maram.bill.service.CategoryClassifierService;
+import org.maram.bill.service.support.BillColumnStore;
+import org.maram.bill.service.support.CategoryIndex;
+import org.maram.bill.service.support.UserDataVersion;
 import org.maram.bill.service.BillService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 账单服务实现类
@@ -26,11 +35,27 @@ import java.util.List;
 public class BillServiceImpl extends ServiceImpl<BillMapper, Bill> implements BillService {
 
     private static final String ERROR_USER_ID_REQUIRED = "用户ID不能为空";
+    private static final String ERROR_INVALID_CURSOR = "无效的分页游标";
+    private static final String CURSOR_SEPARATOR = "|";
+    private static final int INSERT_BATCH_SIZE = 500;
 
-    private final BillCategoryService billCategoryService;
+    private final BillRollupService billRollupService;
+    private final UserDataVersion userDataVersion;
+    private final BillColumnStore billColumnStore;
+    private final BudgetCounterService budgetCounterService;
+    private final CategoryIndex categoryIndex;
+    private final CategoryClassifierService categoryClassifierService;
 
-    public BillServiceImpl(BillCategoryService billCategoryService) {
-        this.billCategoryService = billCategoryService;
+    public BillServiceImpl(BillRollupService billRollupService,
+                           UserDataVersion userDataVersion, BillColumnStore billColumnStore,
+                           BudgetCounterService budgetCounterService, CategoryIndex categoryIndex,
+                           CategoryClassifierService categoryClassifierService) {
+        this.billRollupService = billRollupService;
+        this.userDataVersion = userDataVersion;
+        this.billColumnStore = billColumnStore;
+        this.budgetCounterService = budgetCounterService;
+        this.categoryIndex = categoryIndex;
+        this.categoryClassifierService = categoryClassifierService;
     }
 
     @Override
@@ -56,6 +81,11 @@ public class BillServiceImpl extends ServiceImpl<BillMapper, Bill> implements Bi
         
         int result = baseMapper.insert(bill);
         if (result > 0 && bill.getId() != null) {
+            billRollupService.onBillsInserted(List.of(bill));
+            budgetCounterService.onBillsInserted(List.of(bill));
+            categoryClassifierService.onBillsInserted(List.of(bill));
+            userDataVersion.bump(bill.getUserId(),
+                    version -> billColumnStore.onInserted(bill.getUserId(), version, List.of(bill)));
             return bill.getId();
         }
         
@@ -63,6 +93,34 @@ public class BillServiceImpl extends ServiceImpl<BillMapper, Bill> implements Bi
         return null;
     }
 
+    /**
+     * 使用 ExecutorType.BATCH 批量插入，配合连接参数 rewriteBatchedStatements=true
+     * 由驱动改写为多行 INSERT
+     */
+    @Override
+    @Transactional
+    public boolean saveBillsInBatch(List<Bill> bills) {
+        if (bills == null || bills.isEmpty()) {
+            return true;
+        }
+        for (Bill bill : bills) {
+            if (bill.getUserId() == null) {
+                log.error("批量保存账单失败: 存在用户ID为空的账单");
+                throw new IllegalArgumentException(ERROR_USER_ID_REQUIRED);
+            }
+        }
+        boolean saved = saveBatch(bills, INSERT_BATCH_SIZE);
+        if (saved) {
+            billRollupService.onBillsInserted(bills);
+            budgetCounterService.onBillsInserted(bills);
+            categoryClassifierService.onBillsInserted(bills);
+            Map<Long, List<Bill>> billsByUser = bills.stream().collect(Collectors.groupingBy(Bill::getUserId));
+            billsByUser.forEach((userId, userBills) -> userDataVersion.bump(userId,
+                    version -> billColumnStore.onInserted(userId, version, userBills)));
+        }
+        return saved;
+    }
+
     @Override
     @Transactional
     public boolean updateById(Bill bill) {
@@ -72,15 +130,37 @@ public class BillServiceImpl extends ServiceImpl<BillMapper, Bill> implements Bi
             return false;
         }
 
+        Bill before = new Bill();
+        BeanUtils.copyProperties(existingBill, before);
         BeanUtils.copyProperties(bill, existingBill, "id", "userId", "createTime", "updatedTime", "deleted");
 
-        return baseMapper.updateById(existingBill) > 0;
+        if (baseMapper.updateById(existingBill) > 0) {
+            billRollupService.onBillUpdated(before, existingBill);
+            budgetCounterService.onBillUpdated(before, existingBill);
+            categoryClassifierService.onBillUpdated(before, existingBill);
+            userDataVersion.bump(existingBill.getUserId(),
+                    version -> billColumnStore.onUpdated(existingBill.getUserId(), version, before, existingBill));
+            return true;
+        }
+        return false;
     }
 
     @Override
     @Transactional
     public boolean removeById(Long id) {
-        return baseMapper.deleteById(id) > 0;
+        Bill existingBill = baseMapper.selectById(id);
+        if (existingBill == null) {
+            return false;
+        }
+        if (baseMapper.deleteById(id) > 0) {
+            billRollupService.onBillDeleted(existingBill);
+            budgetCounterService.onBillDeleted(existingBill);
+            categoryClassifierService.onBillDeleted(existingBill);
+            userDataVersion.bump(existingBill.getUserId(),
+                    version -> billColumnStore.onDeleted(existingBill.getUserId(), version, existingBill));
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -97,6 +177,55 @@ public class BillServiceImpl extends ServiceImpl<BillMapper, Bill> implements Bi
      */
     @Override
     public Page<Bill> pageUserBills(Page<Bill> pageRequest, Long userId, String transactionType, String billType, Long categoryId, String startDateStr, String endDateStr) {
+        QueryWrapper<Bill> queryWrapper = buildUserBillQuery(userId, transactionType, billType, categoryId, startDateStr, endDateStr);
+        queryWrapper.orderByDesc("issue_date", "id");
+
+        log.info("生成的SQL查询条件: {}", queryWrapper.getCustomSqlSegment());
+
+        return baseMapper.selectPage(pageRequest, queryWrapper);
+    }
+
+    /**
+     * 游标分页查询用户账单
+     * 依赖 (user_id, deleted, issue_date, id) 复合索引，每页只扫描 size + 1 行，与翻页深度无关。
+     * issue_date 为空的账单在 MySQL 倒序中排在最后，游标中以空日期表示。
+     */
+    @Override
+    public CursorPage<Bill> scrollUserBills(Long userId, String cursor, int size, String transactionType, String billType,
+                                            Long categoryId, String startDate, String endDate, boolean withTotal) {
+        QueryWrapper<Bill> queryWrapper = buildUserBillQuery(userId, transactionType, billType, categoryId, startDate, endDate);
+
+        Long total = null;
+        if (withTotal && !StringUtils.hasText(cursor)) {
+            total = baseMapper.selectCount(queryWrapper);
+        }
+
+        if (StringUtils.hasText(cursor)) {
+            BillCursor position = decodeCursor(cursor);
+            if (position.issueDate() != null) {
+                queryWrapper.and(w -> w.lt("issue_date", position.issueDate())
+                        .or(o -> o.eq("issue_date", position.issueDate()).lt("id", position.id()))
+                        .or().isNull("issue_date"));
+            } else {
+                queryWrapper.isNull("issue_date").lt("id", position.id());
+            }
+        }
+
+        queryWrapper.orderByDesc("issue_date", "id");
+        queryWrapper.last("LIMIT " + (size + 1));
+
+        List<Bill> records = baseMapper.selectList(queryWrapper);
+        boolean hasMore = records.size() > size;
+        if (hasMore) {
+            records = records.subList(0, size);
+        }
+        String nextCursor = hasMore ? encodeCursor(records.get(records.size() - 1)) : null;
+
+        log.debug("游标分页查询账单: userId={}, size={}, 返回{}条, hasMore={}", userId, size, records.size(), hasMore);
+        return new CursorPage<>(records, nextCursor, hasMore, total);
+    }
+
+    private QueryWrapper<Bill> buildUserBillQuery(Long userId, String transactionType, String billType, Long categoryId, String startDateStr, String endDateStr) {
         QueryWrapper<Bill> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("user_id", userId);
 
@@ -127,12 +256,29 @@ public class BillServiceImpl extends ServiceImpl<BillMapper, Bill> implements Bi
         } catch (DateTimeParseException e) {
             log.error("日期格式解析错误: startDate={}, endDate={}", startDateStr, endDateStr, e);
         }
+        return queryWrapper;
+    }
 
-        queryWrapper.orderByDesc("issue_date", "id");
-
-        log.info("生成的SQL查询条件: {}", queryWrapper.getCustomSqlSegment());
+    private String encodeCursor(Bill last) {
+        String raw = (last.getIssueDate() != null ? last.getIssueDate().toString() : "") + CURSOR_SEPARATOR + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        return baseMapper.selectPage(pageRequest, queryWrapper);
+    private BillCursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException(ERROR_INVALID_CURSOR);
+            }
+            String datePart = raw.substring(0, separator);
+            LocalDate issueDate = datePart.isEmpty() ? null : LocalDate.parse(datePart);
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new BillCursor(issueDate, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.warn("分页游标解析失败: {}", cursor);
+            throw new IllegalArgumentException(ERROR_INVALID_CURSOR);
+        }
     }
 
     @Override
@@ -166,13 +312,8 @@ public class BillServiceImpl extends ServiceImpl<BillMapper, Bill> implements Bi
             return true; // 允许分类为空
         }
 
-        BillCategory category = billCategoryService.getById(categoryId);
-        if (category == null) {
-            return false;
-        }
-
-        // 检查是否是系统分类或用户自己的分类
-        return category.getUserId() == null || userId.equals(category.getUserId());
+        // 用户的分类快照只包含系统分类和用户自己的分类
+        return categoryIndex.get(userId).contains(categoryId);
     }
 
     @Override
@@ -200,4 +341,6 @@ public class BillServiceImpl extends ServiceImpl<BillMapper, Bill> implements Bi
         queryWrapper.orderByDesc("issue_date");
         return baseMapper.selectList(queryWrapper);
     }
-}
\ No newline at end of file
+
+    private record BillCursor(LocalDate issueDate, long id) {}
+}
@@ -0,0 +1,192 @@
+package org.maram.bill.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.enums.TransactionType;
+import org.maram.bill.common.event.BudgetThresholdCrossedEvent;
+import org.maram.bill.common.utils.CentsKernel;
+import org.maram.bill.entity.Bill;
+import org.maram.bill.entity.UserBudget;
+import org.maram.bill.mapper.UserBudgetMapper;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.BudgetCounterService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 预算计数器服务实现类
+ *
+ * 同一次写入的支出增量先按用户、日期合并，再锁定日期范围内受影响的预算行（SELECT ... FOR UPDATE），
+ * 每个预算按其周期截取增量后原子累加。锁定读取到的旧值与累加后的新值用于判断是否越过阈值，
+ * 并发写入同一用户时由行锁串行化，因此每次越过只会被检测到一次。
+ * 汇总表回填完成前，初始化计数器直接聚合 bill 表，全量校正则推迟到回填完成后执行。
+ *
+ * 全量校正按预算逐个进行，每个预算一个短事务：先锁定预算行，再以一致性读取汇总表合计后覆盖计数器。
+ * 已持有该预算行锁的写入事务会先提交并体现在合计中；尚未拿到锁的写入事务的汇总增量对本次读取不可见，
+ * 它们在校正提交后再累加到计数器上，因此校正不会吞掉并发写入的增量。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BudgetCounterServiceImpl implements BudgetCounterService {
+
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+    private static final int RECONCILE_PAGE_SIZE = 500;
+
+    private final UserBudgetMapper userBudgetMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BillRollupService billRollupService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional
+    public void onBillsInserted(List<Bill> bills) {
+        Map<Long, NavigableMap<LocalDate, Long>> deltas = new HashMap<>();
+        for (Bill bill : bills) {
+            accumulate(deltas, bill, 1);
+        }
+        apply(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void onBillUpdated(Bill before, Bill after) {
+        Map<Long, NavigableMap<LocalDate, Long>> deltas = new HashMap<>();
+        accumulate(deltas, before, -1);
+        accumulate(deltas, after, 1);
+        apply(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void onBillDeleted(Bill bill) {
+        Map<Long, NavigableMap<LocalDate, Long>> deltas = new HashMap<>();
+        accumulate(deltas, bill, -1);
+        apply(deltas);
+    }
+
+    @Override
+    public void initialize(Long budgetId) {
+        if (billRollupService.isBuilt()) {
+            userBudgetMapper.recomputeUsedCents(budgetId);
+        } else {
+            userBudgetMapper.recomputeUsedCentsFromBill(budgetId);
+        }
+    }
+
+    @Override
+    public int reconcileAll() {
+        if (!billRollupService.isBuilt()) {
+            log.info("账单日汇总尚未回填完成，跳过预算计数器校正");
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int checked = 0;
+        int updated = 0;
+        long afterId = 0;
+        List<Long> ids;
+        while (!(ids = userBudgetMapper.selectIdsAfter(afterId, RECONCILE_PAGE_SIZE)).isEmpty()) {
+            for (Long id : ids) {
+                try {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(status -> reconcile(id)))) {
+                        updated++;
+                    }
+                    checked++;
+                } catch (Exception e) {
+                    log.error("校正预算 {} 的计数器失败", id, e);
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        log.info("预算计数器校正完成: 检查={}, 修正={}, 耗时={}ms", checked, updated, System.currentTimeMillis() - start);
+        return updated;
+    }
+
+    /**
+     * 在调用方事务内锁定预算行并按汇总表覆盖计数器
+     * @return 计数器是否发生变化
+     */
+    private boolean reconcile(Long budgetId) {
+        UserBudget budget = userBudgetMapper.selectByIdForUpdate(budgetId);
+        if (budget == null) {
+            return false;
+        }
+        long usedCents = userBudgetMapper.selectExpenseCentsFromRollup(budget.getUserId(), budget.getStartDate(),
+                budget.getEndDate());
+        if (budget.getUsedCents() != null && budget.getUsedCents() == usedCents) {
+            return false;
+        }
+        userBudgetMapper.setUsedCents(budgetId, usedCents);
+        return true;
+    }
+
+    private void accumulate(Map<Long, NavigableMap<LocalDate, Long>> deltas, Bill bill, int sign) {
+        if (bill == null || bill.getUserId() == null || bill.getIssueDate() == null || bill.getTotalAmount() == null
+                || !TransactionType.EXPENSE.getValue().equalsIgnoreCase(bill.getTransactionType())) {
+            return;
+        }
+        deltas.computeIfAbsent(bill.getUserId(), k -> new TreeMap<>())
+                .merge(bill.getIssueDate(), sign * CentsKernel.toCents(bill.getTotalAmount()), Long::sum);
+    }
+
+    private void apply(Map<Long, NavigableMap<LocalDate, Long>> deltas) {
+        deltas.forEach((userId, byDay) -> {
+            byDay.values().removeIf(delta -> delta == 0);
+            if (byDay.isEmpty()) {
+                return;
+            }
+            List<UserBudget> budgets = userBudgetMapper.selectCountersForUpdate(userId, byDay.firstKey(), byDay.lastKey());
+            for (UserBudget budget : budgets) {
+                long delta = 0;
+                for (long cents : byDay.subMap(budget.getStartDate(), true, budget.getEndDate(), true).values()) {
+                    delta += cents;
+                }
+                if (delta != 0 && userBudgetMapper.addUsedCents(budget.getId(), delta) > 0) {
+                    detectCrossing(budget, budget.getUsedCents(), budget.getUsedCents() + delta);
+                }
+            }
+        });
+    }
+
+    private void detectCrossing(UserBudget budget, long beforeCents, long afterCents) {
+        BudgetThresholdCrossedEvent.Level before = levelOf(budget, beforeCents);
+        BudgetThresholdCrossedEvent.Level after = levelOf(budget, afterCents);
+        if (after.compareTo(before) <= 0) {
+            return;
+        }
+        log.info("预算 {} 状态变化: {} -> {}, 用户={}, 已用={}分", budget.getId(), before, after, budget.getUserId(), afterCents);
+        eventPublisher.publishEvent(new BudgetThresholdCrossedEvent(budget.getUserId(), budget.getId(),
+                budget.getBudgetType(), budget.getStartDate(), after, CentsKernel.toAmount(afterCents),
+                budget.getBudgetAmount(), budget.getAlertThreshold()));
+    }
+
+    /**
+     * 与 {@link UserBudget#checkIsOverBudget()}、{@link UserBudget#checkIsNearThreshold()} 口径一致
+     */
+    private BudgetThresholdCrossedEvent.Level levelOf(UserBudget budget, long usedCents) {
+        if (budget.getBudgetAmount() == null) {
+            return BudgetThresholdCrossedEvent.Level.NORMAL;
+        }
+        long budgetCents = CentsKernel.toCents(budget.getBudgetAmount());
+        if (usedCents > budgetCents) {
+            return BudgetThresholdCrossedEvent.Level.OVER_BUDGET;
+        }
+        if (budget.getAlertThreshold() != null) {
+            BigDecimal thresholdCents = BigDecimal.valueOf(budgetCents).multiply(budget.getAlertThreshold()).divide(HUNDRED);
+            if (BigDecimal.valueOf(usedCents).compareTo(thresholdCents) >= 0) {
+                return BudgetThresholdCrossedEvent.Level.NEAR_THRESHOLD;
+            }
+        }
+        return BudgetThresholdCrossedEvent.Level.NORMAL;
+    }
+}
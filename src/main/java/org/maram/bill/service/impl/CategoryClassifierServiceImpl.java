@@ -0,0 +1,315 @@
+package org.maram.bill.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.utils.NaiveBayes;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.Bill;
+import org.maram.bill.entity.BillCategory;
+import org.maram.bill.entity.CategoryClassifier;
+import org.maram.bill.entity.CategoryClassifierDelta;
+import org.maram.bill.mapper.BillMapper;
+import org.maram.bill.mapper.CategoryClassifierDeltaMapper;
+import org.maram.bill.mapper.CategoryClassifierMapper;
+import org.maram.bill.service.CategoryClassifierService;
+import org.maram.bill.service.support.CategoryIndex;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 用户分类器服务实现类
+ *
+ * 只学习用户确认过分类的账单（bill.category_confirmed），分类器自己的预测与关键词匹配兜底的结果不参与训练。
+ * 账单写入时只向 category_classifier_delta 追加样本（学习 +1 / 撤销 -1），不锁定模型行；
+ * 后台任务按用户合并：先以 INSERT ... ON DUPLICATE KEY UPDATE 创建或锁定模型行，再在同一可重复读快照中
+ * 读取待合并样本，应用后写回模型并按ID删除这些样本。模型行首次创建时用全部已确认账单训练，
+ * 同一快照中可见的样本已体现在账单中，直接删除，因此撤销的样本一定在模型中学习过。
+ * 预测读取进程内缓存的模型，缓存项记录模型版本号，合并写入后在下次预测时重新加载。
+ */
+@Service
+@Slf4j
+public class CategoryClassifierServiceImpl implements CategoryClassifierService {
+
+    private static final int CATEGORY_STATUS_ENABLED = 1;
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 3;
+
+    private final CategoryClassifierMapper classifierMapper;
+    private final CategoryClassifierDeltaMapper deltaMapper;
+    private final BillMapper billMapper;
+    private final CategoryIndex categoryIndex;
+    private final AppConfigProperties.Classifier properties;
+    private final TransactionTemplate foldTransaction;
+
+    /**
+     * 用户ID -> 只读模型
+     */
+    private final Cache<Long, CachedModel> cache;
+
+    private record CachedModel(long version, NaiveBayes model) {
+    }
+
+    public CategoryClassifierServiceImpl(CategoryClassifierMapper classifierMapper,
+                                         CategoryClassifierDeltaMapper deltaMapper,
+                                         BillMapper billMapper,
+                                         CategoryIndex categoryIndex,
+                                         PlatformTransactionManager transactionManager,
+                                         AppConfigProperties appConfigProperties) {
+        this.classifierMapper = classifierMapper;
+        this.deltaMapper = deltaMapper;
+        this.billMapper = billMapper;
+        this.categoryIndex = categoryIndex;
+        this.properties = appConfigProperties.getClassifier();
+        // 合并依赖同一快照内读取的账单与样本一致，显式使用可重复读
+        this.foldTransaction = new TransactionTemplate(transactionManager);
+        this.foldTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaxSize())
+                .expireAfterAccess(Duration.ofHours(6))
+                .build();
+    }
+
+    @Override
+    public Long predict(Bill bill) {
+        if (bill == null || bill.getUserId() == null) {
+            return null;
+        }
+        return predictorFor(bill.getUserId()).apply(bill);
+    }
+
+    @Override
+    public Function<Bill, Long> predictorFor(Long userId) {
+        if (!properties.isEnabled() || userId == null) {
+            return bill -> null;
+        }
+        NaiveBayes model = load(userId);
+        if (model == null || model.documentCount() < properties.getMinDocuments()) {
+            return bill -> null;
+        }
+        CategoryIndex.Snapshot categories = categoryIndex.get(userId);
+        return bill -> {
+            int[] features = features(bill.getName(), bill.getSupplierName(), bill.getBillType());
+            NaiveBayes.Prediction prediction = features.length > 0 ? model.predict(features) : null;
+            if (prediction == null || prediction.probability() < properties.getMinConfidence()) {
+                return null;
+            }
+            BillCategory category = categories.getById(prediction.label());
+            if (category == null || !Objects.equals(CATEGORY_STATUS_ENABLED, category.getStatus())) {
+                return null;
+            }
+            log.debug("分类器预测账单分类: userId={}, categoryId={}, 概率={}",
+                    userId, prediction.label(), prediction.probability());
+            return prediction.label();
+        };
+    }
+
+    @Override
+    @Transactional
+    public void onBillsInserted(List<Bill> bills) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<CategoryClassifierDelta> deltas = new ArrayList<>();
+        for (Bill bill : bills) {
+            addDelta(deltas, bill, 1);
+        }
+        append(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void onBillUpdated(Bill before, Bill after) {
+        if (!properties.isEnabled() || !changesTraining(before, after)) {
+            return;
+        }
+        List<CategoryClassifierDelta> deltas = new ArrayList<>(2);
+        addDelta(deltas, before, -1);
+        addDelta(deltas, after, 1);
+        append(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void onBillDeleted(Bill bill) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<CategoryClassifierDelta> deltas = new ArrayList<>(1);
+        addDelta(deltas, bill, -1);
+        append(deltas);
+    }
+
+    @Override
+    public int foldPendingDeltas() {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        List<Long> userIds = deltaMapper.selectPendingUserIds(properties.getFoldBatchUsers());
+        int folded = 0;
+        for (Long userId : userIds) {
+            try {
+                foldTransaction.executeWithoutResult(status -> fold(userId));
+                folded++;
+            } catch (Exception e) {
+                log.error("合并用户 {} 的分类器样本失败", userId, e);
+            }
+        }
+        if (folded > 0) {
+            log.info("分类器样本合并完成: 用户数={}/{}", folded, userIds.size());
+        }
+        return folded;
+    }
+
+    /**
+     * 在调用方事务内创建或锁定模型行，随后的普通读取都在取得锁之后建立的同一快照中进行
+     */
+    private void fold(Long userId) {
+        classifierMapper.lockOrCreate(userId);
+        CategoryClassifier row = classifierMapper.selectById(userId);
+        List<CategoryClassifierDelta> deltas = deltaMapper.selectByUserId(userId);
+        NaiveBayes model = row != null && row.getModel() != null ? decode(userId, row.getModel()) : null;
+        if (model == null) {
+            // 首次建模或模型损坏：全部已确认账单已包含这些样本的效果，样本直接丢弃
+            model = train(userId);
+        } else {
+            for (CategoryClassifierDelta delta : deltas) {
+                int[] features = features(delta.getName(), delta.getSupplierName(), delta.getBillType());
+                if (features.length == 0) {
+                    continue;
+                }
+                if (delta.getSign() > 0) {
+                    model.learn(delta.getCategoryId(), features);
+                } else {
+                    model.unlearn(delta.getCategoryId(), features);
+                }
+            }
+        }
+        classifierMapper.updateModel(userId, model.toBytes(), model.documentCount());
+        if (!deltas.isEmpty()) {
+            deltaMapper.deleteByIds(deltas.stream().map(CategoryClassifierDelta::getId).toList());
+        }
+    }
+
+    private void append(List<CategoryClassifierDelta> deltas) {
+        if (!deltas.isEmpty()) {
+            deltaMapper.insertBatch(deltas);
+        }
+    }
+
+    /**
+     * 只有确认过分类且带有文本特征的账单才产生样本
+     */
+    private void addDelta(List<CategoryClassifierDelta> deltas, Bill bill, int sign) {
+        if (bill == null || bill.getUserId() == null || bill.getCategoryId() == null
+                || !Boolean.TRUE.equals(bill.getCategoryConfirmed())
+                || features(bill.getName(), bill.getSupplierName(), bill.getBillType()).length == 0) {
+            return;
+        }
+        deltas.add(CategoryClassifierDelta.builder()
+                .userId(bill.getUserId())
+                .categoryId(bill.getCategoryId())
+                .sign(sign)
+                .name(bill.getName())
+                .supplierName(bill.getSupplierName())
+                .billType(bill.getBillType())
+                .createTime(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * 读取模型，模型尚未建立时返回 null（只读，不在请求路径上训练或写入）
+     */
+    private NaiveBayes load(Long userId) {
+        Long version = classifierMapper.selectVersion(userId);
+        if (version == null) {
+            return null;
+        }
+        CachedModel cached = cache.getIfPresent(userId);
+        if (cached != null && cached.version() == version) {
+            return cached.model();
+        }
+        CategoryClassifier row = classifierMapper.selectById(userId);
+        if (row == null || row.getModel() == null) {
+            return null;
+        }
+        NaiveBayes model = decode(userId, row.getModel());
+        if (model != null) {
+            cache.put(userId, new CachedModel(row.getVersion(), model));
+        }
+        return model;
+    }
+
+    /**
+     * 解析模型，无法解析时返回 null（合并任务据此重新训练）
+     */
+    private NaiveBayes decode(Long userId, byte[] bytes) {
+        try {
+            return NaiveBayes.fromBytes(bytes);
+        } catch (RuntimeException e) {
+            log.warn("用户 {} 的分类器模型无法解析", userId, e);
+            return null;
+        }
+    }
+
+    private NaiveBayes train(Long userId) {
+        long start = System.currentTimeMillis();
+        NaiveBayes model = new NaiveBayes();
+        for (Bill bill : billMapper.selectTrainingBills(userId)) {
+            int[] features = features(bill.getName(), bill.getSupplierName(), bill.getBillType());
+            if (features.length > 0) {
+                model.learn(bill.getCategoryId(), features);
+            }
+        }
+        log.info("训练用户 {} 的分类器: 样本数={}, 耗时={}ms", userId, model.documentCount(), System.currentTimeMillis() - start);
+        return model;
+    }
+
+    private boolean changesTraining(Bill before, Bill after) {
+        return !Objects.equals(before.getCategoryConfirmed(), after.getCategoryConfirmed())
+                || !Objects.equals(before.getCategoryId(), after.getCategoryId())
+                || !Objects.equals(before.getName(), after.getName())
+                || !Objects.equals(before.getSupplierName(), after.getSupplierName())
+                || !Objects.equals(before.getBillType(), after.getBillType());
+    }
+
+    /**
+     * 名称、供应商、账单类型各自取字符 2-gram 与 3-gram（文本只有一个字符时取该字符），
+     * 特征加上字段前缀后取哈希，不同字段的同一片段互不干扰
+     */
+    private static int[] features(String name, String supplierName, String billType) {
+        List<Integer> features = new ArrayList<>();
+        addGrams(features, 'n', name);
+        addGrams(features, 's', supplierName);
+        addGrams(features, 't', billType);
+        return features.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void addGrams(List<Integer> features, char field, String text) {
+        if (!StringUtils.hasText(text)) {
+            return;
+        }
+        String normalized = text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        if (normalized.length() < MIN_GRAM) {
+            features.add((field + ":" + normalized).hashCode());
+            return;
+        }
+        for (int n = MIN_GRAM; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= normalized.length(); i++) {
+                features.add((field + ":" + normalized.substring(i, i + n)).hashCode());
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.maram.bill.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.entity.CategoryKeyword;
+import org.maram.bill.mapper.CategoryKeywordMapper;
+import org.maram.bill.service.CategoryKeywordService;
+import org.maram.bill.service.support.CategoryIndex;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 分类关键词服务实现类
+ * 每次写入递增用户的分类版本，使分类匹配自动机在下次匹配时重新构建
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CategoryKeywordServiceImpl implements CategoryKeywordService {
+
+    private final CategoryKeywordMapper categoryKeywordMapper;
+    private final CategoryIndex categoryIndex;
+
+    @Override
+    public List<CategoryKeyword> listByCategory(Long categoryId, Long userId) {
+        return categoryKeywordMapper.selectByCategoryId(categoryId, userId);
+    }
+
+    @Override
+    @Transactional
+    public CategoryKeyword add(Long categoryId, Long userId, CategoryKeyword keyword) {
+        String normalized = keyword.getKeyword().trim().toLowerCase(Locale.ROOT);
+        LambdaQueryWrapper<CategoryKeyword> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(CategoryKeyword::getCategoryId, categoryId)
+                .eq(CategoryKeyword::getKeyword, normalized)
+                .and(wrapper -> wrapper.eq(CategoryKeyword::getUserId, userId).or().isNull(CategoryKeyword::getUserId));
+        if (categoryKeywordMapper.selectCount(queryWrapper) > 0) {
+            log.debug("分类 {} 已存在关键词: {}", categoryId, normalized);
+            return null;
+        }
+
+        CategoryKeyword entity = CategoryKeyword.builder()
+                .userId(userId)
+                .categoryId(categoryId)
+                .keyword(normalized)
+                .weight(keyword.getWeight() != null ? keyword.getWeight() : CategoryKeyword.DEFAULT_WEIGHT)
+                .build();
+        try {
+            categoryKeywordMapper.insert(entity);
+        } catch (DuplicateKeyException e) {
+            // 并发添加同一关键词时由唯一索引兜底
+            log.debug("分类 {} 已存在关键词: {}", categoryId, normalized);
+            return null;
+        }
+        categoryIndex.onChanged(userId);
+        return entity;
+    }
+
+    @Override
+    @Transactional
+    public boolean remove(Long categoryId, Long keywordId, Long userId) {
+        LambdaQueryWrapper<CategoryKeyword> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(CategoryKeyword::getId, keywordId)
+                .eq(CategoryKeyword::getCategoryId, categoryId)
+                .eq(CategoryKeyword::getUserId, userId);
+        boolean removed = categoryKeywordMapper.delete(queryWrapper) > 0;
+        if (removed) {
+            categoryIndex.onChanged(userId);
+        }
+        return removed;
+    }
+}
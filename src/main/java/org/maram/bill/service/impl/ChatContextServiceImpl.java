@@ -1,19 +1,32 @@
 package org.maram.bill.service.impl;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.ChatMessage;
+import org.maram.bill.mapper.ChatMessageMapper;
 import org.maram.bill.service.ChatContextService;
+import org.maram.bill.service.support.ChatMessageLogWriter;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * 基于 Redis 的轻量级聊天上下文管理
@@ -22,17 +35,90 @@ import java.util.stream.Collectors;
  * Key: chat:context:{conversationId}
  * Value: LinkedList<MessagePair> (最近N轮对话)
  * TTL: 1小时（避免内存泄漏）
+ *
+ * 近端缓存：
+ * 进程内 Caffeine 缓存保存最近访问的上下文快照（有界、短TTL），读操作优先命中本地。
+ * 每次写入 Redis 后通过 pub/sub 广播失效通知，其他节点收到后移除本地副本。
+ *
+ * 持久化日志：
+ * 每条消息同时交给 {@link ChatMessageLogWriter} 异步批量写入 chat_message 表，
+ * 用于超过 Redis TTL 后的历史查询与问题分析。
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ChatContextServiceImpl implements ChatContextService {
 
     private static final String CONTEXT_KEY_PREFIX = "chat:context:";
     private static final int CONTEXT_TTL_HOURS = 1;  // 上下文过期时间：1小时
     private static final int MAX_STORED_ROUNDS = 10; // Redis中最多存储10轮对话
+    private static final String INVALIDATION_SEPARATOR = "|";
+    private static final int INVALIDATION_STRIPES = 64;
     
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final AppConfigProperties.ChatContext contextProperties;
+    private final ChatMessageLogWriter chatMessageLogWriter;
+    private final ChatMessageMapper chatMessageMapper;
+
+    /**
+     * 本地近端缓存，值为不可变快照，写入时整体替换
+     */
+    private final Cache<String, List<MessagePair>> nearCache;
+
+    /**
+     * 按会话ID分段的失效计数：回源前记下计数，回填时计数已变化说明期间发生过失效或写入，放弃回填
+     */
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    /**
+     * 当前节点标识，用于忽略自己发出的失效通知
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ChatContextServiceImpl(RedisTemplate<String, Object> redisTemplate,
+                                  StringRedisTemplate stringRedisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  AppConfigProperties appConfigProperties,
+                                  ChatMessageLogWriter chatMessageLogWriter,
+                                  ChatMessageMapper chatMessageMapper) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.contextProperties = appConfigProperties.getChatContext();
+        this.chatMessageLogWriter = chatMessageLogWriter;
+        this.chatMessageMapper = chatMessageMapper;
+        this.nearCache = contextProperties.isNearCacheEnabled()
+                ? Caffeine.newBuilder()
+                    .maximumSize(contextProperties.getNearCacheMaxSize())
+                    .expireAfterWrite(Duration.ofSeconds(contextProperties.getNearCacheTtlSeconds()))
+                    .build()
+                : null;
+    }
+
+    @PostConstruct
+    public void subscribeInvalidation() {
+        if (nearCache == null) {
+            return;
+        }
+        MessageListener listener = (message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = body.indexOf(INVALIDATION_SEPARATOR);
+            if (separator < 0) {
+                return;
+            }
+            String sourceNode = body.substring(0, separator);
+            if (nodeId.equals(sourceNode)) {
+                return;
+            }
+            String conversationId = body.substring(separator + 1);
+            invalidateLocal(conversationId);
+            log.debug("收到上下文失效通知 [{}], 来源节点: {}", conversationId, sourceNode);
+        };
+        listenerContainer.addMessageListener(listener, new ChannelTopic(contextProperties.getInvalidationChannel()));
+        log.info("聊天上下文近端缓存已启用, 节点: {}, 容量: {}, TTL: {}s",
+                nodeId, contextProperties.getNearCacheMaxSize(), contextProperties.getNearCacheTtlSeconds());
+    }
 
     @Override
     public void addUserMessage(String conversationId, String message) {
@@ -40,14 +126,8 @@ public class ChatContextServiceImpl implements ChatContextService {
             return;
         }
         
-        String key = buildKey(conversationId);
-        
         // 获取当前上下文
-        @SuppressWarnings("unchecked")
-        LinkedList<MessagePair> context = (LinkedList<MessagePair>) redisTemplate.opsForValue().get(key);
-        if (context == null) {
-            context = new LinkedList<>();
-        }
+        LinkedList<MessagePair> context = new LinkedList<>(loadContext(conversationId));
         
         // 添加用户消息（创建新的对话轮）
         context.add(new MessagePair(message, null));
@@ -58,7 +138,8 @@ public class ChatContextServiceImpl implements ChatContextService {
         }
         
         // 保存到 Redis
-        redisTemplate.opsForValue().set(key, context, CONTEXT_TTL_HOURS, TimeUnit.HOURS);
+        storeContext(conversationId, context);
+        chatMessageLogWriter.append(conversationId, ChatMessage.ROLE_USER, message);
         
         log.debug("添加用户消息到上下文 [{}], 当前轮数: {}", conversationId, context.size());
     }
@@ -69,22 +150,21 @@ public class ChatContextServiceImpl implements ChatContextService {
             return;
         }
         
-        String key = buildKey(conversationId);
-        
         // 获取当前上下文
-        @SuppressWarnings("unchecked")
-        LinkedList<MessagePair> context = (LinkedList<MessagePair>) redisTemplate.opsForValue().get(key);
-        if (context == null || context.isEmpty()) {
+        List<MessagePair> current = loadContext(conversationId);
+        if (current.isEmpty()) {
             log.warn("尝试添加AI响应，但没有对应的用户消息 [{}]", conversationId);
             return;
         }
         
-        // 更新最后一轮的AI响应
-        MessagePair lastRound = context.getLast();
-        lastRound.setAssistantMessage(message);
+        // 更新最后一轮的AI响应（复制一份，避免修改本地缓存中的共享快照）
+        LinkedList<MessagePair> context = new LinkedList<>(current);
+        MessagePair lastRound = context.removeLast();
+        context.add(new MessagePair(lastRound.getUserMessage(), message));
         
         // 保存到 Redis
-        redisTemplate.opsForValue().set(key, context, CONTEXT_TTL_HOURS, TimeUnit.HOURS);
+        storeContext(conversationId, context);
+        chatMessageLogWriter.append(conversationId, ChatMessage.ROLE_ASSISTANT, message);
         
         log.debug("添加AI响应到上下文 [{}], 当前轮数: {}", conversationId, context.size());
     }
@@ -95,12 +175,9 @@ public class ChatContextServiceImpl implements ChatContextService {
             return new ArrayList<>();
         }
         
-        String key = buildKey(conversationId);
-        
         // 获取上下文
-        @SuppressWarnings("unchecked")
-        LinkedList<MessagePair> context = (LinkedList<MessagePair>) redisTemplate.opsForValue().get(key);
-        if (context == null || context.isEmpty()) {
+        List<MessagePair> context = loadContext(conversationId);
+        if (context.isEmpty()) {
             return new ArrayList<>();
         }
         
@@ -133,10 +210,84 @@ public class ChatContextServiceImpl implements ChatContextService {
         
         String key = buildKey(conversationId);
         redisTemplate.delete(key);
+        if (nearCache != null) {
+            invalidateLocal(conversationId);
+            publishInvalidation(conversationId);
+        }
         
         log.info("清空对话上下文 [{}]", conversationId);
     }
 
+    @Override
+    public List<ChatMessage> getHistory(String conversationId, Long beforeId, int size) {
+        if (conversationId == null || size <= 0) {
+            return new ArrayList<>();
+        }
+        return chatMessageMapper.selectHistory(conversationId, beforeId, size);
+    }
+
+    /**
+     * 读取上下文：优先本地近端缓存，未命中时回源 Redis；回源期间没有发生失效时才回填
+     */
+    private List<MessagePair> loadContext(String conversationId) {
+        if (nearCache != null) {
+            List<MessagePair> cached = nearCache.getIfPresent(conversationId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long generation = nearCache != null ? invalidations.get(stripeOf(conversationId)) : 0L;
+
+        @SuppressWarnings("unchecked")
+        LinkedList<MessagePair> context = (LinkedList<MessagePair>) redisTemplate.opsForValue().get(buildKey(conversationId));
+        List<MessagePair> snapshot = context == null ? List.of() : List.copyOf(context);
+
+        if (nearCache != null) {
+            nearCache.asMap().computeIfAbsent(conversationId,
+                    k -> invalidations.get(stripeOf(k)) == generation ? snapshot : null);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 写入 Redis，刷新本地快照并通知其他节点失效
+     */
+    private void storeContext(String conversationId, LinkedList<MessagePair> context) {
+        redisTemplate.opsForValue().set(buildKey(conversationId), context, CONTEXT_TTL_HOURS, TimeUnit.HOURS);
+        if (nearCache != null) {
+            List<MessagePair> snapshot = List.copyOf(context);
+            nearCache.asMap().compute(conversationId, (k, v) -> {
+                invalidations.incrementAndGet(stripeOf(k));
+                return snapshot;
+            });
+            publishInvalidation(conversationId);
+        }
+    }
+
+    /**
+     * 移除本地副本；在缓存项的锁内递增计数，与回填互斥
+     */
+    private void invalidateLocal(String conversationId) {
+        nearCache.asMap().compute(conversationId, (k, v) -> {
+            invalidations.incrementAndGet(stripeOf(k));
+            return null;
+        });
+    }
+
+    private static int stripeOf(String conversationId) {
+        return Math.floorMod(conversationId.hashCode(), INVALIDATION_STRIPES);
+    }
+
+    private void publishInvalidation(String conversationId) {
+        try {
+            stringRedisTemplate.convertAndSend(contextProperties.getInvalidationChannel(),
+                    nodeId + INVALIDATION_SEPARATOR + conversationId);
+        } catch (Exception e) {
+            // 通知失败时其他节点最多在近端缓存 TTL 内读到旧数据
+            log.warn("发布上下文失效通知失败 [{}]", conversationId, e);
+        }
+    }
+
     private String buildKey(String conversationId) {
         return CONTEXT_KEY_PREFIX + conversationId;
     }
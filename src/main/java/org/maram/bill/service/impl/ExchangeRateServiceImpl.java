@@ -4,16 +4,19 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.maram.bill.config.properties.ExchangeRateApiProperties;
+import org.maram.bill.entity.Bill;
 import org.maram.bill.entity.Currency;
 import org.maram.bill.entity.ExchangeRate;
 import org.maram.bill.mapper.CurrencyMapper;
 import org.maram.bill.mapper.ExchangeRateMapper;
 import org.maram.bill.service.ExchangeRateService;
+import org.maram.bill.service.support.ExchangeRateIndex;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -23,12 +26,15 @@ import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 汇率服务实现类
+ *
+ * 换算只查 {@link ExchangeRateIndex} 中预先算好的交叉汇率矩阵，不访问数据库。
  */
 @Service
 @Slf4j
@@ -36,7 +42,6 @@ public class ExchangeRateServiceImpl extends ServiceImpl<ExchangeRateMapper, Exc
 
     private static final ZoneId DEFAULT_ZONE_ID = ZoneId.systemDefault();
     
-    private static final int RATE_CALCULATION_SCALE = 10;
     private static final int RATE_DISPLAY_SCALE = 8;
     private static final int AMOUNT_CALCULATION_SCALE = 8;
     private static final int AMOUNT_DISPLAY_SCALE = 2;
@@ -49,13 +54,16 @@ public class ExchangeRateServiceImpl extends ServiceImpl<ExchangeRateMapper, Exc
     private final RestTemplate restTemplate;
     private final ExchangeRateApiProperties apiProperties;
     private final CurrencyMapper currencyMapper;
+    private final ExchangeRateIndex exchangeRateIndex;
 
     public ExchangeRateServiceImpl(RestTemplateBuilder restTemplateBuilder,
                                    ExchangeRateApiProperties apiProperties,
-                                   CurrencyMapper currencyMapper) {
+                                   CurrencyMapper currencyMapper,
+                                   ExchangeRateIndex exchangeRateIndex) {
         this.restTemplate = restTemplateBuilder.build();
         this.apiProperties = apiProperties;
         this.currencyMapper = currencyMapper;
+        this.exchangeRateIndex = exchangeRateIndex;
     }
 
     @Override
@@ -67,74 +75,108 @@ public class ExchangeRateServiceImpl extends ServiceImpl<ExchangeRateMapper, Exc
 
     @Override
     public Map<String, Object> convertCurrencyUsingStoredRates(BigDecimal amount, String fromCurrencyCode, String toCurrencyCode) {
-        String fromCode = fromCurrencyCode.toUpperCase();
-        String toCode = toCurrencyCode.toUpperCase();
-        String baseCode = apiProperties.getBaseCurrency().toUpperCase();
-
-        if (fromCode.equals(toCode)) {
-            return createConversionResult(amount, fromCode, amount, toCode, BigDecimal.ONE, LocalDateTime.now());
-        }
+        return convert(exchangeRateIndex.current(), amount, fromCurrencyCode, toCurrencyCode);
+    }
 
-        BigDecimal finalRate;
-        LocalDateTime rateTimestamp;
-
-        if (fromCode.equals(baseCode)) {
-            ConversionRate conversionRate = calculateRateFromBase(baseCode, toCode);
-            finalRate = conversionRate.rate();
-            rateTimestamp = conversionRate.timestamp();
-        } else if (toCode.equals(baseCode)) {
-            ConversionRate conversionRate = calculateRateToBase(baseCode, fromCode);
-            finalRate = conversionRate.rate();
-            rateTimestamp = conversionRate.timestamp();
-        } else {
-            ConversionRate conversionRate = calculateRateThroughBase(baseCode, fromCode, toCode);
-            finalRate = conversionRate.rate();
-            rateTimestamp = conversionRate.timestamp();
+    @Override
+    public List<Map<String, Object>> convertBatchUsingStoredRates(List<ConversionRequest> requests) {
+        ExchangeRateIndex.Snapshot snapshot = exchangeRateIndex.current();
+        List<Map<String, Object>> results = new ArrayList<>(requests.size());
+        for (ConversionRequest request : requests) {
+            try {
+                if (request == null || request.getAmount() == null || request.getAmount().signum() <= 0) {
+                    throw new IllegalArgumentException("金额必须为正数");
+                }
+                if (!StringUtils.hasText(request.getFrom()) || !StringUtils.hasText(request.getTo())) {
+                    throw new IllegalArgumentException("货币代码不能为空");
+                }
+                results.add(convert(snapshot, request.getAmount(), request.getFrom(), request.getTo()));
+            } catch (RuntimeException e) {
+                Map<String, Object> failed = new HashMap<>();
+                if (request != null) {
+                    failed.put("originalAmount", request.getAmount());
+                    failed.put("fromCurrency", request.getFrom());
+                    failed.put("toCurrency", request.getTo());
+                }
+                failed.put("error", e.getMessage());
+                results.add(failed);
+            }
         }
-
-        BigDecimal convertedAmount = amount.multiply(finalRate).setScale(AMOUNT_CALCULATION_SCALE, RoundingMode.HALF_UP);
-        return createConversionResult(amount, fromCode, convertedAmount, toCode, finalRate, rateTimestamp);
+        log.debug("批量货币转换完成: 条数={}, 汇率版本={}", requests.size(), snapshot.version());
+        return results;
     }
 
-    private ConversionRate calculateRateFromBase(String baseCode, String toCode) {
-        ExchangeRate rateEntity = getLatestStoredRate(baseCode, toCode);
-        if (rateEntity == null) {
-            throw new RuntimeException("无法找到存储的汇率: " + baseCode + " -> " + toCode);
+    @Override
+    public String resolveDisplayCurrency(String displayCurrency) {
+        if (!StringUtils.hasText(displayCurrency)) {
+            return null;
+        }
+        String code = displayCurrency.trim().toUpperCase();
+        if (!exchangeRateIndex.current().supports(code)) {
+            throw new IllegalArgumentException("不支持的展示货币: " + code);
         }
-        return new ConversionRate(rateEntity.getRate(), rateEntity.getLastUpdatedFromApi());
+        return code;
     }
 
-    private ConversionRate calculateRateToBase(String baseCode, String fromCode) {
-        ExchangeRate rateEntity = getLatestStoredRate(baseCode, fromCode);
-        if (rateEntity == null) {
-            throw new RuntimeException("无法找到存储的汇率: " + baseCode + " -> " + fromCode + " (用于计算 " + fromCode + " -> " + baseCode + ")");
+    @Override
+    public void applyDisplayCurrency(List<Bill> bills, String displayCurrency) {
+        String toCode = resolveDisplayCurrency(displayCurrency);
+        if (toCode == null || bills == null || bills.isEmpty()) {
+            return;
         }
-        if (rateEntity.getRate().compareTo(BigDecimal.ZERO) == 0) {
-            throw new RuntimeException("存储的汇率 " + baseCode + " -> " + fromCode + " 为0，无法计算倒数");
+        ExchangeRateIndex.Snapshot snapshot = exchangeRateIndex.current();
+        for (Bill bill : bills) {
+            if (bill.getTotalAmount() == null) {
+                continue;
+            }
+            String fromCode = StringUtils.hasText(bill.getCurrencyCode())
+                    ? bill.getCurrencyCode().trim().toUpperCase() : snapshot.baseCode();
+            BigDecimal rate = fromCode.equals(toCode) ? BigDecimal.ONE : rateOrNull(snapshot, fromCode, toCode);
+            if (rate != null) {
+                bill.setDisplayAmount(bill.getTotalAmount().multiply(rate).setScale(AMOUNT_DISPLAY_SCALE, RoundingMode.HALF_UP));
+                bill.setDisplayCurrency(toCode);
+            }
         }
-        BigDecimal rate = BigDecimal.ONE.divide(rateEntity.getRate(), RATE_CALCULATION_SCALE, RoundingMode.HALF_UP);
-        return new ConversionRate(rate, rateEntity.getLastUpdatedFromApi());
     }
 
-    private ConversionRate calculateRateThroughBase(String baseCode, String fromCode, String toCode) {
-        ExchangeRate rateBaseToTarget = getLatestStoredRate(baseCode, toCode);
-        ExchangeRate rateBaseToSource = getLatestStoredRate(baseCode, fromCode);
+    private BigDecimal rateOrNull(ExchangeRateIndex.Snapshot snapshot, String fromCode, String toCode) {
+        ExchangeRateIndex.Rate rate = snapshot.find(fromCode, toCode);
+        return rate != null ? rate.rate() : null;
+    }
 
-        if (rateBaseToTarget == null) {
-            throw new RuntimeException("无法找到存储的汇率: " + baseCode + " -> " + toCode);
-        }
-        if (rateBaseToSource == null) {
-            throw new RuntimeException("无法找到存储的汇率: " + baseCode + " -> " + fromCode);
+    private Map<String, Object> convert(ExchangeRateIndex.Snapshot snapshot, BigDecimal amount,
+                                        String fromCurrencyCode, String toCurrencyCode) {
+        String fromCode = fromCurrencyCode.trim().toUpperCase();
+        String toCode = toCurrencyCode.trim().toUpperCase();
+        String baseCode = apiProperties.getBaseCurrency().toUpperCase();
+
+        if (fromCode.equals(toCode)) {
+            return createConversionResult(amount, fromCode, amount, toCode, BigDecimal.ONE, LocalDateTime.now());
         }
-        if (rateBaseToSource.getRate().compareTo(BigDecimal.ZERO) == 0) {
-            throw new RuntimeException("存储的汇率 " + baseCode + " -> " + fromCode + " 为0，无法进行中转计算");
+
+        ExchangeRateIndex.Rate rate = snapshot.find(fromCode, toCode);
+        if (rate == null) {
+            throw new RuntimeException(missingRateMessage(snapshot, baseCode, fromCode, toCode));
         }
 
-        BigDecimal rate = rateBaseToTarget.getRate().divide(rateBaseToSource.getRate(), RATE_CALCULATION_SCALE, RoundingMode.HALF_UP);
-        LocalDateTime timestamp = rateBaseToTarget.getLastUpdatedFromApi().isAfter(rateBaseToSource.getLastUpdatedFromApi()) ?
-                rateBaseToTarget.getLastUpdatedFromApi() : rateBaseToSource.getLastUpdatedFromApi();
-        
-        return new ConversionRate(rate, timestamp);
+        BigDecimal convertedAmount = amount.multiply(rate.rate()).setScale(AMOUNT_CALCULATION_SCALE, RoundingMode.HALF_UP);
+        return createConversionResult(amount, fromCode, convertedAmount, toCode, rate.rate(), rate.timestamp());
+    }
+
+    /**
+     * 快照中缺少交叉汇率时，说明缺的是哪一段基准汇率
+     */
+    private String missingRateMessage(ExchangeRateIndex.Snapshot snapshot, String baseCode, String fromCode, String toCode) {
+        if (!toCode.equals(baseCode) && snapshot.baseRate(toCode) == null) {
+            return "无法找到存储的汇率: " + baseCode + " -> " + toCode;
+        }
+        ExchangeRate source = snapshot.baseRate(fromCode);
+        if (source == null) {
+            return toCode.equals(baseCode)
+                    ? "无法找到存储的汇率: " + baseCode + " -> " + fromCode + " (用于计算 " + fromCode + " -> " + baseCode + ")"
+                    : "无法找到存储的汇率: " + baseCode + " -> " + fromCode;
+        }
+        return "存储的汇率 " + baseCode + " -> " + fromCode + " 为0，无法" + (toCode.equals(baseCode) ? "计算倒数" : "进行中转计算");
     }
 
     private Map<String, Object> createConversionResult(BigDecimal originalAmount, String fromCurrency,
@@ -150,15 +192,6 @@ public class ExchangeRateServiceImpl extends ServiceImpl<ExchangeRateMapper, Exc
         return result;
     }
 
-    private ExchangeRate getLatestStoredRate(String baseCurrencyCode, String targetCurrencyCode) {
-        LambdaQueryWrapper<ExchangeRate> query = new LambdaQueryWrapper<>();
-        query.eq(ExchangeRate::getBaseCurrencyCode, baseCurrencyCode)
-                .eq(ExchangeRate::getTargetCurrencyCode, targetCurrencyCode)
-                .orderByDesc(ExchangeRate::getLastUpdatedFromApi)
-                .last("LIMIT 1");
-        return baseMapper.selectOne(query);
-    }
-
     @Override
     @Transactional
     public void fetchAndUpdateExchangeRates() {
@@ -201,6 +234,7 @@ public class ExchangeRateServiceImpl extends ServiceImpl<ExchangeRateMapper, Exc
                 log.error("获取或保存汇率 {} -> {} 时发生错误", baseCurrency, targetCurrency, e);
             }
         }
+        exchangeRateIndex.onRatesUpdated();
         log.info("定时更新汇率任务完成");
     }
 
@@ -333,5 +367,8 @@ public class ExchangeRateServiceImpl extends ServiceImpl<ExchangeRateMapper, Exc
         return System.currentTimeMillis();
     }
 
-    private record ConversionRate(BigDecimal rate, LocalDateTime timestamp) {}
+    @Override
+    public void syncRateSnapshot() {
+        exchangeRateIndex.syncIfStale();
+    }
 }
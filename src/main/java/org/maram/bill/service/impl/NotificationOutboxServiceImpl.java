@@ -0,0 +1,175 @@
+package org.maram.bill.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.event.BudgetThresholdCrossedEvent;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.NotificationOutbox;
+import org.maram.bill.mapper.NotificationOutboxMapper;
+import org.maram.bill.service.NotificationOutboxService;
+import org.maram.bill.service.support.NotificationSender;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 通知发件箱服务实现类
+ *
+ * 写入：监听预算越过阈值事件，同步执行，因此与账单写入处于同一事务，事务回滚时通知一并撤销；
+ * 去重键为 budget:{预算ID}:{周期开始日期}:{等级}，重复写入被唯一索引忽略。
+ *
+ * 投递：调度器以"批次标识 + 租约"认领到期记录，多节点同时运行时互不重复。每条通知发送前按批次标识续租，
+ * 续租失败（租约已过期并被其他调度器接管）则跳过；状态更新同样带上批次标识，影响 0 行即视为租约丢失。
+ * 投递在事务之外进行，单条失败只影响自身的重试计划。
+ */
+@Slf4j
+@Service
+public class NotificationOutboxServiceImpl implements NotificationOutboxService {
+
+    private static final String DEDUPE_KEY_FORMAT = "budget:%d:%s:%s";
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final NotificationOutboxMapper outboxMapper;
+    private final NotificationSender notificationSender;
+    private final ObjectMapper objectMapper;
+    private final AppConfigProperties.Notification properties;
+
+    public NotificationOutboxServiceImpl(NotificationOutboxMapper outboxMapper,
+                                         NotificationSender notificationSender,
+                                         ObjectMapper objectMapper,
+                                         AppConfigProperties appConfigProperties) {
+        this.outboxMapper = outboxMapper;
+        this.notificationSender = notificationSender;
+        this.objectMapper = objectMapper;
+        this.properties = appConfigProperties.getNotification();
+    }
+
+    @EventListener
+    public void onBudgetThresholdCrossed(BudgetThresholdCrossedEvent event) {
+        if (properties.isEnabled()) {
+            enqueueBudgetAlert(event);
+        }
+    }
+
+    @Override
+    public void enqueueBudgetAlert(BudgetThresholdCrossedEvent event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("budgetId", event.getBudgetId());
+        payload.put("budgetType", event.getBudgetType());
+        payload.put("periodStart", String.valueOf(event.getPeriodStart()));
+        payload.put("level", event.getLevel().name());
+        payload.put("usedAmount", plain(event.getUsedAmount()));
+        payload.put("budgetAmount", plain(event.getBudgetAmount()));
+        payload.put("alertThreshold", plain(event.getAlertThreshold()));
+
+        LocalDateTime now = LocalDateTime.now();
+        NotificationOutbox message = NotificationOutbox.builder()
+                .userId(event.getUserId())
+                .eventType(event.getLevel().name())
+                .dedupeKey(String.format(DEDUPE_KEY_FORMAT, event.getBudgetId(), event.getPeriodStart(), event.getLevel().name()))
+                .payload(toJson(payload))
+                .nextAttemptAt(now)
+                .createTime(now)
+                .build();
+        if (outboxMapper.insertIgnore(message) == 0) {
+            log.debug("预算预警通知已存在，忽略: {}", message.getDedupeKey());
+        }
+    }
+
+    @Override
+    public int dispatchPending() {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        String claimToken = UUID.randomUUID().toString();
+        int claimed = outboxMapper.claimDue(claimToken, now, now.plusSeconds(properties.getLeaseSeconds()), properties.getBatchSize());
+        if (claimed == 0) {
+            return 0;
+        }
+
+        List<NotificationOutbox> batch = outboxMapper.selectByClaimToken(claimToken);
+        LocalDateTime throttleSince = now.minusMinutes(properties.getUserThrottleWindowMinutes());
+        Map<Long, Integer> sentCounts = new HashMap<>();
+        int sent = 0;
+        int deferred = 0;
+        int leaseLost = 0;
+        for (NotificationOutbox message : batch) {
+            int userSent = sentCounts.computeIfAbsent(message.getUserId(), id -> outboxMapper.countSentSince(id, throttleSince));
+            if (userSent >= properties.getUserThrottleLimit()) {
+                if (outboxMapper.defer(message.getId(), claimToken, now.plusMinutes(properties.getUserThrottleWindowMinutes())) == 0) {
+                    leaseLost++;
+                } else {
+                    deferred++;
+                }
+                continue;
+            }
+            // 前面的通知可能耗尽了批次租约，发送前确认仍持有本条并重新计时
+            if (outboxMapper.renewLease(message.getId(), claimToken,
+                    LocalDateTime.now().plusSeconds(properties.getLeaseSeconds())) == 0) {
+                log.warn("通知 {} 的租约已被其他调度器接管，跳过", message.getId());
+                leaseLost++;
+                continue;
+            }
+            try {
+                notificationSender.send(message);
+                if (outboxMapper.markSent(message.getId(), claimToken, LocalDateTime.now()) == 0) {
+                    log.warn("通知 {} 已发送，但租约在发送期间丢失，可能被重复投递", message.getId());
+                }
+                sentCounts.merge(message.getUserId(), 1, Integer::sum);
+                sent++;
+            } catch (Exception e) {
+                recordFailure(message, claimToken, e);
+            }
+        }
+        log.info("通知投递完成: 认领={}, 成功={}, 限流推迟={}, 租约丢失={}, 失败={}",
+                batch.size(), sent, deferred, leaseLost, batch.size() - sent - deferred - leaseLost);
+        return sent;
+    }
+
+    private void recordFailure(NotificationOutbox message, String claimToken, Exception e) {
+        int attempts = (message.getAttempts() != null ? message.getAttempts() : 0) + 1;
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        if (e instanceof NotificationSender.PermanentFailureException) {
+            log.warn("通知 {} 无法投递，不再重试: {}", message.getId(), error);
+            outboxMapper.markAttemptFailed(message.getId(), claimToken, NotificationOutbox.STATUS_FAILED, LocalDateTime.now(), error);
+            return;
+        }
+        if (attempts >= properties.getMaxAttempts()) {
+            log.error("通知 {} 投递失败且已达最大次数 {}, 放弃投递", message.getId(), attempts, e);
+            outboxMapper.markAttemptFailed(message.getId(), claimToken, NotificationOutbox.STATUS_FAILED, LocalDateTime.now(), error);
+            return;
+        }
+        // 指数退避：base * 2^(attempts-1)
+        long delaySeconds = properties.getRetryBaseSeconds() << Math.min(attempts - 1, MAX_BACKOFF_SHIFT);
+        log.warn("通知 {} 第 {} 次投递失败, {} 秒后重试: {}", message.getId(), attempts, delaySeconds, error);
+        if (outboxMapper.markAttemptFailed(message.getId(), claimToken, NotificationOutbox.STATUS_PENDING,
+                LocalDateTime.now().plusSeconds(delaySeconds), error) == 0) {
+            log.warn("通知 {} 的租约已丢失，失败记录由当前持有者处理", message.getId());
+        }
+    }
+
+    private String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化通知内容失败", e);
+        }
+    }
+}
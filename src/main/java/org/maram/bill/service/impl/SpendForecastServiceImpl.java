@@ -0,0 +1,150 @@
+package org.maram.bill.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.enums.TransactionType;
+import org.maram.bill.common.utils.HoltWinters;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.BillDailyRollup;
+import org.maram.bill.entity.User;
+import org.maram.bill.mapper.BillDailyRollupMapper;
+import org.maram.bill.mapper.UserMapper;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.SpendForecastService;
+import org.maram.bill.service.support.UserDataVersion;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * 支出预测服务实现类
+ *
+ * 1. 取截至昨天的 historyDays 天每日支出（当天数据不完整，不参与拟合，只记录已发生金额），序列从首个有支出的日期开始；
+ *    按日汇总表尚未回填完成时直接聚合账单表
+ * 2. 有效历史不少于 minHistoryDays 天时使用周季节性（周期 7）的阻尼 Holt-Winters 预测，负值截断为 0
+ * 3. 结果按 (用户, 数据版本, 观测截止日) 缓存在进程内，账单变更使版本递增后下次读取时重新计算
+ */
+@Slf4j
+@Service
+public class SpendForecastServiceImpl implements SpendForecastService {
+
+    public static final String METHOD_HOLT_WINTERS = "HOLT_WINTERS";
+
+    private static final int SEASON_LENGTH = 7;
+    private static final int HORIZON_DAYS = 366;
+
+    private final BillDailyRollupMapper rollupMapper;
+    private final BillRollupService billRollupService;
+    private final UserMapper userMapper;
+    private final UserDataVersion userDataVersion;
+    private final AppConfigProperties.Forecast properties;
+
+    /**
+     * 用户ID -> 缓存的预测，预测为 null 表示历史不足
+     */
+    private final Cache<Long, CachedForecast> cache;
+
+    private record CachedForecast(long version, LocalDate lastObservedDay, SpendForecast forecast) {
+    }
+
+    public SpendForecastServiceImpl(BillDailyRollupMapper rollupMapper,
+                                    BillRollupService billRollupService,
+                                    UserMapper userMapper,
+                                    UserDataVersion userDataVersion,
+                                    AppConfigProperties appConfigProperties) {
+        this.rollupMapper = rollupMapper;
+        this.billRollupService = billRollupService;
+        this.userMapper = userMapper;
+        this.userDataVersion = userDataVersion;
+        this.properties = appConfigProperties.getForecast();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaxSize())
+                .expireAfterWrite(Duration.ofDays(1))
+                .build();
+    }
+
+    @Override
+    public SpendForecast getForecast(Long userId) {
+        if (!properties.isEnabled() || userId == null) {
+            return null;
+        }
+        LocalDate lastObservedDay = LocalDate.now().minusDays(1);
+        long version = userDataVersion.current(userId);
+        CachedForecast cached = cache.getIfPresent(userId);
+        if (version >= 0 && cached != null && cached.version() == version
+                && cached.lastObservedDay().equals(lastObservedDay)) {
+            return cached.forecast();
+        }
+
+        SpendForecast forecast = compute(userId, lastObservedDay);
+        if (version >= 0) {
+            cache.put(userId, new CachedForecast(version, lastObservedDay, forecast));
+        }
+        return forecast;
+    }
+
+    @Override
+    public int precomputeRecentlyActive() {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        List<User> users = userMapper.selectActiveSince(LocalDateTime.now().minusDays(properties.getPrecomputeActiveDays()));
+        int computed = 0;
+        for (User user : users) {
+            try {
+                getForecast(user.getId());
+                computed++;
+            } catch (Exception e) {
+                log.warn("预计算用户 {} 的支出预测失败", user.getId(), e);
+            }
+        }
+        log.info("支出预测预计算完成: 用户数={}/{}, 耗时={}ms", computed, users.size(), System.currentTimeMillis() - start);
+        return computed;
+    }
+
+    private SpendForecast compute(Long userId, LocalDate lastObservedDay) {
+        LocalDate firstDay = lastObservedDay.minusDays(properties.getHistoryDays() - 1L);
+        double[] daily = new double[properties.getHistoryDays()];
+        int firstObserved = -1;
+        long spentTodayCents = 0L;
+        LocalDate today = lastObservedDay.plusDays(1);
+        String expense = TransactionType.EXPENSE.getValue();
+        List<BillDailyRollup> rows = billRollupService.isBuilt()
+                ? rollupMapper.selectDailySeries(userId, firstDay, today, expense, null)
+                : rollupMapper.selectDailySeriesFromBill(userId, firstDay, today, expense, null);
+        for (BillDailyRollup row : rows) {
+            if (row.getDay().equals(today)) {
+                spentTodayCents += row.getSumCents() != null ? row.getSumCents() : 0L;
+                continue;
+            }
+            int index = (int) ChronoUnit.DAYS.between(firstDay, row.getDay());
+            daily[index] += row.getSumCents() != null ? row.getSumCents() : 0L;
+            if (firstObserved < 0 || index < firstObserved) {
+                firstObserved = index;
+            }
+        }
+        if (firstObserved < 0 || daily.length - firstObserved < Math.max(properties.getMinHistoryDays(), SEASON_LENGTH * 2)) {
+            return null;
+        }
+
+        // 从首个有支出的日期开始截取，并按周期对齐，保证季节分量下标与星期对应
+        int offset = firstObserved + Math.floorMod(daily.length - firstObserved, SEASON_LENGTH);
+        double[] series = new double[daily.length - offset];
+        System.arraycopy(daily, offset, series, 0, series.length);
+
+        HoltWinters.Model model = HoltWinters.fit(series, SEASON_LENGTH);
+        long[] forecast = new long[HORIZON_DAYS];
+        for (int h = 1; h <= HORIZON_DAYS; h++) {
+            forecast[h - 1] = Math.max(0L, Math.round(model.forecast(h)));
+        }
+        log.debug("用户 {} 支出预测: 历史={}天, alpha={}, beta={}, gamma={}",
+                userId, series.length, model.getAlpha(), model.getBeta(), model.getGamma());
+        return new SpendForecast(METHOD_HOLT_WINTERS, lastObservedDay, forecast, spentTodayCents);
+    }
+}
@@ -4,16 +4,27 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.utils.CentsKernel;
+import org.maram.bill.entity.BudgetUsage;
 import org.maram.bill.entity.UserBudget;
 import org.maram.bill.mapper.UserBudgetMapper;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.BudgetCounterService;
+import org.maram.bill.service.SpendForecastService;
+import org.maram.bill.service.SpendForecastService.SpendForecast;
 import org.maram.bill.service.UserBudgetService;
+import org.maram.bill.service.support.BillColumnStore;
+import org.maram.bill.service.support.UserDataVersion;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -36,6 +47,22 @@ public class UserBudgetServiceImpl extends ServiceImpl<UserBudgetMapper, UserBud
     private static final int THRESHOLD_MIN = 0;
     private static final int THRESHOLD_MAX = 100;
 
+    private final UserDataVersion userDataVersion;
+    private final BillColumnStore billColumnStore;
+    private final BudgetCounterService budgetCounterService;
+    private final SpendForecastService spendForecastService;
+    private final BillRollupService billRollupService;
+
+    public UserBudgetServiceImpl(UserDataVersion userDataVersion, BillColumnStore billColumnStore,
+                                 BudgetCounterService budgetCounterService, SpendForecastService spendForecastService,
+                                 BillRollupService billRollupService) {
+        this.userDataVersion = userDataVersion;
+        this.billColumnStore = billColumnStore;
+        this.budgetCounterService = budgetCounterService;
+        this.spendForecastService = spendForecastService;
+        this.billRollupService = billRollupService;
+    }
+
     @Override
     public UserBudget getById(Long id) {
         log.debug("根据ID获取预算: {}", id);
@@ -84,6 +111,7 @@ public class UserBudgetServiceImpl extends ServiceImpl<UserBudgetMapper, UserBud
     }
 
     @Override
+    @Transactional
     public boolean save(UserBudget userBudget) {
         log.debug("保存预算: {}", userBudget);
         
@@ -91,10 +119,16 @@ public class UserBudgetServiceImpl extends ServiceImpl<UserBudgetMapper, UserBud
         checkTimeConflictOrThrow(userBudget.getUserId(), userBudget.getBudgetType(), 
                                  userBudget.getStartDate(), userBudget.getEndDate(), null);
         
-        return baseMapper.insert(userBudget) > 0;
+        boolean saved = baseMapper.insert(userBudget) > 0;
+        if (saved) {
+            budgetCounterService.initialize(userBudget.getId());
+            bumpDataVersion(userBudget.getUserId());
+        }
+        return saved;
     }
 
     @Override
+    @Transactional
     public boolean updateById(UserBudget userBudget) {
         log.debug("更新预算: {}", userBudget);
         
@@ -102,13 +136,26 @@ public class UserBudgetServiceImpl extends ServiceImpl<UserBudgetMapper, UserBud
         checkTimeConflictOrThrow(userBudget.getUserId(), userBudget.getBudgetType(), 
                                  userBudget.getStartDate(), userBudget.getEndDate(), userBudget.getId());
         
-        return baseMapper.updateById(userBudget) > 0;
+        boolean updated = baseMapper.updateById(userBudget) > 0;
+        if (updated) {
+            budgetCounterService.initialize(userBudget.getId());
+            bumpDataVersion(userBudget.getUserId());
+        }
+        return updated;
     }
 
     @Override
     public boolean removeById(Long id) {
         log.debug("删除预算: {}", id);
-        return baseMapper.deleteById(id) > 0;
+        UserBudget existing = baseMapper.selectById(id);
+        if (existing == null) {
+            return false;
+        }
+        boolean removed = baseMapper.deleteById(id) > 0;
+        if (removed) {
+            bumpDataVersion(existing.getUserId());
+        }
+        return removed;
     }
 
     @Override
@@ -163,15 +210,16 @@ public class UserBudgetServiceImpl extends ServiceImpl<UserBudgetMapper, UserBud
             return null;
         }
         
-        BigDecimal usedAmount = baseMapper.selectExpenseAmountByDateRange(
-            userBudget.getUserId(), userBudget.getStartDate(), userBudget.getEndDate());
-        
-        userBudget.setUsedAmount(usedAmount != null ? usedAmount : BigDecimal.ZERO);
-        userBudget.setRemainingAmount(userBudget.calculateRemainingAmount());
-        userBudget.setUsagePercentage(userBudget.calculateUsagePercentage());
-        userBudget.setIsOverBudget(userBudget.checkIsOverBudget());
-        userBudget.setIsNearThreshold(userBudget.checkIsNearThreshold());
+        BigDecimal usedAmount = userBudget.getUsedCents() != null
+            ? CentsKernel.toAmount(userBudget.getUsedCents())
+            : billRollupService.isBuilt()
+                ? baseMapper.selectExpenseAmountByDateRange(
+                    userBudget.getUserId(), userBudget.getStartDate(), userBudget.getEndDate())
+                : baseMapper.selectExpenseAmountFromBill(
+                    userBudget.getUserId(), userBudget.getStartDate(), userBudget.getEndDate());
         
+        applyUsage(userBudget, usedAmount);
+        applyProjection(userBudget, new HashMap<>());
         return userBudget;
     }
 
@@ -179,8 +227,12 @@ public class UserBudgetServiceImpl extends ServiceImpl<UserBudgetMapper, UserBud
     public BudgetStatistics getBudgetStatistics(Long userId) {
         log.debug("获取预算统计: userId={}", userId);
         
+        // 有效预算是全部预算的子集，在内存中筛选，避免重复查询和重复计算已用金额
         List<UserBudget> allBudgets = listByUserId(userId);
-        List<UserBudget> activeBudgets = getCurrentActiveBudgets(userId);
+        LocalDate today = LocalDate.now();
+        List<UserBudget> activeBudgets = allBudgets.stream()
+            .filter(budget -> !budget.getStartDate().isAfter(today) && !budget.getEndDate().isBefore(today))
+            .collect(Collectors.toList());
         
         int totalBudgets = allBudgets.size();
         int activeBudgetsCount = activeBudgets.size();
@@ -214,10 +266,60 @@ public class UserBudgetServiceImpl extends ServiceImpl<UserBudgetMapper, UserBud
             .collect(Collectors.toList());
     }
 
+    /**
+     * 批量计算已用金额：优先读取预算行上的计数器，
+     * 只有计数器尚未初始化的预算才通过一次聚合查询补算（汇总表回填完成前查询 bill 表）
+     */
     private List<UserBudget> calculateBudgetUsageList(List<UserBudget> budgets) {
-        return budgets.stream()
-            .map(this::calculateBudgetUsage)
+        if (budgets.isEmpty()) {
+            return budgets;
+        }
+        List<Long> uninitializedIds = budgets.stream()
+            .filter(budget -> budget.getUsedCents() == null)
+            .map(UserBudget::getId)
             .collect(Collectors.toList());
+        Map<Long, Long> usedCents = new HashMap<>(uninitializedIds.size() * 2);
+        if (!uninitializedIds.isEmpty()) {
+            List<BudgetUsage> usages = billRollupService.isBuilt()
+                ? baseMapper.selectUsageByBudgetIds(uninitializedIds)
+                : baseMapper.selectUsageFromBillByBudgetIds(uninitializedIds);
+            for (BudgetUsage usage : usages) {
+                usedCents.put(usage.getBudgetId(), usage.getUsedCents());
+            }
+        }
+        Map<Long, SpendForecast> forecasts = new HashMap<>();
+        for (UserBudget budget : budgets) {
+            Long cents = budget.getUsedCents() != null ? budget.getUsedCents() : usedCents.get(budget.getId());
+            applyUsage(budget, cents != null ? CentsKernel.toAmount(cents) : BigDecimal.ZERO);
+            applyProjection(budget, forecasts);
+        }
+        return budgets;
+    }
+
+    /**
+     * 进行中的预算：已用金额加上当天剩余及之后各天的预测支出（预测按用户缓存，同一批预算只取一次）
+     */
+    private void applyProjection(UserBudget budget, Map<Long, SpendForecast> forecasts) {
+        LocalDate today = LocalDate.now();
+        if (budget.getStartDate().isAfter(today) || !budget.getEndDate().isAfter(today)) {
+            return;
+        }
+        SpendForecast forecast = forecasts.computeIfAbsent(budget.getUserId(), spendForecastService::getForecast);
+        if (forecast == null) {
+            return;
+        }
+        BigDecimal projected = budget.getUsedAmount().add(forecast.remainingExpense(budget.getEndDate()));
+        budget.setProjectedExpense(projected);
+        budget.setIsProjectedOverBudget(projected.compareTo(budget.getBudgetAmount()) > 0);
+    }
+
+    private UserBudget applyUsage(UserBudget userBudget, BigDecimal usedAmount) {
+        userBudget.setUsedAmount(usedAmount != null ? usedAmount : BigDecimal.ZERO);
+        userBudget.setRemainingAmount(userBudget.calculateRemainingAmount());
+        userBudget.setUsagePercentage(userBudget.calculateUsagePercentage());
+        userBudget.setIsOverBudget(userBudget.checkIsOverBudget());
+        userBudget.setIsNearThreshold(userBudget.checkIsNearThreshold());
+        return userBudget;
     }
 
     private void validateBudgetOrThrow(UserBudget userBudget) {
@@ -234,4 +336,11 @@ public class UserBudgetServiceImpl extends ServiceImpl<UserBudgetMapper, UserBud
             throw new IllegalArgumentException(ERROR_TIME_CONFLICT);
         }
     }
+
+    /**
+     * 预算变更只推进列式存储的版本号，账单列数据无需重建
+     */
+    private void bumpDataVersion(Long userId) {
+        userDataVersion.bump(userId, version -> billColumnStore.onVersionBumped(userId, version));
+    }
 }
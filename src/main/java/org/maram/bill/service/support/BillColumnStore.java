@@ -0,0 +1,462 @@
+package org.maram.bill.service.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.enums.TransactionType;
+import org.maram.bill.common.utils.CentsKernel;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.Bill;
+import org.maram.bill.entity.BillCategoryAggregate;
+import org.maram.bill.entity.BillDailyRollup;
+import org.maram.bill.mapper.BillMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * 热点用户账单的内存列式存储（可选，默认关闭）
+ *
+ * 每个用户的账单以原始类型数组保存：金额（分）、纪元日、分组键（分类下标 * 2 + 交易类型），按 (日期, ID) 升序排列。
+ * 区间聚合只需两次二分查找加一次紧凑循环，不访问数据库。
+ *
+ * 一致性：每份列数据记录构建时的用户数据版本号，读取时与 Redis 中的版本比较，不一致则重建，
+ * 因此其他节点的写入同样会使本地副本失效。本节点的账单写入在版本递增后增量应用（写时复制），
+ * 在缓存的原子 compute 中比较版本，只有新版本号恰好为旧版本 + 1 时才应用，否则直接失效，
+ * 因此增量应用不会与失效或重建交错。一批新增账单排序后与现有列一次归并；
+ * 插入按账单 ID 幂等，删除时在原日期下找不到账单说明副本已不一致，同样直接失效。
+ *
+ * 账单数少于 minBills 的用户不缓存（直接查询汇总表已足够快）；总内存按 memoryBudgetMb 加权淘汰。
+ */
+@Slf4j
+@Component
+public class BillColumnStore {
+
+    public static final int TYPE_INCOME = 0;
+    public static final int TYPE_EXPENSE = 1;
+    public static final int TYPE_COUNT = 2;
+
+    private static final long COLD_MARKER_TTL_MINUTES = 10;
+
+    private final BillMapper billMapper;
+    private final UserDataVersion userDataVersion;
+    private final AppConfigProperties.ColumnStore properties;
+    private final long memoryBudgetBytes;
+
+    /**
+     * 用户ID -> 列数据，按内存占用（KB）加权
+     */
+    private final Cache<Long, Snapshot> entries;
+
+    /**
+     * 用户ID -> 判定为非热点用户时的数据版本，避免反复构建
+     */
+    private final Cache<Long, Long> coldUsers;
+
+    public BillColumnStore(BillMapper billMapper, UserDataVersion userDataVersion, AppConfigProperties appConfigProperties) {
+        this.billMapper = billMapper;
+        this.userDataVersion = userDataVersion;
+        this.properties = appConfigProperties.getColumnStore();
+        this.memoryBudgetBytes = properties.getMemoryBudgetMb() * 1024 * 1024;
+        if (properties.isEnabled()) {
+            this.entries = Caffeine.newBuilder()
+                    .maximumWeight(memoryBudgetBytes / 1024)
+                    .weigher((Long userId, Snapshot snapshot) -> (int) Math.max(1, snapshot.columns().memoryBytes() / 1024))
+                    .build();
+            this.coldUsers = Caffeine.newBuilder()
+                    .expireAfterWrite(Duration.ofMinutes(COLD_MARKER_TTL_MINUTES))
+                    .maximumSize(100_000)
+                    .build();
+        } else {
+            this.entries = null;
+            this.coldUsers = null;
+        }
+    }
+
+    /**
+     * 获取用户的列数据，未启用、非热点用户或版本号不可用时返回 null（调用方回退到数据库查询）
+     */
+    public UserColumns acquire(Long userId) {
+        if (entries == null || userId == null) {
+            return null;
+        }
+        long version = userDataVersion.current(userId);
+        if (version < 0) {
+            return null;
+        }
+        Snapshot snapshot = entries.getIfPresent(userId);
+        if (snapshot != null && snapshot.version() == version) {
+            return snapshot.columns();
+        }
+        Long coldVersion = coldUsers.getIfPresent(userId);
+        if (coldVersion != null && coldVersion == version) {
+            return null;
+        }
+        return load(userId, version);
+    }
+
+    /**
+     * 账单新增后应用增量
+     */
+    public void onInserted(Long userId, long newVersion, List<Bill> bills) {
+        apply(userId, newVersion, columns -> columns.withInserted(bills));
+    }
+
+    /**
+     * 账单修改后应用增量
+     */
+    public void onUpdated(Long userId, long newVersion, Bill before, Bill after) {
+        apply(userId, newVersion, columns -> {
+            UserColumns removed = columns.withRemoved(before.getId(), before.getIssueDate());
+            return removed != null ? removed.withInserted(List.of(after)) : null;
+        });
+    }
+
+    /**
+     * 账单删除后应用增量
+     */
+    public void onDeleted(Long userId, long newVersion, Bill bill) {
+        apply(userId, newVersion, columns -> columns.withRemoved(bill.getId(), bill.getIssueDate()));
+    }
+
+    /**
+     * 与账单无关的写入（如预算）递增了版本号，只推进版本
+     */
+    public void onVersionBumped(Long userId, long newVersion) {
+        apply(userId, newVersion, UnaryOperator.identity());
+    }
+
+    /**
+     * 按交易类型和分类聚合日期范围内的金额与笔数，结果形态与汇总表聚合查询一致（不含分类名称）
+     */
+    public List<BillCategoryAggregate> categoryAggregates(UserColumns columns, LocalDate startDate, LocalDate endDate) {
+        int from = columns.lowerBound(CentsKernel.epochDay(startDate));
+        int to = columns.upperBound(CentsKernel.epochDay(endDate));
+        int groupCount = columns.groupCount();
+        long[] sums = new long[groupCount];
+        int[] counts = new int[groupCount];
+        CentsKernel.sumByGroup(columns.cents(), columns.groups(), from, to, sums, counts);
+
+        List<BillCategoryAggregate> aggregates = new ArrayList<>();
+        for (int group = 0; group < groupCount; group++) {
+            if (counts[group] == 0) {
+                continue;
+            }
+            aggregates.add(new BillCategoryAggregate(typeValue(UserColumns.typeOf(group)),
+                    columns.categoryId(UserColumns.categoryIndexOf(group)), null, sums[group], (long) counts[group]));
+        }
+        return aggregates;
+    }
+
+    public static String typeValue(int type) {
+        return type == TYPE_INCOME ? TransactionType.INCOME.getValue() : TransactionType.EXPENSE.getValue();
+    }
+
+    /**
+     * 交易类型转为列下标，无法识别时返回 -1
+     */
+    public static int typeIndex(String transactionType) {
+        if (TransactionType.INCOME.getValue().equalsIgnoreCase(transactionType)) {
+            return TYPE_INCOME;
+        }
+        if (TransactionType.EXPENSE.getValue().equalsIgnoreCase(transactionType)) {
+            return TYPE_EXPENSE;
+        }
+        return -1;
+    }
+
+    private UserColumns load(Long userId, long version) {
+        long start = System.currentTimeMillis();
+        ColumnsBuilder builder = new ColumnsBuilder();
+        billMapper.streamColumnsByUserId(userId, context -> builder.add(context.getResultObject()));
+        UserColumns columns = builder.build();
+
+        if (columns.size() < properties.getMinBills() || columns.memoryBytes() > memoryBudgetBytes) {
+            coldUsers.put(userId, version);
+            return null;
+        }
+        // 构建期间发生了写入时，本次结果仍可用于当前请求，但不缓存；也不覆盖已被增量推进到更新版本的副本
+        if (userDataVersion.current(userId) == version) {
+            Snapshot built = new Snapshot(columns, version);
+            entries.asMap().merge(userId, built, (existing, next) -> existing.version() > next.version() ? existing : next);
+        }
+        log.info("构建用户 {} 的账单列式存储: {} 条, {} KB, 耗时 {}ms",
+                userId, columns.size(), columns.memoryBytes() / 1024, System.currentTimeMillis() - start);
+        return columns;
+    }
+
+    /**
+     * 在 compute 中比较版本并替换快照，与同一用户的失效、重建互斥；返回 null 的增量视为副本不一致
+     */
+    private void apply(Long userId, long newVersion, UnaryOperator<UserColumns> mutation) {
+        if (entries == null || userId == null) {
+            return;
+        }
+        entries.asMap().computeIfPresent(userId, (key, snapshot) -> {
+            if (newVersion < 0 || newVersion != snapshot.version() + 1) {
+                return null;
+            }
+            UserColumns columns = mutation.apply(snapshot.columns());
+            return columns != null ? new Snapshot(columns, newVersion) : null;
+        });
+    }
+
+    private record Snapshot(UserColumns columns, long version) {
+    }
+
+    /**
+     * 单个用户的不可变列数据，修改操作返回新实例
+     */
+    public static final class UserColumns {
+
+        private static final int BYTES_PER_ROW = Long.BYTES * 2 + Integer.BYTES * 2;
+
+        private final long[] ids;
+        private final long[] cents;
+        private final int[] days;
+        private final int[] groups;
+        private final int size;
+        private final long[] categoryIds; // 分类下标 -> 分类ID（未分类为 0）
+
+        UserColumns(long[] ids, long[] cents, int[] days, int[] groups, int size, long[] categoryIds) {
+            this.ids = ids;
+            this.cents = cents;
+            this.days = days;
+            this.groups = groups;
+            this.size = size;
+            this.categoryIds = categoryIds;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long[] cents() {
+            return cents;
+        }
+
+        public int[] days() {
+            return days;
+        }
+
+        /**
+         * 分组键：分类下标 * TYPE_COUNT + 交易类型
+         */
+        public int[] groups() {
+            return groups;
+        }
+
+        public int groupCount() {
+            return categoryIds.length * TYPE_COUNT;
+        }
+
+        public long categoryId(int categoryIndex) {
+            return categoryIds[categoryIndex];
+        }
+
+        public static int typeOf(int group) {
+            return group % TYPE_COUNT;
+        }
+
+        public static int categoryIndexOf(int group) {
+            return group / TYPE_COUNT;
+        }
+
+        /**
+         * 第一个日期 >= day 的下标
+         */
+        public int lowerBound(int day) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (days[mid] < day) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * 第一个日期 > day 的下标
+         */
+        public int upperBound(int day) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (days[mid] <= day) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        long memoryBytes() {
+            return (long) ids.length * BYTES_PER_ROW + (long) categoryIds.length * Long.BYTES;
+        }
+
+        /**
+         * 插入一批账单：过滤无效与已存在的账单，按 (日期, ID) 排序后与现有列一次归并
+         */
+        UserColumns withInserted(List<Bill> bills) {
+            List<Bill> accepted = new ArrayList<>(bills.size());
+            for (Bill bill : bills) {
+                if (bill.getId() != null && bill.getIssueDate() != null && bill.getTotalAmount() != null
+                        && typeIndex(bill.getTransactionType()) >= 0 && indexOf(bill.getId(), bill.getIssueDate()) < 0) {
+                    accepted.add(bill);
+                }
+            }
+            if (accepted.isEmpty()) {
+                return this;
+            }
+            accepted.sort(Comparator.comparing(Bill::getIssueDate).thenComparing(Bill::getId));
+
+            long[] newCategoryIds = categoryIds;
+            int total = size + accepted.size();
+            long[] newIds = new long[total];
+            long[] newCents = new long[total];
+            int[] newDays = new int[total];
+            int[] newGroups = new int[total];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < total; k++) {
+                Bill bill = j < accepted.size() ? accepted.get(j) : null;
+                int day = bill != null ? CentsKernel.epochDay(bill.getIssueDate()) : 0;
+                if (bill == null || (i < size && (days[i] < day || (days[i] == day && ids[i] < bill.getId())))) {
+                    newIds[k] = ids[i];
+                    newCents[k] = cents[i];
+                    newDays[k] = days[i];
+                    newGroups[k] = groups[i];
+                    i++;
+                    continue;
+                }
+                long categoryId = bill.getCategoryId() != null ? bill.getCategoryId() : BillDailyRollup.UNCATEGORIZED_ID;
+                int categoryIndex = indexOf(newCategoryIds, categoryId);
+                if (categoryIndex < 0) {
+                    categoryIndex = newCategoryIds.length;
+                    newCategoryIds = Arrays.copyOf(newCategoryIds, categoryIndex + 1);
+                    newCategoryIds[categoryIndex] = categoryId;
+                }
+                newIds[k] = bill.getId();
+                newCents[k] = CentsKernel.toCents(bill.getTotalAmount());
+                newDays[k] = day;
+                newGroups[k] = categoryIndex * TYPE_COUNT + typeIndex(bill.getTransactionType());
+                j++;
+            }
+            return new UserColumns(newIds, newCents, newDays, newGroups, total, newCategoryIds);
+        }
+
+        /**
+         * 删除账单，原日期下找不到时返回 null（副本与数据库不一致）；没有日期的账单本就不在列数据中
+         */
+        UserColumns withRemoved(Long id, LocalDate day) {
+            if (id == null || day == null) {
+                return this;
+            }
+            int index = indexOf(id, day);
+            if (index < 0) {
+                return null;
+            }
+            return new UserColumns(remove(ids, index), remove(cents, index), remove(days, index), remove(groups, index),
+                    size - 1, categoryIds);
+        }
+
+        /**
+         * 在账单日期对应的区间内查找（两次二分查找加区间扫描）
+         */
+        private int indexOf(long id, LocalDate issueDate) {
+            int day = CentsKernel.epochDay(issueDate);
+            for (int i = lowerBound(day), end = upperBound(day); i < end; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int indexOf(long[] categoryIds, long categoryId) {
+            for (int i = 0; i < categoryIds.length; i++) {
+                if (categoryIds[i] == categoryId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private long[] remove(long[] source, int index) {
+            long[] target = new long[size - 1];
+            System.arraycopy(source, 0, target, 0, index);
+            System.arraycopy(source, index + 1, target, index, size - index - 1);
+            return target;
+        }
+
+        private int[] remove(int[] source, int index) {
+            int[] target = new int[size - 1];
+            System.arraycopy(source, 0, target, 0, index);
+            System.arraycopy(source, index + 1, target, index, size - index - 1);
+            return target;
+        }
+    }
+
+    /**
+     * 按 (日期, ID) 升序接收账单行并构建列数据
+     */
+    private static final class ColumnsBuilder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private long[] cents = new long[INITIAL_CAPACITY];
+        private int[] days = new int[INITIAL_CAPACITY];
+        private int[] groups = new int[INITIAL_CAPACITY];
+        private int size;
+        private final Map<Long, Integer> categoryIndexes = new HashMap<>();
+        private final List<Long> categoryIds = new ArrayList<>();
+
+        void add(Bill bill) {
+            int type = typeIndex(bill.getTransactionType());
+            if (type < 0 || bill.getTotalAmount() == null) {
+                return;
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                cents = Arrays.copyOf(cents, capacity);
+                days = Arrays.copyOf(days, capacity);
+                groups = Arrays.copyOf(groups, capacity);
+            }
+            long categoryId = bill.getCategoryId() != null ? bill.getCategoryId() : BillDailyRollup.UNCATEGORIZED_ID;
+            int categoryIndex = categoryIndexes.computeIfAbsent(categoryId, key -> {
+                categoryIds.add(key);
+                return categoryIds.size() - 1;
+            });
+            ids[size] = bill.getId();
+            cents[size] = CentsKernel.toCents(bill.getTotalAmount());
+            days[size] = CentsKernel.epochDay(bill.getIssueDate());
+            groups[size] = categoryIndex * TYPE_COUNT + type;
+            size++;
+        }
+
+        UserColumns build() {
+            long[] dictionary = new long[categoryIds.size()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = categoryIds.get(i);
+            }
+            return new UserColumns(Arrays.copyOf(ids, size), Arrays.copyOf(cents, size), Arrays.copyOf(days, size),
+                    Arrays.copyOf(groups, size), size, dictionary);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.maram.bill.service.support;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.entity.BillCategory;
+import org.maram.bill.mapper.BillCategoryMapper;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 分类 Redis 缓存（L2）
+ *
+ * 系统分类只存一份共享条目，每个用户只存自己创建的分类；缓存键带上对应的分类版本号，
+ * 版本递增后旧键不再被读取，因此即使并发读在提交前回填了旧数据也不会被读到。
+ * 写操作在版本递增后按旧版本号精确删除上一个条目，避免旧条目占用内存到过期。
+ * 版本号读取失败（-1）时不走缓存。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryCache {
+
+    public static final String CACHE_NAME = "categories";
+
+    private final BillCategoryMapper billCategoryMapper;
+
+    /**
+     * 共享分类（user_id 为空）
+     * @param version 系统分类版本号
+     */
+    @Cacheable(value = CACHE_NAME, key = "'system:v' + #version", condition = "#version >= 0")
+    public List<BillCategory> shared(long version) {
+        log.debug("加载共享分类, 版本={}", version);
+        return billCategoryMapper.selectSharedCategories();
+    }
+
+    /**
+     * 用户自己创建的分类，空列表同样缓存
+     * @param userId 用户ID
+     * @param version 用户分类版本号
+     */
+    @Cacheable(value = CACHE_NAME, key = "'user:' + #userId + ':v' + #version", condition = "#version >= 0")
+    public List<BillCategory> own(Long userId, long version) {
+        log.debug("加载用户 {} 的分类, 版本={}", userId, version);
+        return billCategoryMapper.selectOwnByUserId(userId);
+    }
+
+    @CacheEvict(value = CACHE_NAME, key = "'system:v' + #version")
+    public void evictShared(long version) {
+    }
+
+    @CacheEvict(value = CACHE_NAME, key = "'user:' + #userId + ':v' + #version")
+    public void evictOwn(Long userId, long version) {
+    }
+}
@@ -0,0 +1,232 @@
+package org.maram.bill.service.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.entity.BillCategory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户分类内存索引（L1）
+ *
+ * 每个用户的可见分类（用户分类 + 系统分类）构建为一个不可变快照，包含 id、名称、编码三种索引，
+ * 分类列表、分类匹配、分类校验等路径直接查快照，不再逐次查库。快照记录构建时的分类版本号，
+ * 版本变化后整体重建并替换缓存项，读取方总是拿到一份完整一致的快照。
+ *
+ * 重建时共享分类取进程内唯一的一份（按系统版本号缓存），用户分类取 {@link CategoryCache} 中的小条目，
+ * 合并后按排序序号排列；所有分类写操作都应通过 {@link #onChanged(Long)} 递增版本并清理旧条目。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryIndex {
+
+    private static final int STATUS_ENABLED = 1;
+    private static final long CACHE_MAX_SIZE = 10000;
+
+    private static final Comparator<BillCategory> SORT_ORDER =
+            Comparator.comparing(BillCategory::getSortOrder, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final CategoryCache categoryCache;
+    private final CategoryVersion categoryVersion;
+
+    /**
+     * 进程内共享分类，所有用户快照引用同一份列表
+     */
+    private volatile SharedEntry shared;
+
+    private record SharedEntry(long version, List<BillCategory> categories) {
+    }
+
+    /**
+     * 用户ID -> 分类快照
+     */
+    private final Cache<Long, Snapshot> snapshots = Caffeine.newBuilder()
+            .maximumSize(CACHE_MAX_SIZE)
+            .expireAfterAccess(Duration.ofHours(6))
+            .build();
+
+    /**
+     * 获取用户当前的分类快照，版本未变化时直接返回缓存
+     */
+    public Snapshot get(Long userId) {
+        CategoryVersion.Stamp stamp = categoryVersion.current(userId);
+        Snapshot cached = snapshots.getIfPresent(userId);
+        if (stamp.isValid() && cached != null && cached.stamp().equals(stamp)) {
+            return cached;
+        }
+        Snapshot snapshot = build(userId, stamp);
+        if (stamp.isValid()) {
+            snapshots.put(userId, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 当前版本的共享分类（user_id 为空）
+     */
+    public List<BillCategory> sharedCategories() {
+        return sharedFor(categoryVersion.currentSystem());
+    }
+
+    /**
+     * 分类写入后调用：提交后递增版本号，并按旧版本号删除 Redis 中被取代的条目
+     * @param userId 分类所属用户，NULL 表示共享分类
+     */
+    public void onChanged(Long userId) {
+        categoryVersion.bump(userId, version -> {
+            if (version <= 0) {
+                return;
+            }
+            if (userId != null) {
+                categoryCache.evictOwn(userId, version - 1);
+            } else {
+                categoryCache.evictShared(version - 1);
+            }
+        });
+    }
+
+    private List<BillCategory> sharedFor(long version) {
+        SharedEntry entry = shared;
+        if (version >= 0 && entry != null && entry.version() == version) {
+            return entry.categories();
+        }
+        List<BillCategory> categories = List.copyOf(categoryCache.shared(version));
+        // 并发重建时只允许版本前进
+        if (version >= 0 && (entry == null || entry.version() < version)) {
+            shared = new SharedEntry(version, categories);
+        }
+        return categories;
+    }
+
+    private Snapshot build(Long userId, CategoryVersion.Stamp stamp) {
+        List<BillCategory> merged = new ArrayList<>(sharedFor(stamp.system()));
+        merged.addAll(categoryCache.own(userId, stamp.user()));
+        merged.sort(SORT_ORDER);
+        List<BillCategory> categories = List.copyOf(merged);
+        Map<Long, BillCategory> byId = new HashMap<>();
+        Map<String, Long> enabledIdByName = new HashMap<>();
+        Map<String, Long> enabledIdByCode = new HashMap<>();
+        Map<String, Set<Long>> ownIdsByName = new HashMap<>();
+        Map<String, Set<Long>> ownIdsByCode = new HashMap<>();
+        for (BillCategory category : categories) {
+            byId.put(category.getId(), category);
+            boolean own = category.getUserId() != null;
+            if (own) {
+                putOwn(ownIdsByName, category.getCategoryName(), category.getId());
+                putOwn(ownIdsByCode, category.getCategoryCode(), category.getId());
+            }
+            if (category.getStatus() != null && STATUS_ENABLED == category.getStatus()) {
+                // 同名时用户分类优先于系统分类，其余按排序先到先得
+                putEnabled(enabledIdByName, category.getCategoryName(), category.getId(), own);
+                putEnabled(enabledIdByCode, category.getCategoryCode(), category.getId(), own);
+            }
+        }
+        log.debug("构建用户 {} 的分类索引: 分类数={}", userId, categories.size());
+        return new Snapshot(stamp, categories, Map.copyOf(byId), Map.copyOf(enabledIdByName),
+                Map.copyOf(enabledIdByCode), Map.copyOf(ownIdsByName), Map.copyOf(ownIdsByCode));
+    }
+
+    private static void putEnabled(Map<String, Long> index, String key, Long id, boolean own) {
+        String normalized = normalize(key);
+        if (normalized == null) {
+            return;
+        }
+        if (own) {
+            index.put(normalized, id);
+        } else {
+            index.putIfAbsent(normalized, id);
+        }
+    }
+
+    private static void putOwn(Map<String, Set<Long>> index, String key, Long id) {
+        String normalized = normalize(key);
+        if (normalized != null) {
+            index.computeIfAbsent(normalized, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    /**
+     * 名称、编码统一去空白并转小写，与数据库 utf8mb4_unicode_ci 的比较口径一致（忽略大小写）
+     */
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 用户分类快照（不可变）
+     */
+    public record Snapshot(CategoryVersion.Stamp stamp,
+                           List<BillCategory> categories,
+                           Map<Long, BillCategory> byId,
+                           Map<String, Long> enabledIdByName,
+                           Map<String, Long> enabledIdByCode,
+                           Map<String, Set<Long>> ownIdsByName,
+                           Map<String, Set<Long>> ownIdsByCode) {
+
+        /**
+         * 分类是否对该用户可见（系统分类或用户自己的分类，含已禁用）
+         */
+        public boolean contains(Long categoryId) {
+            return categoryId != null && byId.containsKey(categoryId);
+        }
+
+        public BillCategory getById(Long categoryId) {
+            return categoryId != null ? byId.get(categoryId) : null;
+        }
+
+        /**
+         * 按名称查找启用的分类ID，找不到返回 null
+         */
+        public Long findEnabledIdByName(String name) {
+            String normalized = normalize(name);
+            return normalized != null ? enabledIdByName.get(normalized) : null;
+        }
+
+        /**
+         * 按编码查找启用的分类ID，找不到返回 null
+         */
+        public Long findEnabledIdByCode(String code) {
+            String normalized = normalize(code);
+            return normalized != null ? enabledIdByCode.get(normalized) : null;
+        }
+
+        /**
+         * 用户自己的分类中是否已有同名分类
+         */
+        public boolean hasOwnName(String name, Long excludeId) {
+            return hasOther(ownIdsByName, name, excludeId);
+        }
+
+        /**
+         * 用户自己的分类中是否已有同编码分类
+         */
+        public boolean hasOwnCode(String code, Long excludeId) {
+            return hasOther(ownIdsByCode, code, excludeId);
+        }
+
+        private static boolean hasOther(Map<String, Set<Long>> index, String key, Long excludeId) {
+            String normalized = normalize(key);
+            if (normalized == null) {
+                return false;
+            }
+            Set<Long> ids = index.getOrDefault(normalized, Collections.emptySet());
+            return ids.stream().anyMatch(id -> !id.equals(excludeId));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.maram.bill.service.support;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.Bill;
+import org.maram.bill.entity.BillCategory;
+import org.maram.bill.mapper.BillMapper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.redis.RedisVectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分类向量索引
+ *
+ * 分类名称、描述以及每个分类下出现最多的历史账单名称写入 Redis 向量库，按 owner 标签区分：
+ * 共享分类只索引一份（owner=system），用户分类与该用户的账单样本使用 owner=u{userId}。
+ * 索引状态以分类版本号为准：Redis 中记录已索引的版本，版本变化后先按 owner 删除再整体重建；
+ * 标记带过期时间，到期后重建以刷新账单样本并修复被外部清掉的索引。重建在后台单线程执行，
+ * 同一 owner 在集群内由 Redis 锁保证只有一个节点在重建；索引过期期间查询直接返回 null，
+ * 由调用方沿用关键词匹配的结果。文档ID由内容确定，重复重建结果一致。
+ * 未启用（app.category-vector.enabled=false）时所有查询返回 null。
+ */
+@Slf4j
+@Component
+public class CategoryVectorIndex {
+
+    private static final String MARKER_KEY_PREFIX = "category:vector:indexed:";
+    private static final String LOCK_KEY_PREFIX = "category:vector:reindex:lock:";
+    private static final Duration LOCK_TTL = Duration.ofMinutes(5);
+    private static final int REINDEX_QUEUE_CAPACITY = 1000;
+    private static final String OWNER_SYSTEM = "system";
+    private static final String KIND_NAME = "name";
+    private static final String KIND_DESCRIPTION = "description";
+    private static final String KIND_BILL = "bill";
+    private static final int CATEGORY_STATUS_ENABLED = 1;
+
+    private final VectorStore vectorStore;
+    private final CategoryIndex categoryIndex;
+    private final CategoryVersion categoryVersion;
+    private final CategoryCache categoryCache;
+    private final BillMapper billMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final AppConfigProperties.CategoryVector properties;
+
+    /**
+     * 已提交但尚未完成的重建任务（按 owner 去重）
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor reindexExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(REINDEX_QUEUE_CAPACITY), runnable -> {
+        Thread thread = new Thread(runnable, "category-vector-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CategoryVectorIndex(ObjectProvider<RedisVectorStore> vectorStore,
+                               CategoryIndex categoryIndex,
+                               CategoryVersion categoryVersion,
+                               CategoryCache categoryCache,
+                               BillMapper billMapper,
+                               StringRedisTemplate stringRedisTemplate,
+                               AppConfigProperties appConfigProperties) {
+        this.vectorStore = vectorStore.getIfAvailable();
+        this.categoryIndex = categoryIndex;
+        this.categoryVersion = categoryVersion;
+        this.categoryCache = categoryCache;
+        this.billMapper = billMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = appConfigProperties.getCategoryVector();
+    }
+
+    public boolean isEnabled() {
+        return vectorStore != null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reindexExecutor.shutdownNow();
+    }
+
+    /**
+     * 最近邻匹配：取相似度最高的若干文档，按分类取最高相似度，返回仍启用的最佳分类
+     * @param userId 用户ID
+     * @param text 账单文本
+     * @return 分类ID，未启用、索引尚未就绪、无结果或相似度不足时返回 null
+     */
+    public Long nearestCategory(Long userId, String text) {
+        if (vectorStore == null || userId == null || !StringUtils.hasText(text)) {
+            return null;
+        }
+        try {
+            CategoryIndex.Snapshot snapshot = categoryIndex.get(userId);
+            if (!ensureIndexed(userId, snapshot.stamp())) {
+                return null;
+            }
+            List<Document> documents = vectorStore.similaritySearch(SearchRequest.builder()
+                    .query(text.trim())
+                    .topK(properties.getTopK())
+                    .similarityThreshold(properties.getSimilarityThreshold())
+                    .filterExpression("owner in ['" + ownerOf(userId) + "', '" + OWNER_SYSTEM + "']")
+                    .build());
+
+            Map<Long, Double> bestScores = new HashMap<>();
+            for (Document document : documents) {
+                Object categoryId = document.getMetadata().get("categoryId");
+                if (categoryId == null || document.getScore() == null) {
+                    continue;
+                }
+                bestScores.merge(Long.valueOf(categoryId.toString()), document.getScore(), Math::max);
+            }
+            return bestScores.entrySet().stream()
+                    .filter(entry -> {
+                        BillCategory category = snapshot.getById(entry.getKey());
+                        return category != null && Objects.equals(CATEGORY_STATUS_ENABLED, category.getStatus());
+                    })
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+        } catch (Exception e) {
+            log.warn("分类向量匹配失败: userId={}", userId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 检查共享分类与用户分类的索引是否与当前版本一致，不一致时提交后台重建
+     * @return 两者都已就绪时返回 true
+     */
+    private boolean ensureIndexed(Long userId, CategoryVersion.Stamp stamp) {
+        if (!stamp.isValid()) {
+            return false;
+        }
+        String systemMarker = MARKER_KEY_PREFIX + OWNER_SYSTEM;
+        String userMarker = MARKER_KEY_PREFIX + ownerOf(userId);
+        List<String> markers = stringRedisTemplate.opsForValue().multiGet(Arrays.asList(systemMarker, userMarker));
+        boolean ready = true;
+        if (markers == null || !String.valueOf(stamp.system()).equals(markers.get(0))) {
+            submitReindex(OWNER_SYSTEM, () -> reindex(OWNER_SYSTEM, categoryCache.shared(stamp.system()), List.of()),
+                    systemMarker, stamp.system());
+            ready = false;
+        }
+        if (markers == null || !String.valueOf(stamp.user()).equals(markers.get(1))) {
+            submitReindex(ownerOf(userId), () -> reindex(ownerOf(userId), categoryCache.own(userId, stamp.user()),
+                            billMapper.selectCategoryNameSamples(userId, properties.getMaxSamples())),
+                    userMarker, stamp.user());
+            ready = false;
+        }
+        return ready;
+    }
+
+    private void submitReindex(String owner, Runnable task, String marker, long version) {
+        if (!pending.add(owner)) {
+            return;
+        }
+        try {
+            reindexExecutor.execute(() -> {
+                String lockKey = LOCK_KEY_PREFIX + owner;
+                try {
+                    if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(lockKey, "1", LOCK_TTL))) {
+                        return;
+                    }
+                    try {
+                        task.run();
+                        stringRedisTemplate.opsForValue().set(marker, String.valueOf(version),
+                                Duration.ofHours(properties.getSampleRefreshHours()));
+                    } finally {
+                        stringRedisTemplate.delete(lockKey);
+                    }
+                } catch (Exception e) {
+                    log.warn("重建分类向量索引失败: owner={}", owner, e);
+                } finally {
+                    pending.remove(owner);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(owner);
+            log.warn("分类向量重建队列已满，跳过: owner={}", owner);
+        }
+    }
+
+    private void reindex(String owner, List<BillCategory> categories, List<Bill> samples) {
+        long start = System.currentTimeMillis();
+        List<Document> documents = new ArrayList<>();
+        for (BillCategory category : categories) {
+            addDocument(documents, owner, category.getId(), KIND_NAME, category.getCategoryName());
+            addDocument(documents, owner, category.getId(), KIND_DESCRIPTION, category.getDescription());
+        }
+        // 样本按出现次数降序，每个分类最多保留 samplesPerCategory 条
+        Map<Long, Integer> perCategory = new HashMap<>();
+        for (Bill sample : samples) {
+            if (perCategory.merge(sample.getCategoryId(), 1, Integer::sum) <= properties.getSamplesPerCategory()) {
+                addDocument(documents, owner, sample.getCategoryId(), KIND_BILL, sample.getName());
+            }
+        }
+        vectorStore.delete("owner == '" + owner + "'");
+        if (!documents.isEmpty()) {
+            vectorStore.add(documents);
+        }
+        log.info("重建分类向量索引: owner={}, 文档数={}, 耗时={}ms", owner, documents.size(), System.currentTimeMillis() - start);
+    }
+
+    private void addDocument(List<Document> documents, String owner, Long categoryId, String kind, String text) {
+        if (categoryId == null || !StringUtils.hasText(text)) {
+            return;
+        }
+        String content = text.trim();
+        String id = UUID.nameUUIDFromBytes((owner + ":" + categoryId + ":" + kind + ":" + content)
+                .getBytes(StandardCharsets.UTF_8)).toString();
+        documents.add(new Document(id, content, Map.of(
+                "owner", owner,
+                "categoryId", String.valueOf(categoryId),
+                "kind", kind)));
+    }
+
+    private String ownerOf(Long userId) {
+        return "u" + userId;
+    }
+}
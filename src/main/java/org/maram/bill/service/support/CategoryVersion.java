@@ -0,0 +1,110 @@
+package org.maram.bill.service.support;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * 分类数据版本号
+ *
+ * 用户分类、分类关键词的写操作递增该用户的版本号，系统分类的写操作递增全局系统版本号。
+ * 由分类派生的内存结构（如分类匹配自动机）记录构建时的两个版本号，版本变化后重新构建，
+ * 多节点部署时同样生效。处于事务中时在提交后才递增。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryVersion {
+
+    private static final String USER_KEY_PREFIX = "category:version:user:";
+    private static final String SYSTEM_KEY = "category:version:system";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 用户分类版本与系统分类版本的组合
+     */
+    public record Stamp(long user, long system) {
+        public boolean isValid() {
+            return user >= 0 && system >= 0;
+        }
+    }
+
+    /**
+     * 一次读取用户与系统的分类版本，读取失败时返回无效版本（调用方据此跳过缓存）
+     */
+    public Stamp current(Long userId) {
+        try {
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(Arrays.asList(USER_KEY_PREFIX + userId, SYSTEM_KEY));
+            if (values == null || values.size() != 2) {
+                return new Stamp(-1L, -1L);
+            }
+            return new Stamp(parse(values.get(0)), parse(values.get(1)));
+        } catch (Exception e) {
+            log.warn("读取用户 {} 分类版本失败", userId, e);
+            return new Stamp(-1L, -1L);
+        }
+    }
+
+    /**
+     * 读取系统分类版本，读取失败时返回 -1
+     */
+    public long currentSystem() {
+        try {
+            return parse(stringRedisTemplate.opsForValue().get(SYSTEM_KEY));
+        } catch (Exception e) {
+            log.warn("读取系统分类版本失败", e);
+            return -1L;
+        }
+    }
+
+    /**
+     * 递增分类版本（在当前事务提交后执行）
+     * @param userId 分类所属用户，NULL 表示系统分类
+     */
+    public void bump(Long userId) {
+        bump(userId, null);
+    }
+
+    /**
+     * 递增分类版本（在当前事务提交后执行），递增完成后以新版本号回调；递增失败时回调参数为 -1
+     * @param userId 分类所属用户，NULL 表示系统分类
+     */
+    public void bump(Long userId, LongConsumer onBumped) {
+        String key = userId != null ? USER_KEY_PREFIX + userId : SYSTEM_KEY;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(key, onBumped);
+                }
+            });
+        } else {
+            increment(key, onBumped);
+        }
+    }
+
+    private void increment(String key, LongConsumer onBumped) {
+        long version = -1L;
+        try {
+            Long value = stringRedisTemplate.opsForValue().increment(key);
+            version = value != null ? value : -1L;
+        } catch (Exception e) {
+            log.warn("递增分类版本失败: {}", key, e);
+        }
+        if (onBumped != null) {
+            onBumped.accept(version);
+        }
+    }
+
+    private long parse(String value) {
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+}
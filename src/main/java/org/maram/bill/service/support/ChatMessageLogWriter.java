@@ -0,0 +1,133 @@
+package org.maram.bill.service.support;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.ChatMessage;
+import org.maram.bill.mapper.ChatMessageMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天消息异步写后（write-behind）日志。
+ *
+ * 聊天主流程只把消息放入有界队列，由后台线程按"满 M 条或每 N 毫秒"批量执行多行插入，
+ * 因此聊天热路径上不存在同步的 MySQL 写入。队列满时丢弃新消息并记录告警，不阻塞聊天。
+ */
+@Slf4j
+@Component
+public class ChatMessageLogWriter {
+
+    private final ChatMessageMapper chatMessageMapper;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<ChatMessage> queue;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public ChatMessageLogWriter(ChatMessageMapper chatMessageMapper, AppConfigProperties appConfigProperties) {
+        AppConfigProperties.ChatContext properties = appConfigProperties.getChatContext();
+        this.chatMessageMapper = chatMessageMapper;
+        this.batchSize = properties.getLogBatchSize();
+        this.flushIntervalMs = properties.getLogFlushIntervalMs();
+        this.queue = new LinkedBlockingQueue<>(properties.getLogQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "chat-message-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 关闭前把剩余消息落库
+        List<ChatMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            flush(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+    }
+
+    /**
+     * 追加一条消息（非阻塞）
+     */
+    public void append(String conversationId, String role, String content) {
+        ChatMessage message = ChatMessage.builder()
+                .conversationId(conversationId)
+                .role(role)
+                .content(content)
+                .createTime(LocalDateTime.now())
+                .build();
+        if (!queue.offer(message)) {
+            log.warn("聊天消息日志队列已满，丢弃消息 [{}] role={}", conversationId, role);
+        }
+    }
+
+    private void runLoop() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                ChatMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                while (batch.size() < batchSize) {
+                    long waitMs = deadline - System.currentTimeMillis();
+                    if (waitMs <= 0) {
+                        break;
+                    }
+                    queue.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+                    ChatMessage next = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flush(batch);
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<ChatMessage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            int rows = chatMessageMapper.insertBatch(batch);
+            log.debug("聊天消息日志批量写入 {} 条", rows);
+        } catch (Exception e) {
+            log.error("聊天消息日志批量写入失败，丢弃 {} 条消息", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.maram.bill.service.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.utils.UtteranceTemplate;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 记账短句响应缓存
+ *
+ * 文本消息先拆成 {@link UtteranceTemplate}，以 (分类集合, 模型, 模板) 为键缓存大模型抽取出的账单 JSON，
+ * 不同用户只要分类集合相同即可共享。写入前校验响应只通过槽位依赖原文：金额等于金额槽位、日期等于日期槽位、
+ * 没有税额与票号、分类在可用列表内，名称等文本字段不含数字；备注中出现的原文替换为占位符。
+ * 命中时在本地代入新的金额、日期与原文，不再调用大模型。
+ * 只缓存没有历史上下文时得到的响应，保证缓存内容只由模板决定。
+ */
+@Slf4j
+@Component
+public class ChatResponseCache {
+
+    private static final String KEY_PREFIX = "chat:response:";
+    private static final String STATS_KEY = "chat:response:stats";
+    private static final String FIELD_LOOKUPS = "lookups";
+    private static final String FIELD_HITS = "hits";
+    private static final String FIELD_STORES = "stores";
+    private static final String UTTERANCE_SLOT = "{u}";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final AppConfigProperties.ChatResponseCache properties;
+
+    /**
+     * 缓存统计
+     */
+    @Data
+    public static class Stats {
+        private long lookups;
+        private long hits;
+        private long stores;
+        /**
+         * 节省的大模型调用次数（等于命中次数）
+         */
+        private long llmCallsSaved;
+        private double hitRate;
+    }
+
+    public ChatResponseCache(StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper,
+                             AppConfigProperties appConfigProperties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = appConfigProperties.getChatResponseCache();
+    }
+
+    /**
+     * 拆分消息，缓存关闭或消息不是可缓存的记账短句时返回 null
+     */
+    public UtteranceTemplate parse(String message, LocalDate today) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        return UtteranceTemplate.parse(message, today, properties.getMaxUtteranceLength());
+    }
+
+    /**
+     * 查找缓存并代入槽位
+     * @return 账单 JSON，未命中时返回 null
+     */
+    public String get(UtteranceTemplate template, List<String> categories, String model, String message) {
+        if (template == null) {
+            return null;
+        }
+        try {
+            String cached = stringRedisTemplate.opsForValue().get(buildKey(template, categories, model));
+            stringRedisTemplate.opsForHash().increment(STATS_KEY, FIELD_LOOKUPS, 1);
+            if (cached == null) {
+                return null;
+            }
+            String rendered = render((ObjectNode) objectMapper.readTree(cached), template, message);
+            stringRedisTemplate.opsForHash().increment(STATS_KEY, FIELD_HITS, 1);
+            return rendered;
+        } catch (Exception e) {
+            log.warn("读取记账短句缓存失败 [{}]", template.template(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 校验大模型响应后写入缓存，响应不是纯槽位账单时忽略
+     */
+    public void put(UtteranceTemplate template, List<String> categories, String model, String message, String response) {
+        if (template == null || response == null) {
+            return;
+        }
+        try {
+            ObjectNode entry = toEntry(response.trim(), template, categories, message);
+            if (entry == null) {
+                log.debug("响应不满足缓存条件，跳过: {}", template.template());
+                return;
+            }
+            stringRedisTemplate.opsForValue().set(buildKey(template, categories, model),
+                    objectMapper.writeValueAsString(entry), Duration.ofHours(properties.getTtlHours()));
+            stringRedisTemplate.opsForHash().increment(STATS_KEY, FIELD_STORES, 1);
+        } catch (Exception e) {
+            log.warn("写入记账短句缓存失败 [{}]", template.template(), e);
+        }
+    }
+
+    public Stats stats() {
+        Map<Object, Object> values = stringRedisTemplate.opsForHash().entries(STATS_KEY);
+        Stats stats = new Stats();
+        stats.setLookups(longValue(values.get(FIELD_LOOKUPS)));
+        stats.setHits(longValue(values.get(FIELD_HITS)));
+        stats.setStores(longValue(values.get(FIELD_STORES)));
+        stats.setLlmCallsSaved(stats.getHits());
+        stats.setHitRate(stats.getLookups() > 0 ? (double) stats.getHits() / stats.getLookups() : 0);
+        return stats;
+    }
+
+    private ObjectNode toEntry(String response, UtteranceTemplate template, List<String> categories, String message)
+            throws Exception {
+        if (!response.startsWith("{")) {
+            return null;
+        }
+        JsonNode node = objectMapper.readTree(response);
+        if (!(node instanceof ObjectNode bill)) {
+            return null;
+        }
+        JsonNode total = bill.get("totalAmount");
+        if (total == null || !total.isNumber() || total.decimalValue().compareTo(template.amount()) != 0) {
+            return null;
+        }
+        JsonNode net = bill.get("netAmount");
+        if (net != null && !net.isNull()
+                && (!net.isNumber() || net.decimalValue().compareTo(template.amount()) != 0)) {
+            return null;
+        }
+        if (!template.date().toString().equals(bill.path("issueDate").asText(null))
+                || !isBlank(bill.get("taxAmount")) || !isBlank(bill.get("invoiceNumber")) || bill.has("fileId")
+                || !bill.path("transactionType").isTextual()
+                || !categories.contains(bill.path("billType").asText(null))) {
+            return null;
+        }
+        String notes = bill.path("notes").isTextual() ? bill.get("notes").asText().replace(message, UTTERANCE_SLOT) : null;
+        if (hasDigit(bill.path("name").asText("")) || hasDigit(bill.path("supplierName").asText(""))
+                || (notes != null && hasDigit(notes))) {
+            return null;
+        }
+
+        ObjectNode entry = bill.deepCopy();
+        entry.put("totalAmount", UtteranceTemplate.AMOUNT_SLOT);
+        if (net != null && !net.isNull()) {
+            entry.put("netAmount", UtteranceTemplate.AMOUNT_SLOT);
+        }
+        entry.put("issueDate", UtteranceTemplate.DATE_SLOT);
+        if (notes != null) {
+            entry.put("notes", notes);
+        }
+        return entry;
+    }
+
+    private String render(ObjectNode entry, UtteranceTemplate template, String message) throws Exception {
+        BigDecimal amount = template.amount();
+        entry.put("totalAmount", amount);
+        if (UtteranceTemplate.AMOUNT_SLOT.equals(entry.path("netAmount").asText(null))) {
+            entry.put("netAmount", amount);
+        }
+        entry.put("issueDate", template.date().toString());
+        if (entry.path("notes").isTextual()) {
+            entry.put("notes", entry.get("notes").asText().replace(UTTERANCE_SLOT, message));
+        }
+        return objectMapper.writeValueAsString(entry);
+    }
+
+    private String buildKey(UtteranceTemplate template, List<String> categories, String model) {
+        return KEY_PREFIX + fingerprint(String.join("\n", new TreeSet<>(categories))) + ':'
+                + model + ':' + template.template();
+    }
+
+    private static String fingerprint(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isBlank(JsonNode node) {
+        return node == null || node.isNull() || (node.isTextual() && node.asText().isBlank());
+    }
+
+    private static boolean hasDigit(String text) {
+        return text.chars().anyMatch(Character::isDigit);
+    }
+
+    private static long longValue(Object value) {
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+}
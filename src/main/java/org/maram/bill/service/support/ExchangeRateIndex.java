@@ -0,0 +1,228 @@
+package org.maram.bill.service.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.config.properties.ExchangeRateApiProperties;
+import org.maram.bill.entity.ExchangeRate;
+import org.maram.bill.mapper.ExchangeRateMapper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 汇率内存快照
+ *
+ * 每种基准货币下取各目标货币的最新汇率，预先算好所有货币两两之间的交叉汇率与时间戳，构成不可变快照，
+ * 换算时只查内存矩阵。快照在启动时构建，汇率更新提交后递增 Redis 中的全局版本号并重建；
+ * 其他节点定时比对版本号，落后时重建。新快照通过原子引用整体替换，且只允许版本前进。
+ */
+@Slf4j
+@Component
+public class ExchangeRateIndex {
+
+    private static final String VERSION_KEY = "exchange:rate:version";
+    private static final int RATE_CALCULATION_SCALE = 10;
+
+    private final ExchangeRateMapper exchangeRateMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ExchangeRateApiProperties apiProperties;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    public ExchangeRateIndex(ExchangeRateMapper exchangeRateMapper,
+                             StringRedisTemplate stringRedisTemplate,
+                             ExchangeRateApiProperties apiProperties) {
+        this.exchangeRateMapper = exchangeRateMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.apiProperties = apiProperties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild(currentVersion());
+        } catch (Exception e) {
+            log.warn("启动时构建汇率快照失败，将在首次换算时重试", e);
+        }
+    }
+
+    /**
+     * 当前快照，尚未构建时同步构建
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot.get();
+        return current != null ? current : rebuild(currentVersion());
+    }
+
+    /**
+     * 汇率写入后调用：提交后递增全局版本号并重建本地快照
+     */
+    public void onRatesUpdated() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild(incrementVersion());
+                }
+            });
+        } else {
+            rebuild(incrementVersion());
+        }
+    }
+
+    /**
+     * 比对全局版本号，本地快照落后（其他节点已更新汇率）时重建
+     */
+    public void syncIfStale() {
+        long version = currentVersion();
+        Snapshot current = snapshot.get();
+        if (version >= 0 && (current == null || current.version() < version)) {
+            log.info("汇率快照版本落后 (本地={}, 全局={})，重建", current != null ? current.version() : null, version);
+            rebuild(version);
+        }
+    }
+
+    private Snapshot rebuild(long version) {
+        long start = System.currentTimeMillis();
+        String baseCode = apiProperties.getBaseCurrency().toUpperCase();
+        List<ExchangeRate> rows = exchangeRateMapper.selectLatestByBase(baseCode);
+        Snapshot built = Snapshot.build(version, baseCode, rows);
+        // 并发重建时只允许版本前进，同版本以后构建的为准；版本号不可用时直接替换
+        Snapshot published = snapshot.accumulateAndGet(built, (previous, next) ->
+                previous == null || next.version() < 0 || previous.version() <= next.version() ? next : previous);
+        log.info("构建汇率快照: 版本={}, 货币数={}, 耗时={}ms",
+                version, built.codes().size(), System.currentTimeMillis() - start);
+        return published;
+    }
+
+    private long currentVersion() {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            log.warn("读取汇率版本号失败", e);
+            return -1L;
+        }
+    }
+
+    private long incrementVersion() {
+        try {
+            Long value = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+            return value != null ? value : -1L;
+        } catch (Exception e) {
+            log.warn("递增汇率版本号失败", e);
+            return -1L;
+        }
+    }
+
+    /**
+     * 换算汇率及其依据的数据时间
+     */
+    public record Rate(BigDecimal rate, LocalDateTime timestamp) {
+    }
+
+    /**
+     * 汇率快照（不可变）：codes 与矩阵下标一一对应，rates[i][j] 为 1 单位 codes[i] 折合多少 codes[j]，
+     * 缺少汇率或基准汇率为 0 时为 null。baseRates 保留基准货币到各目标货币的原始记录，用于说明缺失原因。
+     */
+    public record Snapshot(long version,
+                           String baseCode,
+                           List<String> codes,
+                           Map<String, Integer> indexOf,
+                           Map<String, ExchangeRate> baseRates,
+                           BigDecimal[][] rates,
+                           LocalDateTime[][] timestamps) {
+
+        /**
+         * 查找交叉汇率，找不到时返回 null
+         */
+        public Rate find(String fromCode, String toCode) {
+            Integer from = indexOf.get(fromCode);
+            Integer to = indexOf.get(toCode);
+            if (from == null || to == null || rates[from][to] == null) {
+                return null;
+            }
+            return new Rate(rates[from][to], timestamps[from][to]);
+        }
+
+        /**
+         * 快照中是否包含该货币（基准货币或有汇率记录的目标货币）
+         */
+        public boolean supports(String code) {
+            return indexOf.containsKey(code);
+        }
+
+        /**
+         * 基准货币到指定货币的原始汇率记录，不存在时返回 null
+         */
+        public ExchangeRate baseRate(String code) {
+            return baseRates.get(code);
+        }
+
+        /**
+         * 按与逐次查询相同的口径计算：基准货币直接取存储汇率，到基准货币取倒数，其余经基准货币中转，
+         * 除法保留 10 位小数；时间戳取所用汇率中较新的一个
+         */
+        static Snapshot build(long version, String baseCode, List<ExchangeRate> rows) {
+            Map<String, ExchangeRate> latest = new HashMap<>();
+            for (ExchangeRate row : rows) {
+                if (row.getTargetCurrencyCode() == null || row.getRate() == null) {
+                    continue;
+                }
+                latest.merge(row.getTargetCurrencyCode().toUpperCase(), row,
+                        (a, b) -> isNewer(b.getLastUpdatedFromApi(), a.getLastUpdatedFromApi()) ? b : a);
+            }
+            latest.remove(baseCode);
+
+            List<String> codes = new ArrayList<>();
+            codes.add(baseCode);
+            codes.addAll(latest.keySet());
+            Map<String, Integer> indexOf = new HashMap<>();
+            for (int i = 0; i < codes.size(); i++) {
+                indexOf.put(codes.get(i), i);
+            }
+
+            int size = codes.size();
+            BigDecimal[][] rates = new BigDecimal[size][size];
+            LocalDateTime[][] timestamps = new LocalDateTime[size][size];
+            for (int i = 0; i < size; i++) {
+                ExchangeRate source = latest.get(codes.get(i));
+                for (int j = 0; j < size; j++) {
+                    ExchangeRate target = latest.get(codes.get(j));
+                    if (i == j) {
+                        rates[i][j] = BigDecimal.ONE;
+                    } else if (i == 0) {
+                        rates[i][j] = target.getRate();
+                        timestamps[i][j] = target.getLastUpdatedFromApi();
+                    } else if (source.getRate().signum() == 0) {
+                        continue;
+                    } else if (j == 0) {
+                        rates[i][j] = BigDecimal.ONE.divide(source.getRate(), RATE_CALCULATION_SCALE, RoundingMode.HALF_UP);
+                        timestamps[i][j] = source.getLastUpdatedFromApi();
+                    } else {
+                        rates[i][j] = target.getRate().divide(source.getRate(), RATE_CALCULATION_SCALE, RoundingMode.HALF_UP);
+                        timestamps[i][j] = isNewer(target.getLastUpdatedFromApi(), source.getLastUpdatedFromApi())
+                                ? target.getLastUpdatedFromApi() : source.getLastUpdatedFromApi();
+                    }
+                }
+            }
+            return new Snapshot(version, baseCode, List.copyOf(codes), Map.copyOf(indexOf), Map.copyOf(latest),
+                    rates, timestamps);
+        }
+
+        private static boolean isNewer(LocalDateTime candidate, LocalDateTime current) {
+            return candidate != null && (current == null || candidate.isAfter(current));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.maram.bill.service.support;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 本地确定性向量模型
+ *
+ * 把文本的字符 1~3-gram 用带符号的特征哈希投影到固定维度后做 L2 归一化，不依赖外部服务，
+ * 同一文本总是得到同一向量。字面相近的文本余弦相似度高，但不具备语义泛化能力，
+ * 用于本地开发、测试以及对比远程向量模型的召回效果。
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private static final int MAX_GRAM = 3;
+
+    private final int dimensions;
+
+    public HashingEmbeddingModel(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("向量维度必须大于0");
+        }
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> texts = request.getInstructions();
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(embed(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        String normalized = text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            // 长片段权重更高，减少常见单字的干扰
+            float weight = n;
+            for (int i = 0; i + n <= normalized.length(); i++) {
+                int hash = normalized.substring(i, i + n).hashCode() * 0x9E3779B1;
+                int slot = Math.floorMod(hash, dimensions);
+                vector[slot] += (hash >>> 31) == 0 ? weight : -weight;
+            }
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+}
@@ -0,0 +1,121 @@
+package org.maram.bill.service.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.service.BillRollupService;
+import org.maram.bill.service.AiInsightService.InsightMetrics;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * AI 洞察结果缓存
+ *
+ * 键由 (用户, 周期, 日期范围, 模型, 用户数据版本, 分类版本) 组成；周期尚未结束时再带上当天日期，
+ * 因为日均支出与预测每天都会变化。洞察中包含分类名称，分类改名同样需要换键。
+ * 数据、分类或模型变化后自动使用新键，旧结果按 TTL 过期。
+ * 按日汇总表回填完成前版本视为不可用：此时不写缓存也不生成预计算快照，避免回填前的结果在回填后继续被使用。
+ */
+@Slf4j
+@Component
+public class InsightResultCache {
+
+    private static final String KEY_PREFIX = "ai:insight:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UserDataVersion userDataVersion;
+    private final CategoryVersion categoryVersion;
+    private final BillRollupService billRollupService;
+    private final AppConfigProperties.Insight properties;
+
+    /**
+     * 洞察依赖的版本：用户数据版本与分类版本
+     */
+    public record Version(long data, CategoryVersion.Stamp category) {
+
+        public static final Version UNAVAILABLE = new Version(-1L, new CategoryVersion.Stamp(-1L, -1L));
+
+        public boolean isValid() {
+            return data >= 0 && category.isValid();
+        }
+
+        /**
+         * 分类版本的紧凑表示，用于缓存键与快照记录
+         */
+        public String categoryToken() {
+            return category.user() + "." + category.system();
+        }
+    }
+
+    public InsightResultCache(StringRedisTemplate stringRedisTemplate, UserDataVersion userDataVersion,
+                              CategoryVersion categoryVersion, BillRollupService billRollupService,
+                              AppConfigProperties appConfigProperties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.userDataVersion = userDataVersion;
+        this.categoryVersion = categoryVersion;
+        this.billRollupService = billRollupService;
+        this.properties = appConfigProperties.getInsight();
+    }
+
+    /**
+     * 读取用户数据与分类版本，需在计算指标之前调用，避免计算期间发生的写入被记在新版本号下
+     */
+    public Version version(Long userId) {
+        return properties.isCacheEnabled() ? read(userId) : Version.UNAVAILABLE;
+    }
+
+    /**
+     * 不论缓存是否开启都读取当前版本（预计算快照使用），汇总表尚未回填完成时返回不可用
+     */
+    public Version read(Long userId) {
+        if (!billRollupService.isBuilt()) {
+            return Version.UNAVAILABLE;
+        }
+        return new Version(userDataVersion.current(userId), categoryVersion.current(userId));
+    }
+
+    /**
+     * 构建缓存键，缓存关闭或版本号不可用时返回 null
+     */
+    public String buildKey(Long userId, Version version, InsightMetrics metrics, String model) {
+        if (!version.isValid()) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(KEY_PREFIX)
+                .append(userId).append(':')
+                .append(metrics.getPeriod()).append(':')
+                .append(metrics.getStartDate()).append('_').append(metrics.getEndDate()).append(':')
+                .append(model).append(":v").append(version.data())
+                .append(":c").append(version.categoryToken());
+        LocalDate today = LocalDate.now();
+        if (!today.isAfter(metrics.getEndDate())) {
+            key.append(':').append(today);
+        }
+        return key.toString();
+    }
+
+    public String get(String key) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            return stringRedisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.warn("读取洞察缓存失败 [{}]", key, e);
+            return null;
+        }
+    }
+
+    public void put(String key, String content) {
+        if (key == null || content == null || content.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForValue().set(key, content, Duration.ofHours(properties.getCacheTtlHours()));
+        } catch (Exception e) {
+            log.warn("写入洞察缓存失败 [{}]", key, e);
+        }
+    }
+}
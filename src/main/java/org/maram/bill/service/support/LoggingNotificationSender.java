@@ -0,0 +1,20 @@
+package org.maram.bill.service.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.entity.NotificationOutbox;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 仅记录日志的通知发送器，用于本地开发与测试环境
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.notification", name = "sender", havingValue = "log", matchIfMissing = true)
+public class LoggingNotificationSender implements NotificationSender {
+
+    @Override
+    public void send(NotificationOutbox message) {
+        log.info("[通知] 用户={}, 类型={}, 内容={}", message.getUserId(), message.getEventType(), message.getPayload());
+    }
+}
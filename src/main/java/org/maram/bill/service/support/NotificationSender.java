@@ -0,0 +1,31 @@
+package org.maram.bill.service.support;
+
+import org.maram.bill.entity.NotificationOutbox;
+
+/**
+ * 通知发送器，由 app.notification.sender 选择实现
+ * 抛出异常表示本次投递失败，调度器会按退避策略重试；抛出 {@link PermanentFailureException} 时不再重试
+ */
+public interface NotificationSender {
+
+    /**
+     * 投递一条通知
+     * @param message 发件箱中的通知
+     * @throws Exception 投递失败
+     */
+    void send(NotificationOutbox message) throws Exception;
+
+    /**
+     * 重试也不会成功的投递失败（如用户未订阅、未绑定微信），调度器直接将通知标记为失败
+     */
+    class PermanentFailureException extends Exception {
+
+        public PermanentFailureException(String message) {
+            super(message);
+        }
+
+        public PermanentFailureException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.maram.bill.service.support;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 用户数据版本号
+ *
+ * 账单、预算等影响统计结果的写操作会递增版本号，派生结果（如 AI 洞察）的缓存键带上版本号，
+ * 数据变化后旧缓存自然失效，无需逐个删除。处于事务中时在提交后才递增，
+ * 避免其他请求在提交前以新版本号缓存旧数据。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserDataVersion {
+
+    private static final String VERSION_KEY_PREFIX = "user:data:version:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 获取用户当前数据版本，从未写入过时为 0
+     */
+    public long current(Long userId) {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(VERSION_KEY_PREFIX + userId);
+            return value != null ? Long.parseLong(value) : 0L;
+        } catch (Exception e) {
+            // 读取失败时返回 -1，调用方据此跳过缓存
+            log.warn("读取用户 {} 数据版本失败", userId, e);
+            return -1L;
+        }
+    }
+
+    /**
+     * 递增用户数据版本（在当前事务提交后执行）
+     */
+    public void bump(Long userId) {
+        bump(userId, null);
+    }
+
+    /**
+     * 递增用户数据版本（在当前事务提交后执行），递增完成后以新版本号回调；递增失败时回调参数为 -1
+     */
+    public void bump(Long userId, LongConsumer onBumped) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(userId, onBumped);
+                }
+            });
+        } else {
+            increment(userId, onBumped);
+        }
+    }
+
+    private void increment(Long userId, LongConsumer onBumped) {
+        long version = -1L;
+        try {
+            Long value = stringRedisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + userId);
+            version = value != null ? value : -1L;
+        } catch (Exception e) {
+            log.warn("递增用户 {} 数据版本失败", userId, e);
+        }
+        if (onBumped != null) {
+            onBumped.accept(version);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.maram.bill.service.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.maram.bill.common.event.BudgetThresholdCrossedEvent;
+import org.maram.bill.config.properties.AppConfigProperties;
+import org.maram.bill.entity.NotificationOutbox;
+import org.maram.bill.entity.User;
+import org.maram.bill.entity.UserBudget;
+import org.maram.bill.integration.WxSubscribeMessageClient;
+import org.maram.bill.mapper.UserMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 通过微信小程序订阅消息投递预算预警
+ *
+ * 订阅消息只能发给已授权的用户：小程序需在预算页调用 wx.requestSubscribeMessage 订阅 wechat-template-id
+ * 对应的模板，且每次授权只能发送一条。未订阅时微信返回 43101，按永久失败处理，不再重试。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.notification", name = "sender", havingValue = "wechat")
+public class WechatNotificationSender implements NotificationSender {
+
+    private final WxSubscribeMessageClient wxSubscribeMessageClient;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final AppConfigProperties.Notification properties;
+
+    public WechatNotificationSender(WxSubscribeMessageClient wxSubscribeMessageClient, UserMapper userMapper,
+                                    ObjectMapper objectMapper, AppConfigProperties appConfigProperties) {
+        this.wxSubscribeMessageClient = wxSubscribeMessageClient;
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
+        this.properties = appConfigProperties.getNotification();
+    }
+
+    @Override
+    public void send(NotificationOutbox message) throws Exception {
+        User user = userMapper.selectById(message.getUserId());
+        if (user == null || user.getOpenid() == null) {
+            throw new PermanentFailureException("用户不存在或未绑定微信: " + message.getUserId());
+        }
+        JsonNode payload = objectMapper.readTree(message.getPayload());
+
+        UserBudget.BudgetType budgetType = UserBudget.BudgetType.getByCode(payload.path("budgetType").asText());
+        boolean overBudget = BudgetThresholdCrossedEvent.Level.OVER_BUDGET.name().equals(message.getEventType());
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("thing1", budgetType != null ? budgetType.getDesc() : "预算");
+        data.put("amount2", payload.path("usedAmount").asText());
+        data.put("amount3", payload.path("budgetAmount").asText());
+        data.put("thing4", overBudget ? "已超出预算" : "已达到预警阈值");
+
+        try {
+            wxSubscribeMessageClient.send(user.getOpenid(), properties.getWechatTemplateId(), properties.getWechatPage(), data);
+        } catch (WxSubscribeMessageClient.SendException e) {
+            if (e.getErrcode() == WxSubscribeMessageClient.ERRCODE_USER_REFUSED) {
+                throw new PermanentFailureException("用户未订阅预算预警消息: " + message.getUserId(), e);
+            }
+            throw e;
+        }
+    }
+}